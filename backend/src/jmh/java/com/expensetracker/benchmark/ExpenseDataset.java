@@ -0,0 +1,47 @@
+package com.expensetracker.benchmark;
+
+import com.expensetracker.model.Expense;
+import com.expensetracker.repository.ExpenseRepository;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Deterministic synthetic expenses for benchmarks: amounts between 0.00 and 999.99, dates spread
+ * uniformly over {@link #YEARS} years from {@link #START}, and {@code categories} distinct
+ * category names drawn uniformly.
+ */
+public final class ExpenseDataset {
+    public static final LocalDateTime START = LocalDateTime.of(2015, 1, 1, 0, 0);
+    public static final int YEARS = 10;
+    private static final int SPAN_SECONDS = YEARS * 365 * 24 * 3600;
+
+    private ExpenseDataset() {
+    }
+
+    /** Unsaved expenses without ids. */
+    public static List<Expense> generate(int rows, int categories, long seed) {
+        Random random = new Random(seed);
+        List<Expense> expenses = new ArrayList<>(rows);
+        for (int i = 0; i < rows; i++) {
+            expenses.add(new Expense("Expense " + i, BigDecimal.valueOf(random.nextInt(100_000), 2),
+                    category(random.nextInt(categories)), START.plusSeconds(random.nextInt(SPAN_SECONDS))));
+        }
+        return expenses;
+    }
+
+    public static ExpenseRepository repository(int rows, int categories, long seed) {
+        ExpenseRepository repository = new ExpenseRepository();
+        for (Expense expense : generate(rows, categories, seed)) {
+            repository.save(expense);
+        }
+        return repository;
+    }
+
+    public static String category(int index) {
+        return "Category " + index;
+    }
+}
@@ -0,0 +1,117 @@
+package com.expensetracker.controller;
+
+import com.expensetracker.benchmark.ExpenseDataset;
+import com.expensetracker.dto.ExpenseRequest;
+import com.expensetracker.export.ExpenseExporter;
+import com.expensetracker.model.Expense;
+import com.expensetracker.persistence.DurabilityMode;
+import com.expensetracker.persistence.ExpensePersistence;
+import com.expensetracker.persistence.NoOpExpensePersistence;
+import com.expensetracker.persistence.WalExpensePersistence;
+import com.expensetracker.repository.ExpenseRepository;
+import com.expensetracker.service.ExpenseService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.validation.Validation;
+import jakarta.validation.Validator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+
+/**
+ * Rows ingested per second through the MVC stack (JSON binding, validation, service, repository),
+ * one {@code POST /api/expenses} per row against one {@code POST /api/expenses/batch} per
+ * {@value #BATCH_SIZE} rows. Scores of both benchmarks are in rows per second.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BatchIngestBenchmark {
+    private static final int BATCH_SIZE = 1000;
+
+    @Param({"NONE", "GROUP_COMMIT"})
+    public String mode;
+
+    private Path directory;
+    private ExpensePersistence persistence;
+    private MockMvc mockMvc;
+    private byte[][] singleBodies;
+    private byte[] batchBody;
+    private int next;
+
+    @Setup(Level.Iteration)
+    public void setUp() throws IOException {
+        ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        List<ExpenseRequest> requests = new ArrayList<>(BATCH_SIZE);
+        for (Expense expense : ExpenseDataset.generate(BATCH_SIZE, 10, 42)) {
+            requests.add(new ExpenseRequest(expense.getDescription(), expense.getAmount(),
+                    expense.getCategory(), expense.getDate()));
+        }
+        singleBodies = new byte[BATCH_SIZE][];
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            singleBodies[i] = objectMapper.writeValueAsBytes(requests.get(i));
+        }
+        batchBody = objectMapper.writeValueAsBytes(requests);
+
+        directory = Files.createTempDirectory("ingest-benchmark");
+        persistence = mode.equals("NONE")
+                ? new NoOpExpensePersistence()
+                : new WalExpensePersistence(directory, DurabilityMode.valueOf(mode), Duration.ZERO, Duration.ofMillis(100));
+        Validator validator = Validation.buildDefaultValidatorFactory().getValidator();
+        ExpenseController controller = new ExpenseController(
+                new ExpenseService(new ExpenseRepository(persistence)), new ExpenseExporter(objectMapper), validator);
+        mockMvc = MockMvcBuilders.standaloneSetup(controller).build();
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDown() throws IOException {
+        persistence.close();
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    @Benchmark
+    public MvcResult singleRow() throws Exception {
+        byte[] body = singleBodies[next++ % BATCH_SIZE];
+        return mockMvc.perform(post("/api/expenses").contentType(MediaType.APPLICATION_JSON).content(body))
+                .andReturn();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public MvcResult batch() throws Exception {
+        return mockMvc.perform(post("/api/expenses/batch").contentType(MediaType.APPLICATION_JSON).content(batchBody))
+                .andReturn();
+    }
+}
@@ -0,0 +1,119 @@
+package com.expensetracker.controller;
+
+import com.expensetracker.benchmark.ExpenseDataset;
+import com.expensetracker.dto.ExpenseRequest;
+import com.expensetracker.export.ExpenseExporter;
+import com.expensetracker.repository.ExpenseRepository;
+import com.expensetracker.service.ExpenseService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.validation.Validation;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+
+/**
+ * Replays what the dashboard does after every action: reload the list, the summary, the category
+ * totals and the trend, with one new expense every {@code replaysPerWrite} reloads. With
+ * {@code conditional} the client sends back the ETags it got, as a browser does. The
+ * {@code responseBytes}, {@code notModified} and {@code reloads} counters are totals over the
+ * measurement, so bytes per reload is {@code responseBytes / reloads}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DashboardReplayBenchmark {
+    private static final String[] RELOAD = {
+            "/api/expenses", "/api/expenses/summary", "/api/expenses/by-category", "/api/expenses/trend/2020"};
+
+    @Param({"1000", "10000"})
+    public int rows;
+
+    @Param({"false", "true"})
+    public boolean conditional;
+
+    @Param("20")
+    public int replaysPerWrite;
+
+    private MockMvc mockMvc;
+    private byte[] newExpense;
+    private final Map<String, String> etags = new HashMap<>();
+    private long replays;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        ExpenseRepository repository = ExpenseDataset.repository(rows, 10, 42);
+        ExpenseController controller = new ExpenseController(new ExpenseService(repository), new ExpenseExporter(objectMapper),
+                Validation.buildDefaultValidatorFactory().getValidator());
+        mockMvc = MockMvcBuilders.standaloneSetup(controller).build();
+        newExpense = objectMapper.writeValueAsBytes(new ExpenseRequest("Coffee", new BigDecimal("3.20"),
+                ExpenseDataset.category(0), LocalDateTime.of(2020, 6, 1, 9, 0)));
+    }
+
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class Traffic {
+        public long responseBytes;
+        public long notModified;
+        public long reloads;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            responseBytes = 0;
+            notModified = 0;
+            reloads = 0;
+        }
+    }
+
+    @Benchmark
+    public void reload(Traffic traffic) throws Exception {
+        if (++replays % replaysPerWrite == 0) {
+            mockMvc.perform(post("/api/expenses").contentType(MediaType.APPLICATION_JSON).content(newExpense));
+        }
+        for (String url : RELOAD) {
+            MockHttpServletRequestBuilder request = get(url);
+            String etag = etags.get(url);
+            if (conditional && etag != null) {
+                request.header(HttpHeaders.IF_NONE_MATCH, etag);
+            }
+            MockHttpServletResponse response = mockMvc.perform(request).andReturn().getResponse();
+            if (response.getStatus() == HttpStatus.NOT_MODIFIED.value()) {
+                traffic.notModified++;
+            } else {
+                etags.put(url, response.getHeader(HttpHeaders.ETAG));
+            }
+            traffic.responseBytes += response.getContentAsByteArray().length;
+        }
+        traffic.reloads++;
+    }
+}
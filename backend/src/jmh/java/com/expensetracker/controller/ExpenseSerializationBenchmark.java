@@ -0,0 +1,78 @@
+package com.expensetracker.controller;
+
+import com.expensetracker.benchmark.ExpenseDataset;
+import com.expensetracker.dto.ExpenseResponse;
+import com.expensetracker.dto.ExpenseResponseSerializer;
+import com.expensetracker.model.Expense;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TimeZone;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serializing a {@code List<ExpenseResponse>} with an ObjectMapper configured like the
+ * application's (see application.properties), either through Jackson's bean serializer or
+ * through {@link ExpenseResponseSerializer}, which the application registers.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ExpenseSerializationBenchmark {
+
+    @Param({"50", "1000", "100000"})
+    public int rows;
+
+    @Param({"10", "1000"})
+    public int categories;
+
+    @Param({"bean", "custom"})
+    public String serializer;
+
+    private ObjectWriter writer;
+    private List<ExpenseResponse> responses;
+
+    @Setup
+    public void setUp() {
+        ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json()
+                .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                .timeZone(TimeZone.getTimeZone("UTC"))
+                .build();
+        if (serializer.equals("custom")) {
+            objectMapper.registerModule(new SimpleModule().addSerializer(ExpenseResponse.class, new ExpenseResponseSerializer()));
+        }
+        writer = objectMapper.writerFor(objectMapper.getTypeFactory()
+                .constructCollectionType(List.class, ExpenseResponse.class));
+        responses = new ArrayList<>(rows);
+        long id = 1;
+        for (Expense expense : ExpenseDataset.generate(rows, categories, 42)) {
+            expense.setId(id++);
+            responses.add(new ExpenseResponse(expense));
+        }
+    }
+
+    @Benchmark
+    public byte[] writeList() throws JsonProcessingException {
+        return writer.writeValueAsBytes(responses);
+    }
+}
@@ -0,0 +1,93 @@
+package com.expensetracker.controller;
+
+import com.expensetracker.benchmark.ExpenseDataset;
+import com.expensetracker.dto.ExpenseResponse;
+import com.expensetracker.dto.ExpenseResponseSerializer;
+import com.expensetracker.model.Expense;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TimeZone;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writing and reading a {@code List<ExpenseResponse>} in each format the API negotiates, with the
+ * application's Jackson settings and serializer. The payload size of each format is printed once
+ * per fork, since JMH only reports times.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class WireFormatBenchmark {
+
+    @Param({"1000", "100000"})
+    public int rows;
+
+    @Param({"json", "cbor", "smile"})
+    public String format;
+
+    private ObjectWriter writer;
+    private ObjectReader reader;
+    private List<ExpenseResponse> responses;
+    private byte[] payload;
+
+    @Setup
+    public void setUp() throws IOException {
+        JsonFactory factory = format.equals("cbor") ? new CBORFactory()
+                : format.equals("smile") ? new SmileFactory() : new JsonFactory();
+        ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json()
+                .factory(factory)
+                .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                .timeZone(TimeZone.getTimeZone("UTC"))
+                .modules(new SimpleModule().addSerializer(ExpenseResponse.class, new ExpenseResponseSerializer()))
+                .findModulesViaServiceLoader(true)
+                .build();
+        writer = objectMapper.writerFor(objectMapper.getTypeFactory()
+                .constructCollectionType(List.class, ExpenseResponse.class));
+        reader = objectMapper.readerFor(objectMapper.getTypeFactory()
+                .constructCollectionType(List.class, ExpenseResponse.class));
+        responses = new ArrayList<>(rows);
+        long id = 1;
+        for (Expense expense : ExpenseDataset.generate(rows, 10, 42)) {
+            expense.setId(id++);
+            responses.add(new ExpenseResponse(expense));
+        }
+        payload = writer.writeValueAsBytes(responses);
+        System.out.printf("%n%s payload: %d bytes for %d rows (%.1f per row)%n",
+                format, payload.length, rows, (double) payload.length / rows);
+    }
+
+    @Benchmark
+    public byte[] write() throws IOException {
+        return writer.writeValueAsBytes(responses);
+    }
+
+    @Benchmark
+    public List<ExpenseResponse> read() throws IOException {
+        return reader.readValue(payload);
+    }
+}
@@ -0,0 +1,214 @@
+package com.expensetracker.loadtest;
+
+import com.expensetracker.ExpenseTrackerApplication;
+import com.expensetracker.benchmark.ExpenseDataset;
+import com.expensetracker.repository.ExpenseRepository;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadInfo;
+import java.lang.management.ThreadMXBean;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * CPU against bandwidth for response compression: the application is started in this JVM once per
+ * compression setting and closed-loop clients fetch list responses of several sizes with
+ * {@code Accept-Encoding: gzip}. For each payload it prints throughput, the bytes on the wire per
+ * response, the server CPU per response and how long those bytes take on a link of the given speed.
+ * Server CPU is the CPU time of the request and async threads only, so the in-process clients, which
+ * never decompress, are left out. One untimed pass over every payload comes first, to warm up the JVM.
+ * <p>
+ * Options, all optional: {@code --compression=off,1,6,9,huffman-only --payloads=10,100,1000,all
+ * --clients=4 --rows=10000 --link-mbps=100 --warmup=10s --duration=10s}. A payload is a page size, or
+ * {@code all} to stream every row as NDJSON.
+ */
+public final class CompressionLoadTest {
+
+    private CompressionLoadTest() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = options(args);
+        String[] payloads = options.getOrDefault("payloads", "10,100,1000,all").split(",");
+        int clients = Integer.parseInt(options.getOrDefault("clients", "4"));
+        int rows = Integer.parseInt(options.getOrDefault("rows", "10000"));
+        double linkMbps = Double.parseDouble(options.getOrDefault("link-mbps", "100"));
+        Duration warmup = duration(options.getOrDefault("warmup", "10s"));
+        Duration measured = duration(options.getOrDefault("duration", "10s"));
+
+        List<String> lines = new ArrayList<>();
+        lines.add(String.format(Locale.ROOT, "%-12s %-7s %8s %10s %10s %8s %12s %10s",
+                "compression", "payload", "errors", "req/s", "KB/resp", "ratio", "cpu us/resp", "link ms"));
+        // One untimed pass, so the setting measured first does not also pay for compiling the server
+        try (ConfigurableApplicationContext context = start("6")) {
+            URI base = seed(context, rows);
+            for (String payload : payloads) {
+                run(request(base, payload), clients, Duration.ZERO, warmup);
+            }
+        }
+        Map<String, Double> plainBytes = new HashMap<>();
+        for (String compression : options.getOrDefault("compression", "off,1,6,9,huffman-only").split(",")) {
+            try (ConfigurableApplicationContext context = start(compression)) {
+                URI base = seed(context, rows);
+                for (String payload : payloads) {
+                    HttpRequest request = request(base, payload);
+                    check(request);
+                    Result result = run(request, clients, warmup, measured);
+                    double bytes = (double) result.bytes() / result.requests();
+                    if (compression.equals("off")) {
+                        plainBytes.put(payload, bytes);
+                    }
+                    String line = String.format(Locale.ROOT, "%-12s %-7s %8d %10.0f %10.1f %8.2f %12.1f %10.2f",
+                            compression, payload, result.errors(),
+                            result.requests() / (measured.toNanos() / 1e9),
+                            bytes / 1024, plainBytes.getOrDefault(payload, Double.NaN) / bytes,
+                            result.cpuNanos() / 1e3 / result.requests(),
+                            bytes * 8 / (linkMbps * 1e3));
+                    System.out.println(line);
+                    lines.add(line);
+                }
+            }
+        }
+        System.out.println();
+        lines.forEach(System.out::println);
+    }
+
+    private static URI seed(ConfigurableApplicationContext context, int rows) {
+        context.getBean(ExpenseRepository.class).saveAll(ExpenseDataset.generate(rows, 10, 42));
+        return URI.create("http://localhost:" + ((WebServerApplicationContext) context).getWebServer().getPort());
+    }
+
+    /** Settings are passed as arguments, since defaults would lose to application.properties. */
+    private static ConfigurableApplicationContext start(String compression) {
+        List<String> settings = new ArrayList<>(List.of(
+                "--server.port=0",
+                "--spring.main.banner-mode=off",
+                "--logging.level.root=WARN",
+                "--logging.level.com.expensetracker=WARN",
+                "--logging.level.org.springframework.web=WARN",
+                "--expense.persistence.enabled=false",
+                "--expense.compression.enabled=" + !compression.equals("off")));
+        if (compression.equals("huffman-only")) {
+            settings.add("--expense.compression.strategy=huffman-only");
+        } else if (!compression.equals("off")) {
+            settings.add("--expense.compression.level=" + compression);
+        }
+        return new SpringApplicationBuilder(ExpenseTrackerApplication.class).run(settings.toArray(String[]::new));
+    }
+
+    private static HttpRequest request(URI base, String payload) {
+        HttpRequest.Builder builder = payload.equals("all")
+                ? HttpRequest.newBuilder(base.resolve("/api/expenses")).header("Accept", "application/x-ndjson")
+                : HttpRequest.newBuilder(base.resolve("/api/expenses?size=" + payload));
+        return builder.header("Accept-Encoding", "gzip").timeout(Duration.ofSeconds(60)).GET().build();
+    }
+
+    /** Fails early if a compressed body does not decode. */
+    private static void check(HttpRequest request) throws IOException, InterruptedException {
+        HttpResponse<byte[]> response = HttpClient.newHttpClient().send(request, HttpResponse.BodyHandlers.ofByteArray());
+        if (response.statusCode() != 200) {
+            throw new IllegalStateException(request.uri() + " returned " + response.statusCode());
+        }
+        if (response.headers().firstValue("Content-Encoding").orElse("").equals("gzip")) {
+            try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(response.body()))) {
+                in.readAllBytes();
+            }
+        }
+    }
+
+    private static Result run(HttpRequest request, int clients, Duration warmup, Duration measured)
+            throws InterruptedException {
+        HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        long start = System.nanoTime();
+        long measureFrom = start + warmup.toNanos();
+        long measureUntil = measureFrom + measured.toNanos();
+        Counters counters = new Counters();
+        CountDownLatch done = new CountDownLatch(clients);
+        for (int i = 0; i < clients; i++) {
+            next(client, request, measureFrom, measureUntil, counters, done);
+        }
+        TimeUnit.NANOSECONDS.sleep(measureFrom - System.nanoTime());
+        long cpuFrom = serverCpuNanos();
+        TimeUnit.NANOSECONDS.sleep(measureUntil - System.nanoTime());
+        long cpu = serverCpuNanos() - cpuFrom;
+        if (!done.await(120, TimeUnit.SECONDS)) {
+            System.out.println("Some clients did not finish in time");
+        }
+        return new Result(counters.requests.get(), counters.errors.get(), counters.bytes.get(), cpu);
+    }
+
+    private static void next(HttpClient client, HttpRequest request, long measureFrom, long measureUntil,
+                             Counters counters, CountDownLatch done) {
+        long sent = System.nanoTime();
+        if (sent >= measureUntil) {
+            done.countDown();
+            return;
+        }
+        client.sendAsync(request, HttpResponse.BodyHandlers.ofByteArray())
+                .whenComplete((response, failure) -> {
+                    long received = System.nanoTime();
+                    if (sent >= measureFrom && received < measureUntil) {
+                        if (failure != null || response.statusCode() >= 400) {
+                            counters.errors.incrementAndGet();
+                        } else {
+                            counters.requests.incrementAndGet();
+                            counters.bytes.addAndGet(response.body().length);
+                        }
+                    }
+                    next(client, request, measureFrom, measureUntil, counters, done);
+                });
+    }
+
+    /** CPU time so far of Tomcat's request threads and the executor that writes streamed bodies. */
+    private static long serverCpuNanos() {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        long total = 0;
+        for (ThreadInfo thread : threads.getThreadInfo(threads.getAllThreadIds())) {
+            if (thread != null && (thread.getThreadName().startsWith("http-nio-") || thread.getThreadName().startsWith("task-"))) {
+                total += Math.max(0, threads.getThreadCpuTime(thread.getThreadId()));
+            }
+        }
+        return total;
+    }
+
+    private static Map<String, String> options(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                throw new IllegalArgumentException("Expected --name=value but got " + arg);
+            }
+            options.put(arg.substring(2, arg.indexOf('=')), arg.substring(arg.indexOf('=') + 1));
+        }
+        return options;
+    }
+
+    private static Duration duration(String value) {
+        return Duration.parse("PT" + value.toUpperCase(Locale.ROOT));
+    }
+
+    private record Result(long requests, long errors, long bytes, long cpuNanos) {
+    }
+
+    private static final class Counters {
+        final AtomicLong requests = new AtomicLong();
+        final AtomicLong errors = new AtomicLong();
+        final AtomicLong bytes = new AtomicLong();
+    }
+}
@@ -0,0 +1,197 @@
+package com.expensetracker.loadtest;
+
+import com.expensetracker.ExpenseTrackerApplication;
+import com.expensetracker.benchmark.ExpenseDataset;
+import com.expensetracker.repository.ExpenseRepository;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Closed-loop HTTP load test against the application started in this JVM, once with platform and
+ * once with virtual request threads. Each client sends its next request as soon as the previous one
+ * is answered, drawing from a dashboard-like mix of list, recent, summary and create calls. Clients
+ * are async {@link HttpClient} chains, so 10k of them need no threads on the driver side.
+ * <p>
+ * Options, all optional: {@code --clients=100,1000,10000 --threads=platform,virtual --rows=10000
+ * --warmup=15s --duration=30s}. Virtual threads need a Java 21 runtime and are skipped otherwise.
+ */
+public final class LoadTestDriver {
+
+    private static final String CREATE_BODY = """
+            {"description":"Load test","amount":12.34,"category":"Category 1","date":"%s"}""";
+
+    private LoadTestDriver() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = options(args);
+        int[] clients = Arrays.stream(options.getOrDefault("clients", "100,1000,10000").split(","))
+                .mapToInt(Integer::parseInt).toArray();
+        int rows = Integer.parseInt(options.getOrDefault("rows", "10000"));
+        Duration warmup = duration(options.getOrDefault("warmup", "15s"));
+        Duration measured = duration(options.getOrDefault("duration", "30s"));
+
+        List<String> lines = new ArrayList<>();
+        lines.add(String.format(Locale.ROOT, "%-8s %7s %10s %8s %10s %9s %9s %9s",
+                "threads", "clients", "requests", "errors", "req/s", "p50 ms", "p99 ms", "p999 ms"));
+        for (String threads : options.getOrDefault("threads", "platform,virtual").split(",")) {
+            boolean virtual = threads.equals("virtual");
+            if (virtual && Runtime.version().feature() < 21) {
+                System.out.println("Skipping virtual threads: they need Java 21, this is " + Runtime.version());
+                continue;
+            }
+            try (ConfigurableApplicationContext context = start(virtual)) {
+                context.getBean(ExpenseRepository.class).saveAll(ExpenseDataset.generate(rows, 10, 42));
+                int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+                for (int clientCount : clients) {
+                    Result result = run(URI.create("http://localhost:" + port), clientCount, warmup, measured);
+                    String line = String.format(Locale.ROOT, "%-8s %7d %10d %8d %10.0f %9.2f %9.2f %9.2f",
+                            threads, clientCount, result.requests(), result.errors(),
+                            result.requests() / (measured.toNanos() / 1e9),
+                            result.latencies().percentile(0.50), result.latencies().percentile(0.99),
+                            result.latencies().percentile(0.999));
+                    System.out.println(line);
+                    lines.add(line);
+                }
+            }
+        }
+        System.out.println();
+        lines.forEach(System.out::println);
+    }
+
+    private static ConfigurableApplicationContext start(boolean virtual) {
+        return new SpringApplicationBuilder(ExpenseTrackerApplication.class)
+                .properties("server.port=0",
+                        "spring.threads.virtual.enabled=" + virtual,
+                        "spring.main.banner-mode=off",
+                        "logging.level.root=WARN",
+                        "logging.level.com.expensetracker=WARN",
+                        // Every client holds a connection open, so accept all of them at once
+                        "server.tomcat.max-connections=20000",
+                        "server.tomcat.accept-count=10000",
+                        "expense.persistence.enabled=false")
+                .run();
+    }
+
+    private static Result run(URI base, int clients, Duration warmup, Duration measured) throws InterruptedException {
+        HttpClient client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(30))
+                .build();
+        long start = System.nanoTime();
+        long measureFrom = start + warmup.toNanos();
+        long measureUntil = measureFrom + measured.toNanos();
+        Latencies latencies = new Latencies();
+        AtomicLong errors = new AtomicLong();
+        CountDownLatch done = new CountDownLatch(clients);
+        for (int i = 0; i < clients; i++) {
+            next(client, base, measureFrom, measureUntil, latencies, errors, done);
+        }
+        if (!done.await(measured.plus(warmup).toSeconds() + 120, TimeUnit.SECONDS)) {
+            System.out.println("Some clients did not finish in time");
+        }
+        return new Result(latencies.count(), errors.get(), latencies);
+    }
+
+    private static void next(HttpClient client, URI base, long measureFrom, long measureUntil,
+                             Latencies latencies, AtomicLong errors, CountDownLatch done) {
+        long sent = System.nanoTime();
+        if (sent >= measureUntil) {
+            done.countDown();
+            return;
+        }
+        client.sendAsync(request(base), HttpResponse.BodyHandlers.discarding())
+                .whenComplete((response, failure) -> {
+                    long received = System.nanoTime();
+                    if (sent >= measureFrom && received < measureUntil) {
+                        if (failure != null || response.statusCode() >= 400) {
+                            errors.incrementAndGet();
+                        } else {
+                            latencies.record(received - sent);
+                        }
+                    }
+                    next(client, base, measureFrom, measureUntil, latencies, errors, done);
+                });
+    }
+
+    /** 40% list page, 20% recent, 25% summary, 15% create. */
+    private static HttpRequest request(URI base) {
+        int pick = ThreadLocalRandom.current().nextInt(100);
+        HttpRequest.Builder builder;
+        if (pick < 40) {
+            builder = HttpRequest.newBuilder(base.resolve("/api/expenses?size=100")).GET();
+        } else if (pick < 60) {
+            builder = HttpRequest.newBuilder(base.resolve("/api/expenses/recent?limit=50")).GET();
+        } else if (pick < 85) {
+            builder = HttpRequest.newBuilder(base.resolve("/api/expenses/summary")).GET();
+        } else {
+            builder = HttpRequest.newBuilder(base.resolve("/api/expenses"))
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString(String.format(CREATE_BODY, LocalDateTime.now())));
+        }
+        return builder.timeout(Duration.ofSeconds(60)).build();
+    }
+
+    private static Map<String, String> options(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                throw new IllegalArgumentException("Expected --name=value but got " + arg);
+            }
+            options.put(arg.substring(2, arg.indexOf('=')), arg.substring(arg.indexOf('=') + 1));
+        }
+        return options;
+    }
+
+    private static Duration duration(String value) {
+        return Duration.parse("PT" + value.toUpperCase(Locale.ROOT));
+    }
+
+    private record Result(long requests, long errors, Latencies latencies) {
+    }
+
+    /** Every measured latency, in nanoseconds; percentiles are read off the sorted samples. */
+    private static final class Latencies {
+        private long[] samples = new long[1 << 16];
+        private int count;
+
+        synchronized void record(long nanos) {
+            if (count == samples.length) {
+                samples = Arrays.copyOf(samples, count * 2);
+            }
+            samples[count++] = nanos;
+        }
+
+        synchronized long count() {
+            return count;
+        }
+
+        /** In milliseconds. */
+        synchronized double percentile(double quantile) {
+            if (count == 0) {
+                return Double.NaN;
+            }
+            long[] sorted = Arrays.copyOf(samples, count);
+            Arrays.sort(sorted);
+            return sorted[(int) Math.min(count - 1, Math.ceil(quantile * count) - 1)] / 1e6;
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package com.expensetracker.persistence;
+
+import com.expensetracker.benchmark.ExpenseDataset;
+import com.expensetracker.model.Expense;
+import com.expensetracker.repository.ExpenseRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Time to bring up a repository holding {@code rows} expenses: deserializing a JSON dump and
+ * saving every row, versus mapping a columnar snapshot and building the indexes from it.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class SnapshotStartupBenchmark {
+    @Param({"100000", "1000000"})
+    public int rows;
+
+    private Path directory;
+    private Path json;
+    private final ObjectMapper objectMapper = new ObjectMapper()
+            .registerModule(new JavaTimeModule())
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("snapshot-benchmark");
+        List<Expense> expenses = ExpenseDataset.generate(rows, 10, 42);
+        long id = 1;
+        for (Expense expense : expenses) {
+            expense.setId(id++);
+        }
+        json = directory.resolve("expenses.json");
+        objectMapper.writeValue(json.toFile(), expenses);
+        MappedSnapshot.write(directory.resolve("snapshot.dat"), 0, rows + 1L, expenses);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    @Benchmark
+    public ExpenseRepository jsonLoad() throws IOException {
+        ExpenseRepository repository = new ExpenseRepository();
+        try (InputStream in = Files.newInputStream(json)) {
+            for (Expense expense : objectMapper.readValue(in, Expense[].class)) {
+                repository.save(expense);
+            }
+        }
+        return repository;
+    }
+
+    @Benchmark
+    public ExpenseRepository mappedSnapshot() {
+        try (WalExpensePersistence persistence = new WalExpensePersistence(directory, DurabilityMode.ASYNC,
+                Duration.ZERO, Duration.ofSeconds(1))) {
+            return new ExpenseRepository(persistence);
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package com.expensetracker.persistence;
+
+import com.expensetracker.model.Expense;
+import com.expensetracker.repository.ExpenseRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Write throughput of the repository with each durability mode, plus the in-memory baseline.
+ * Run with {@code -Djmh.args="WalWriteBenchmark"}; vary {@code -t} to see group commit scale.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 3)
+@Fork(1)
+@Threads(16)
+public class WalWriteBenchmark {
+
+    @Param({"NONE", "FSYNC", "GROUP_COMMIT", "ASYNC"})
+    public String mode;
+
+    private Path directory;
+    private ExpensePersistence persistence;
+    private ExpenseRepository repository;
+
+    @Setup(Level.Iteration)
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("wal-benchmark");
+        persistence = mode.equals("NONE")
+                ? new NoOpExpensePersistence()
+                : new WalExpensePersistence(directory, DurabilityMode.valueOf(mode), Duration.ZERO, Duration.ofMillis(100));
+        repository = new ExpenseRepository(persistence);
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDown() throws IOException {
+        persistence.close();
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    @Benchmark
+    public Expense save() {
+        return repository.save(new Expense("Benchmark expense", new BigDecimal("42.50"), "Food",
+                LocalDateTime.of(2024, 3, 15, 12, 30)));
+    }
+}
@@ -0,0 +1,111 @@
+package com.expensetracker.repository;
+
+import com.expensetracker.benchmark.ExpenseDataset;
+import com.expensetracker.model.Expense;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Cost per row of keeping the running totals: a rebuild as on startup, a steady-state update
+ * (remove the old values, add the new ones) and, for reference, a plain {@code BigDecimal} sum.
+ * {@code parallelRebuild} sums the segments of a columnar store on one fork/join thread per processor,
+ * as the repository does on startup.
+ * Run with {@code -prof gc} to see the bytes allocated per row.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ExpenseAggregatesBenchmark {
+    private static final int ROWS = 100_000;
+
+    private List<Expense> expenses;
+    private ColumnarExpenseStore store;
+    private ExpenseAggregator aggregator;
+    private ExpenseAggregates aggregates;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        expenses = ExpenseDataset.generate(ROWS, 10, 42);
+        aggregates = new ExpenseAggregates();
+        for (Expense expense : expenses) {
+            aggregates.add(expense.getCategory(), expense.getDate(), expense.getAmount());
+        }
+        store = new ColumnarExpenseStore(ROWS);
+        for (int i = 0; i < ROWS; i++) {
+            Expense row = new Expense(expenses.get(i));
+            row.setId(i + 1L);
+            store.compute(row.getId(), (id, previous) -> row);
+        }
+        aggregator = new ExpenseAggregator(0, 0);
+    }
+
+    @TearDown
+    public void tearDown() {
+        aggregator.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public ExpenseAggregates rebuild() {
+        ExpenseAggregates rebuilt = new ExpenseAggregates();
+        for (Expense expense : expenses) {
+            rebuilt.add(expense.getCategory(), expense.getDate(), expense.getAmount());
+        }
+        return rebuilt;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public ExpenseAggregates parallelRebuild() {
+        List<Supplier<ExpenseAggregates>> parts = new ArrayList<>();
+        for (ExpenseStore.Segment segment : store.segments(aggregator.segments(ROWS))) {
+            parts.add(() -> {
+                ExpenseAggregates totals = new ExpenseAggregates();
+                segment.forEachIndexed((id, date, category, amount) -> totals.add(category, date, amount));
+                return totals;
+            });
+        }
+        return aggregator.aggregate(ROWS, parts);
+    }
+
+    @Benchmark
+    public ExpenseAggregates update() {
+        Expense before = expenses.get(next++ % ROWS);
+        Expense after = expenses.get(next % ROWS);
+        aggregates.remove(before.getCategory(), before.getDate(), before.getAmount());
+        aggregates.add(before.getCategory(), after.getDate(), after.getAmount());
+        aggregates.remove(before.getCategory(), after.getDate(), after.getAmount());
+        aggregates.add(before.getCategory(), before.getDate(), before.getAmount());
+        return aggregates;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public BigDecimal bigDecimalSum() {
+        BigDecimal sum = BigDecimal.ZERO;
+        for (Expense expense : expenses) {
+            sum = sum.add(expense.getAmount());
+        }
+        return sum;
+    }
+}
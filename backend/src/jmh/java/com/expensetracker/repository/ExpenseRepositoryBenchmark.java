@@ -0,0 +1,78 @@
+package com.expensetracker.repository;
+
+import com.expensetracker.benchmark.ExpenseDataset;
+import com.expensetracker.model.Expense;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Repository reads and writes against a pre-loaded dataset. {@code save} replaces a random
+ * existing row so the dataset size stays fixed across iterations.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class ExpenseRepositoryBenchmark {
+
+    @Param({"10000", "100000", "1000000"})
+    public int rows;
+
+    @Param({"10", "1000"})
+    public int categories;
+
+    private ExpenseRepository repository;
+
+    @Setup
+    public void setUp() {
+        repository = ExpenseDataset.repository(rows, categories, 42);
+    }
+
+    @Benchmark
+    public Expense save() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        Expense expense = new Expense("Updated", BigDecimal.valueOf(random.nextInt(100_000), 2),
+                ExpenseDataset.category(random.nextInt(categories)), randomDate(random));
+        expense.setId(1L + random.nextInt(rows));
+        return repository.save(expense);
+    }
+
+    @Benchmark
+    public List<Expense> findByDateBetween() {
+        LocalDateTime start = randomDate(ThreadLocalRandom.current());
+        return repository.findByDateBetween(start, start.plusDays(7));
+    }
+
+    @Benchmark
+    public List<Expense> findByMonth() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        return repository.findByMonth(ExpenseDataset.START.getYear() + random.nextInt(ExpenseDataset.YEARS),
+                1 + random.nextInt(12));
+    }
+
+    @Benchmark
+    public List<Expense> findRecentExpenses() {
+        return repository.findRecentExpenses(50);
+    }
+
+    private static LocalDateTime randomDate(ThreadLocalRandom random) {
+        return ExpenseDataset.START.plusDays(random.nextInt(ExpenseDataset.YEARS * 365));
+    }
+}
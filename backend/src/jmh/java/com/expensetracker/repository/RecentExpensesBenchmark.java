@@ -0,0 +1,77 @@
+package com.expensetracker.repository;
+
+import com.expensetracker.benchmark.ExpenseDataset;
+import com.expensetracker.model.Expense;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * The newest {@code limit} expenses read from the date index, against the old full sort and a
+ * bounded top-K heap over all rows. The 10M case needs a large heap; pass {@code -p rows=10000}
+ * for a quick run.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx16g")
+public class RecentExpensesBenchmark {
+    private static final Comparator<Expense> NEWEST_FIRST = Comparator.comparing(Expense::getDate).reversed();
+
+    @Param({"10000", "1000000", "10000000"})
+    public int rows;
+
+    @Param("50")
+    public int limit;
+
+    private ExpenseRepository repository;
+
+    @Setup
+    public void setUp() {
+        repository = ExpenseDataset.repository(rows, 10, 42);
+    }
+
+    @Benchmark
+    public List<Expense> dateIndex() {
+        return repository.findRecentExpenses(limit);
+    }
+
+    @Benchmark
+    public List<Expense> fullSort() {
+        return repository.findAll().stream()
+                .sorted(NEWEST_FIRST)
+                .limit(limit)
+                .collect(Collectors.toList());
+    }
+
+    @Benchmark
+    public List<Expense> topKHeap() {
+        PriorityQueue<Expense> heap = new PriorityQueue<>(limit + 1, NEWEST_FIRST.reversed());
+        for (Expense expense : repository.findAll()) {
+            heap.offer(expense);
+            if (heap.size() > limit) {
+                heap.poll();
+            }
+        }
+        List<Expense> result = new ArrayList<>(heap);
+        result.sort(NEWEST_FIRST);
+        return result;
+    }
+}
@@ -0,0 +1,54 @@
+package com.expensetracker.repository;
+
+import com.expensetracker.benchmark.ExpenseDataset;
+import com.expensetracker.model.Expense;
+import com.expensetracker.persistence.NoOpExpensePersistence;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parallel inserts of new rows into an empty repository, for comparing shard counts. Run it once per
+ * thread count, e.g. with {@code -t 1}, {@code -t 8} and {@code -t 32}; each iteration starts from an
+ * empty repository so that map growth is part of what is measured.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx8g")
+public class ShardedIngestBenchmark {
+
+    @Param({"1", "8", "32"})
+    public int shards;
+
+    private ExpenseRepository repository;
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        repository = new ExpenseRepository(new NoOpExpensePersistence(), ExpenseStorageEngine.HEAP,
+                ExpenseAggregator.SEQUENTIAL, new ExpenseSharding(shards));
+    }
+
+    @Benchmark
+    public Expense insert() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        return repository.save(new Expense("Inserted", BigDecimal.valueOf(random.nextInt(100_000), 2),
+                ExpenseDataset.category(random.nextInt(10)),
+                ExpenseDataset.START.plusDays(random.nextInt(ExpenseDataset.YEARS * 365))));
+    }
+}
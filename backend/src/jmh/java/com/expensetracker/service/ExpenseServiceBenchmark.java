@@ -0,0 +1,80 @@
+package com.expensetracker.service;
+
+import com.expensetracker.benchmark.ExpenseDataset;
+import com.expensetracker.dto.ExpensePage;
+import com.expensetracker.dto.ExpenseResponse;
+import com.expensetracker.dto.ExpenseSummary;
+import com.expensetracker.dto.PeriodAggregate;
+import com.expensetracker.repository.Granularity;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class ExpenseServiceBenchmark {
+
+    @Param({"10000", "100000", "1000000"})
+    public int rows;
+
+    @Param({"10", "1000"})
+    public int categories;
+
+    private ExpenseService service;
+
+    @Setup
+    public void setUp() {
+        service = new ExpenseService(ExpenseDataset.repository(rows, categories, 42));
+    }
+
+    @Benchmark
+    public ExpenseSummary getExpenseSummary() {
+        return service.getExpenseSummary();
+    }
+
+    @Benchmark
+    public Map<String, BigDecimal> getMonthlyTrend() {
+        return service.getMonthlyTrend(ExpenseDataset.START.getYear() + ExpenseDataset.YEARS / 2);
+    }
+
+    @Benchmark
+    public List<PeriodAggregate> getWeeklyAggregates() {
+        LocalDate from = ExpenseDataset.START.toLocalDate().plusYears(ExpenseDataset.YEARS / 2);
+        return service.getPeriodAggregates(Granularity.WEEK, from, from.plusYears(1), null);
+    }
+
+    @Benchmark
+    public List<ExpenseResponse> getExpensesSortedBy(SortOrder order) {
+        return service.getExpensesSortedBy(order.sortBy, true);
+    }
+
+    @Benchmark
+    public ExpensePage getExpensesSortedByPage(SortOrder order) {
+        return service.getExpensesSortedByPage(order.sortBy, false, null, 100);
+    }
+
+    /** Kept apart so that only the sorting benchmark is repeated per sort key. */
+    @State(Scope.Benchmark)
+    public static class SortOrder {
+        @Param({"date", "amount", "category"})
+        public String sortBy;
+    }
+}
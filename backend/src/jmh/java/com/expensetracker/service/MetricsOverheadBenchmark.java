@@ -0,0 +1,93 @@
+package com.expensetracker.service;
+
+import com.expensetracker.benchmark.ExpenseDataset;
+import com.expensetracker.dto.ExpensePage;
+import com.expensetracker.dto.ExpenseResponse;
+import com.expensetracker.repository.ExpenseRepository;
+import io.micrometer.core.aop.TimedAspect;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.config.MeterFilter;
+import io.micrometer.core.instrument.distribution.DistributionStatisticConfig;
+import io.micrometer.prometheus.PrometheusConfig;
+import io.micrometer.prometheus.PrometheusMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of the production instrumentation: the service behind the {@code @Timed} proxy recording into a
+ * Prometheus registry with latency histograms, and reporting scanned rows, against the bare service.
+ * Reading one row is the worst case, as the timer is then the largest share of the call.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class MetricsOverheadBenchmark {
+    private static final int ROWS = 100_000;
+
+    @Param({"false", "true"})
+    public boolean instrumented;
+
+    private ExpenseService service;
+    private long id;
+    private int year;
+
+    @Setup
+    public void setUp() {
+        ExpenseRepository repository = ExpenseDataset.repository(ROWS, 10, 42);
+        ExpenseQueryCache cache = new ExpenseQueryCache(0, Duration.ZERO);
+        if (!instrumented) {
+            service = new ExpenseService(repository, cache);
+        } else {
+            PrometheusMeterRegistry registry = new PrometheusMeterRegistry(PrometheusConfig.DEFAULT);
+            // As management.metrics.distribution.percentiles-histogram.expense.service=true does
+            registry.config().meterFilter(new MeterFilter() {
+                @Override
+                public DistributionStatisticConfig configure(Meter.Id meter, DistributionStatisticConfig config) {
+                    return meter.getName().startsWith("expense.service")
+                            ? DistributionStatisticConfig.builder().percentilesHistogram(true).build().merge(config)
+                            : config;
+                }
+            });
+            AspectJProxyFactory proxy = new AspectJProxyFactory(
+                    new ExpenseService(repository, cache, new ExpenseMetrics(registry, repository, cache)));
+            proxy.setProxyTargetClass(true);
+            proxy.addAspect(new TimedAspect(registry));
+            service = proxy.getProxy();
+        }
+        id = ROWS / 2;
+        year = ExpenseDataset.START.getYear() + ExpenseDataset.YEARS / 2;
+    }
+
+    @Benchmark
+    public ExpenseResponse getExpenseById() {
+        return service.getExpenseById(id);
+    }
+
+    @Benchmark
+    public ExpensePage getExpensesByMonthPage() {
+        return service.getExpensesByMonthPage(year, 6, null, 100);
+    }
+
+    @Benchmark
+    public Map<String, BigDecimal> getMonthlyTrend() {
+        return service.getMonthlyTrend(year);
+    }
+}
@@ -0,0 +1,477 @@
+package com.expensetracker.compression;
+
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpServletResponseWrapper;
+import org.springframework.http.HttpHeaders;
+
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Response whose body is gzipped on its way to the container's output stream when the client accepts
+ * gzip, the content type is compressible and the body turns out to be at least the minimum size. Until
+ * that is known, up to that many bytes are held back; from then on every write is deflated straight
+ * into the container's stream, so a body is never built in full first. A declared Content-Length
+ * decides at once, and is only passed on if the body is sent as is.
+ * <p>
+ * A streamed body is written on another thread than the dispatch that ends the response, and after
+ * an async timeout or error the two can overlap. The encoder therefore belongs to whichever thread is
+ * inside a body operation: ending the response while another thread holds it only marks the body
+ * abandoned, and that thread gives the encoder back once its write returns.
+ */
+final class CompressingResponse extends HttpServletResponseWrapper {
+
+    private enum State {
+        /** Holding back the start of the body until it reaches the minimum size. */
+        PENDING,
+        PLAIN,
+        GZIP,
+        FINISHED
+    }
+
+    private final ResponseCompressionFilter filter;
+    private final boolean acceptsGzip;
+    private final boolean head;
+    /** Guards the hand-over of the body, and so of the encoder, between threads. */
+    private final ReentrantLock handover = new ReentrantLock();
+
+    private Thread holder;
+    private boolean abandoned;
+    private State state = State.PENDING;
+    private long declaredLength = -1;
+    private GzipEncoder encoder;
+    private int pendingLength;
+    private ServletOutputStream out;
+    private Body body;
+    private PrintWriter writer;
+
+    CompressingResponse(HttpServletResponse response, ResponseCompressionFilter filter,
+                        boolean acceptsGzip, boolean head) {
+        super(response);
+        this.filter = filter;
+        this.acceptsGzip = acceptsGzip;
+        this.head = head;
+    }
+
+    @Override
+    public ServletOutputStream getOutputStream() {
+        if (writer != null) {
+            throw new IllegalStateException("getWriter() has already been called for this response");
+        }
+        if (body == null) {
+            body = new Body();
+        }
+        return body;
+    }
+
+    @Override
+    public PrintWriter getWriter() throws IOException {
+        if (writer == null) {
+            if (body != null) {
+                throw new IllegalStateException("getOutputStream() has already been called for this response");
+            }
+            body = new Body();
+            writer = new PrintWriter(new OutputStreamWriter(body, getCharacterEncoding()));
+        }
+        return writer;
+    }
+
+    @Override
+    public void setContentLength(int length) {
+        setContentLengthLong(length);
+    }
+
+    @Override
+    public void setContentLengthLong(long length) {
+        if (state == State.PENDING) {
+            declaredLength = length;
+        } else if (state == State.PLAIN) {
+            super.setContentLengthLong(length);
+        }
+    }
+
+    @Override
+    public void setHeader(String name, String value) {
+        if (!contentLength(name, value)) {
+            super.setHeader(name, value);
+        }
+    }
+
+    @Override
+    public void addHeader(String name, String value) {
+        if (!contentLength(name, value)) {
+            super.addHeader(name, value);
+        }
+    }
+
+    @Override
+    public void setIntHeader(String name, int value) {
+        if (!contentLength(name, Integer.toString(value))) {
+            super.setIntHeader(name, value);
+        }
+    }
+
+    @Override
+    public void addIntHeader(String name, int value) {
+        if (!contentLength(name, Integer.toString(value))) {
+            super.addIntHeader(name, value);
+        }
+    }
+
+    /** Holding back the start of the body would commit nothing yet, so flushing waits for the decision. */
+    @Override
+    public void flushBuffer() throws IOException {
+        if (writer != null) {
+            writer.flush();
+        }
+        if (body != null) {
+            body.flush();
+        }
+        if (state != State.PENDING) {
+            super.flushBuffer();
+        }
+    }
+
+    @Override
+    public void resetBuffer() {
+        super.resetBuffer();
+        pendingLength = 0;
+        if (state == State.GZIP) {
+            // The container dropped the gzip header along with everything after it
+            encoder.reset();
+            try {
+                encoder.start(out);
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+
+    @Override
+    public void reset() {
+        super.reset();
+        pendingLength = 0;
+        declaredLength = -1;
+        if (state != State.FINISHED) {
+            // Headers are gone too, so the body is decided afresh
+            releaseEncoder();
+            state = State.PENDING;
+        }
+    }
+
+    @Override
+    public void sendError(int status) throws IOException {
+        abandon();
+        super.sendError(status);
+    }
+
+    @Override
+    public void sendError(int status, String message) throws IOException {
+        abandon();
+        super.sendError(status, message);
+    }
+
+    @Override
+    public void sendRedirect(String location) throws IOException {
+        abandon();
+        super.sendRedirect(location);
+    }
+
+    /**
+     * Sends whatever is still held back and ends the gzip stream, if there is one. If another thread
+     * is still writing the body, this dispatch did not produce it, and the body is abandoned instead.
+     */
+    void finish() throws IOException {
+        if (!claimOrAbandon()) {
+            return;
+        }
+        try {
+            if (writer != null) {
+                writer.flush();
+            }
+            complete();
+        } finally {
+            unclaim();
+        }
+    }
+
+    /**
+     * Drops the body after a failure, giving back the encoder, or leaves that to the thread writing
+     * the body if there is one.
+     */
+    void abandon() {
+        if (claimOrAbandon()) {
+            drop();
+            unclaim();
+        }
+    }
+
+    /** Whether the body has been opened, by this dispatch or an earlier one. */
+    boolean isOpened() {
+        return body != null;
+    }
+
+    /**
+     * Takes the body for the current thread for one operation. Returns false if this thread already
+     * holds it, as when a flush of the writer comes back through the body.
+     */
+    private boolean claim() throws IOException {
+        handover.lock();
+        try {
+            if (holder == Thread.currentThread()) {
+                return false;
+            }
+            if (holder != null || abandoned) {
+                throw new IOException("The response body has been closed on another thread");
+            }
+            holder = Thread.currentThread();
+            return true;
+        } finally {
+            handover.unlock();
+        }
+    }
+
+    /**
+     * Takes the body for the current thread to end it, or if another thread is inside a body operation,
+     * marks the body abandoned for that thread to drop and returns false.
+     */
+    private boolean claimOrAbandon() {
+        handover.lock();
+        try {
+            if (holder != null && holder != Thread.currentThread()) {
+                abandoned = true;
+                return false;
+            }
+            holder = Thread.currentThread();
+            return true;
+        } finally {
+            handover.unlock();
+        }
+    }
+
+    private void unclaim() {
+        handover.lock();
+        try {
+            holder = null;
+            if (abandoned) {
+                drop();
+            }
+        } finally {
+            handover.unlock();
+        }
+    }
+
+    private void drop() {
+        pendingLength = 0;
+        state = State.FINISHED;
+        releaseEncoder();
+    }
+
+    private boolean contentLength(String name, String value) {
+        if (!HttpHeaders.CONTENT_LENGTH.equalsIgnoreCase(name) || value == null) {
+            return false;
+        }
+        setContentLengthLong(Long.parseLong(value));
+        return true;
+    }
+
+    private void write(byte[] bytes, int offset, int length) throws IOException {
+        switch (state) {
+            case PENDING -> {
+                if (encoder == null) {
+                    decide();
+                    if (state != State.PENDING) {
+                        write(bytes, offset, length);
+                        return;
+                    }
+                }
+                byte[] pending = encoder.pending();
+                if (pendingLength + length < pending.length) {
+                    System.arraycopy(bytes, offset, pending, pendingLength, length);
+                    pendingLength += length;
+                    return;
+                }
+                startGzip();
+                encoder.write(bytes, offset, length, out);
+            }
+            case PLAIN -> out.write(bytes, offset, length);
+            case GZIP -> encoder.write(bytes, offset, length, out);
+            case FINISHED -> throw new IOException("The response body has already been closed");
+        }
+    }
+
+    /**
+     * Settles what can be settled before the first byte: bodies that are never compressed go out as
+     * they are, and so does one declared smaller than the minimum. Otherwise an encoder is taken to
+     * hold back the start of the body.
+     */
+    private void decide() throws IOException {
+        String contentType = getContentType();
+        boolean compressible = contentType != null && filter.isCompressible(contentType);
+        if (compressible && !varies()) {
+            super.addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        }
+        int status = getStatus();
+        if (!compressible || !acceptsGzip || head || status == SC_NO_CONTENT || status == SC_NOT_MODIFIED
+                || getHeader(HttpHeaders.CONTENT_ENCODING) != null
+                || (declaredLength >= 0 && declaredLength < filter.getMinResponseSize())) {
+            startPlain();
+            return;
+        }
+        encoder = filter.acquire();
+        if (declaredLength >= 0) {
+            startGzip();
+        }
+    }
+
+    private boolean varies() {
+        for (String vary : getHeaders(HttpHeaders.VARY)) {
+            for (String name : vary.split(",")) {
+                if (name.trim().equalsIgnoreCase(HttpHeaders.ACCEPT_ENCODING) || name.trim().equals("*")) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private void startPlain() throws IOException {
+        state = State.PLAIN;
+        if (declaredLength >= 0) {
+            super.setContentLengthLong(declaredLength);
+        }
+        out = super.getOutputStream();
+        if (pendingLength > 0) {
+            out.write(encoder.pending(), 0, pendingLength);
+            pendingLength = 0;
+        }
+        releaseEncoder();
+    }
+
+    private void startGzip() throws IOException {
+        state = State.GZIP;
+        super.setHeader(HttpHeaders.CONTENT_ENCODING, "gzip");
+        // The bytes differ from the uncompressed body's, so the tag can no longer claim to be strong
+        String etag = getHeader(HttpHeaders.ETAG);
+        if (etag != null && !etag.startsWith("W/")) {
+            super.setHeader(HttpHeaders.ETAG, "W/" + etag);
+        }
+        out = super.getOutputStream();
+        encoder.start(out);
+        if (pendingLength > 0) {
+            encoder.write(encoder.pending(), 0, pendingLength, out);
+            pendingLength = 0;
+        }
+    }
+
+    private void flushBody() throws IOException {
+        if (state == State.PLAIN) {
+            out.flush();
+        } else if (state == State.GZIP) {
+            encoder.flush(out);
+            out.flush();
+        }
+    }
+
+    private void complete() throws IOException {
+        try {
+            if (state == State.PENDING && pendingLength > 0) {
+                // The whole body is in hand and too small to be worth compressing
+                declaredLength = pendingLength;
+                startPlain();
+            } else if (state == State.GZIP) {
+                encoder.finish(out);
+            }
+        } finally {
+            state = State.FINISHED;
+            releaseEncoder();
+        }
+    }
+
+    private void releaseEncoder() {
+        if (encoder != null) {
+            filter.release(encoder);
+            encoder = null;
+        }
+    }
+
+    private final class Body extends ServletOutputStream {
+        private final byte[] single = new byte[1];
+
+        @Override
+        public void write(int b) throws IOException {
+            single[0] = (byte) b;
+            write(single, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) throws IOException {
+            boolean claimed = claim();
+            try {
+                CompressingResponse.this.write(bytes, offset, length);
+            } finally {
+                if (claimed) {
+                    unclaim();
+                }
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            boolean claimed = claim();
+            try {
+                flushBody();
+            } finally {
+                if (claimed) {
+                    unclaim();
+                }
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            boolean claimed = claim();
+            try {
+                if (state != State.FINISHED) {
+                    complete();
+                    if (out != null) {
+                        out.close();
+                    }
+                }
+            } finally {
+                if (claimed) {
+                    unclaim();
+                }
+            }
+        }
+
+        @Override
+        public boolean isReady() {
+            return out == null || out.isReady();
+        }
+
+        /**
+         * Non-blocking writes go straight to the container's stream, whose readiness they have to
+         * follow, so a body that has not started yet is sent as is. Once it is gzipped, the encoder's
+         * buffered output could not honour that readiness, so the listener is refused.
+         */
+        @Override
+        public void setWriteListener(WriteListener listener) {
+            try {
+                if (state == State.PENDING) {
+                    startPlain();
+                }
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+            if (state != State.PLAIN) {
+                throw new IllegalStateException("Non-blocking writes are not supported on a gzipped body");
+            }
+            out.setWriteListener(listener);
+        }
+    }
+}
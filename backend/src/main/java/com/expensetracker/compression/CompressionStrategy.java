@@ -0,0 +1,22 @@
+package com.expensetracker.compression;
+
+import java.util.zip.Deflater;
+
+public enum CompressionStrategy {
+    /** Deflate's usual mix of string matching and Huffman coding. */
+    DEFAULT(Deflater.DEFAULT_STRATEGY),
+    /** Biased towards Huffman coding; for data made of small, mostly random values. */
+    FILTERED(Deflater.FILTERED),
+    /** Huffman coding only, without looking for repeated strings: much faster, and a larger output. */
+    HUFFMAN_ONLY(Deflater.HUFFMAN_ONLY);
+
+    private final int deflaterStrategy;
+
+    CompressionStrategy(int deflaterStrategy) {
+        this.deflaterStrategy = deflaterStrategy;
+    }
+
+    int getDeflaterStrategy() {
+        return deflaterStrategy;
+    }
+}
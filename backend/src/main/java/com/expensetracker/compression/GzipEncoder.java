@@ -0,0 +1,100 @@
+package com.expensetracker.compression;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Writes one gzip member (RFC 1952) to an output stream, from a raw {@link Deflater} plus the header
+ * and CRC-32 trailer around it. It owns the buffers a response needs: one that holds the start of the
+ * body until it is known to be worth compressing, and one that compressed bytes go through on their way
+ * to the stream. Input is handed to the deflater in the caller's array, never copied. Instances are
+ * reused across responses by {@link GzipEncoderPool}.
+ */
+final class GzipEncoder {
+    private static final byte[] HEADER = {
+            0x1f, (byte) 0x8b, // magic
+            Deflater.DEFLATED, // compression method
+            0,                 // flags
+            0, 0, 0, 0,        // modification time: unknown
+            0,                 // extra flags
+            (byte) 0xff        // operating system: unknown
+    };
+
+    private final Deflater deflater;
+    private final CRC32 crc = new CRC32();
+    private final byte[] pending;
+    private final byte[] output;
+
+    GzipEncoder(int level, CompressionStrategy strategy, int pendingSize, int bufferSize) {
+        deflater = new Deflater(level, true);
+        deflater.setStrategy(strategy.getDeflaterStrategy());
+        pending = new byte[pendingSize];
+        output = new byte[bufferSize];
+    }
+
+    /** Space for the start of a body that may yet be sent uncompressed. */
+    byte[] pending() {
+        return pending;
+    }
+
+    void start(OutputStream out) throws IOException {
+        out.write(HEADER);
+    }
+
+    void write(byte[] bytes, int offset, int length, OutputStream out) throws IOException {
+        if (length == 0) {
+            return;
+        }
+        crc.update(bytes, offset, length);
+        deflater.setInput(bytes, offset, length);
+        while (!deflater.needsInput()) {
+            drain(Deflater.NO_FLUSH, out);
+        }
+    }
+
+    /** Pushes out everything written so far, so a client can decode it without waiting for more. */
+    void flush(OutputStream out) throws IOException {
+        int length;
+        do {
+            length = drain(Deflater.SYNC_FLUSH, out);
+        } while (length == output.length);
+    }
+
+    void finish(OutputStream out) throws IOException {
+        deflater.finish();
+        while (!deflater.finished()) {
+            drain(Deflater.NO_FLUSH, out);
+        }
+        byte[] trailer = new byte[8];
+        writeInt(trailer, 0, (int) crc.getValue());
+        writeInt(trailer, 4, (int) deflater.getBytesRead());
+        out.write(trailer);
+    }
+
+    /** Readies the encoder for the next body. */
+    void reset() {
+        deflater.reset();
+        crc.reset();
+    }
+
+    void end() {
+        deflater.end();
+    }
+
+    private int drain(int flush, OutputStream out) throws IOException {
+        int length = deflater.deflate(output, 0, output.length, flush);
+        if (length > 0) {
+            out.write(output, 0, length);
+        }
+        return length;
+    }
+
+    private static void writeInt(byte[] bytes, int offset, int value) {
+        bytes[offset] = (byte) value;
+        bytes[offset + 1] = (byte) (value >>> 8);
+        bytes[offset + 2] = (byte) (value >>> 16);
+        bytes[offset + 3] = (byte) (value >>> 24);
+    }
+}
@@ -0,0 +1,48 @@
+package com.expensetracker.compression;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.zip.Deflater;
+
+/**
+ * Idle {@link GzipEncoder}s, so a response does not allocate a deflater's native state and its
+ * buffers each time. When the pool is empty a new encoder is made, and one released into a full pool
+ * is ended, so the pool never blocks and holds at most {@code size} idle encoders.
+ */
+final class GzipEncoderPool {
+    private final int level;
+    private final CompressionStrategy strategy;
+    private final int pendingSize;
+    private final int bufferSize;
+    private final BlockingQueue<GzipEncoder> idle;
+
+    GzipEncoderPool(int level, CompressionStrategy strategy, int pendingSize, int bufferSize, int size) {
+        if (level < Deflater.BEST_SPEED || level > Deflater.BEST_COMPRESSION) {
+            throw new IllegalArgumentException("Compression level must be between 1 and 9 but was " + level);
+        }
+        if (bufferSize <= 0 || size <= 0) {
+            throw new IllegalArgumentException("Buffer and pool sizes must be positive");
+        }
+        this.level = level;
+        this.strategy = strategy;
+        this.pendingSize = pendingSize;
+        this.bufferSize = bufferSize;
+        this.idle = new ArrayBlockingQueue<>(size);
+    }
+
+    GzipEncoder acquire() {
+        GzipEncoder encoder = idle.poll();
+        return encoder != null ? encoder : new GzipEncoder(level, strategy, pendingSize, bufferSize);
+    }
+
+    void release(GzipEncoder encoder) {
+        encoder.reset();
+        if (!idle.offer(encoder)) {
+            encoder.end();
+        }
+    }
+
+    int idleCount() {
+        return idle.size();
+    }
+}
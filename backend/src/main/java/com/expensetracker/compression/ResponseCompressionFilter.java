@@ -0,0 +1,152 @@
+package com.expensetracker.compression;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.util.InvalidMimeTypeException;
+import org.springframework.util.MimeType;
+import org.springframework.util.MimeTypeUtils;
+import org.springframework.web.context.request.async.WebAsyncUtils;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Gzips response bodies of the given content types for clients that send {@code Accept-Encoding: gzip},
+ * once a body reaches {@code minResponseSize} bytes. Compression happens as the body is written, with
+ * deflaters and buffers taken from a pool of {@code poolSize} idle encoders, so a large list or a
+ * stream costs one {@code bufferSize} buffer rather than a copy of the whole body. Compressed responses
+ * carry {@code Vary: Accept-Encoding} and a weak ETag.
+ * <p>
+ * Streaming bodies are written after the request thread has returned, so the filter also runs on
+ * async dispatches and ends the gzip stream on the last one. A dispatch that reports an async timeout
+ * or error for a body that was already being streamed abandons it instead: the body is incomplete,
+ * and ending the gzip stream would pass it off as whole.
+ */
+public class ResponseCompressionFilter extends OncePerRequestFilter {
+    private static final String RESPONSE_ATTRIBUTE = ResponseCompressionFilter.class.getName() + ".RESPONSE";
+
+    private final List<MimeType> mimeTypes;
+    private final int minResponseSize;
+    private final GzipEncoderPool pool;
+
+    public ResponseCompressionFilter(int level, CompressionStrategy strategy, int minResponseSize,
+                                     int bufferSize, int poolSize, Collection<String> mimeTypes) {
+        if (minResponseSize < 0) {
+            throw new IllegalArgumentException("Minimum response size must not be negative");
+        }
+        this.mimeTypes = mimeTypes.stream().map(MimeTypeUtils::parseMimeType).toList();
+        this.minResponseSize = minResponseSize;
+        this.pool = new GzipEncoderPool(level, strategy, minResponseSize, bufferSize, poolSize);
+    }
+
+    @Override
+    protected boolean shouldNotFilterAsyncDispatch() {
+        return false;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        CompressingResponse compressing = (CompressingResponse) request.getAttribute(RESPONSE_ATTRIBUTE);
+        // An async dispatch carries the response that async processing was started with, which wraps ours
+        HttpServletResponse downstream = response;
+        if (compressing == null) {
+            compressing = new CompressingResponse(response, this,
+                    acceptsGzip(request.getHeaders(HttpHeaders.ACCEPT_ENCODING)), "HEAD".equals(request.getMethod()));
+            request.setAttribute(RESPONSE_ATTRIBUTE, compressing);
+            downstream = compressing;
+        }
+        // Read before the chain, which clears the result once it has handled it
+        boolean streamFailed = isAsyncDispatch(request) && compressing.isOpened()
+                && WebAsyncUtils.getAsyncManager(request).getConcurrentResult() instanceof Throwable;
+        boolean completed = false;
+        try {
+            chain.doFilter(request, downstream);
+            completed = true;
+        } finally {
+            if (!request.isAsyncStarted()) {
+                if (completed && !streamFailed) {
+                    compressing.finish();
+                } else {
+                    compressing.abandon();
+                }
+            }
+        }
+    }
+
+    /** Whether {@code Accept-Encoding} allows gzip, by name or through {@code *}, with a non-zero quality. */
+    static boolean acceptsGzip(Enumeration<String> acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        boolean gzip = false;
+        boolean wildcard = false;
+        boolean named = false;
+        while (acceptEncoding.hasMoreElements()) {
+            for (String coding : acceptEncoding.nextElement().split(",")) {
+                String[] parts = coding.split(";");
+                String name = parts[0].trim().toLowerCase(Locale.ROOT);
+                boolean allowed = quality(parts) > 0;
+                if (name.equals("gzip") || name.equals("x-gzip")) {
+                    named = true;
+                    gzip = allowed;
+                } else if (name.equals("*")) {
+                    wildcard = allowed;
+                }
+            }
+        }
+        return named ? gzip : wildcard;
+    }
+
+    private static double quality(String[] parts) {
+        for (int i = 1; i < parts.length; i++) {
+            String parameter = parts[i].trim();
+            if (parameter.startsWith("q=")) {
+                try {
+                    return Double.parseDouble(parameter.substring(2));
+                } catch (NumberFormatException e) {
+                    return 0;
+                }
+            }
+        }
+        return 1;
+    }
+
+    boolean isCompressible(String contentType) {
+        MimeType type;
+        try {
+            type = MimeTypeUtils.parseMimeType(contentType);
+        } catch (InvalidMimeTypeException e) {
+            return false;
+        }
+        for (MimeType mimeType : mimeTypes) {
+            if (mimeType.includes(type)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    int getMinResponseSize() {
+        return minResponseSize;
+    }
+
+    GzipEncoder acquire() {
+        return pool.acquire();
+    }
+
+    void release(GzipEncoder encoder) {
+        pool.release(encoder);
+    }
+
+    GzipEncoderPool getPool() {
+        return pool;
+    }
+}
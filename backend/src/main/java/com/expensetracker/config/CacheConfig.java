@@ -0,0 +1,16 @@
+package com.expensetracker.config;
+
+import com.expensetracker.service.ExpenseQueryCache;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@EnableConfigurationProperties(CacheProperties.class)
+public class CacheConfig {
+
+    @Bean
+    public ExpenseQueryCache expenseQueryCache(CacheProperties properties) {
+        return new ExpenseQueryCache(properties.getMaxEntries(), properties.getTtl());
+    }
+}
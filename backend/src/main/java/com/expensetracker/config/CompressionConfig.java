@@ -0,0 +1,28 @@
+package com.expensetracker.config;
+
+import com.expensetracker.compression.ResponseCompressionFilter;
+import jakarta.servlet.DispatcherType;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+
+@Configuration
+@EnableConfigurationProperties(CompressionProperties.class)
+public class CompressionConfig {
+
+    /** Ahead of every filter that writes a body, and on async dispatches, where streamed bodies end. */
+    @Bean
+    public FilterRegistrationBean<ResponseCompressionFilter> responseCompressionFilter(CompressionProperties properties) {
+        FilterRegistrationBean<ResponseCompressionFilter> registration = new FilterRegistrationBean<>(
+                new ResponseCompressionFilter(properties.getLevel(), properties.getStrategy(),
+                        Math.toIntExact(properties.getMinResponseSize().toBytes()),
+                        Math.toIntExact(properties.getBufferSize().toBytes()),
+                        properties.getPoolSize(), properties.getMimeTypes()));
+        registration.setEnabled(properties.isEnabled());
+        registration.setDispatcherTypes(DispatcherType.REQUEST, DispatcherType.ASYNC);
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE + 10);
+        return registration;
+    }
+}
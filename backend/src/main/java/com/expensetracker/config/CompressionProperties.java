@@ -0,0 +1,77 @@
+package com.expensetracker.config;
+
+import com.expensetracker.compression.CompressionStrategy;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@ConfigurationProperties(prefix = "expense.compression")
+public class CompressionProperties {
+    private boolean enabled = true;
+    private int level = 1;
+    private CompressionStrategy strategy = CompressionStrategy.DEFAULT;
+    private DataSize minResponseSize = DataSize.ofKilobytes(2);
+    private DataSize bufferSize = DataSize.ofKilobytes(8);
+    private int poolSize = 2 * Runtime.getRuntime().availableProcessors();
+    private List<String> mimeTypes = new ArrayList<>(List.of(
+            "application/json", "application/*+json", "application/x-ndjson", "application/cbor",
+            "application/x-jackson-smile", "text/csv", "text/plain", "application/openmetrics-text"));
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public int getLevel() {
+        return level;
+    }
+
+    public void setLevel(int level) {
+        this.level = level;
+    }
+
+    public CompressionStrategy getStrategy() {
+        return strategy;
+    }
+
+    public void setStrategy(CompressionStrategy strategy) {
+        this.strategy = strategy;
+    }
+
+    public DataSize getMinResponseSize() {
+        return minResponseSize;
+    }
+
+    public void setMinResponseSize(DataSize minResponseSize) {
+        this.minResponseSize = minResponseSize;
+    }
+
+    public DataSize getBufferSize() {
+        return bufferSize;
+    }
+
+    public void setBufferSize(DataSize bufferSize) {
+        this.bufferSize = bufferSize;
+    }
+
+    public int getPoolSize() {
+        return poolSize;
+    }
+
+    public void setPoolSize(int poolSize) {
+        this.poolSize = poolSize;
+    }
+
+    public List<String> getMimeTypes() {
+        return mimeTypes;
+    }
+
+    public void setMimeTypes(List<String> mimeTypes) {
+        this.mimeTypes = mimeTypes;
+    }
+}
@@ -0,0 +1,22 @@
+package com.expensetracker.config;
+
+import com.expensetracker.importer.ExpenseImporter;
+import com.expensetracker.repository.ExpenseRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.validation.Validator;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@EnableConfigurationProperties(ImportProperties.class)
+public class ImportConfig {
+
+    @Bean
+    public ExpenseImporter expenseImporter(ExpenseRepository repository, ObjectMapper objectMapper,
+                                           Validator validator, ImportProperties properties) {
+        return new ExpenseImporter(repository, objectMapper, validator, properties.getChunkSize(),
+                properties.getParseThreads(), properties.getValidateThreads(), properties.getQueueCapacity(),
+                properties.getProgressInterval());
+    }
+}
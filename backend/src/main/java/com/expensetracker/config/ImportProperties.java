@@ -0,0 +1,63 @@
+package com.expensetracker.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@ConfigurationProperties(prefix = "expense.import")
+public class ImportProperties {
+    private int chunkSize = 1000;
+    private int parseThreads = Runtime.getRuntime().availableProcessors();
+    private int validateThreads = Runtime.getRuntime().availableProcessors();
+    private int queueCapacity = 4;
+    private String rejectDirectory = "imports";
+    private Duration progressInterval = Duration.ofSeconds(5);
+
+    public int getChunkSize() {
+        return chunkSize;
+    }
+
+    public void setChunkSize(int chunkSize) {
+        this.chunkSize = chunkSize;
+    }
+
+    public int getParseThreads() {
+        return parseThreads;
+    }
+
+    public void setParseThreads(int parseThreads) {
+        this.parseThreads = parseThreads;
+    }
+
+    public int getValidateThreads() {
+        return validateThreads;
+    }
+
+    public void setValidateThreads(int validateThreads) {
+        this.validateThreads = validateThreads;
+    }
+
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    public void setQueueCapacity(int queueCapacity) {
+        this.queueCapacity = queueCapacity;
+    }
+
+    public String getRejectDirectory() {
+        return rejectDirectory;
+    }
+
+    public void setRejectDirectory(String rejectDirectory) {
+        this.rejectDirectory = rejectDirectory;
+    }
+
+    public Duration getProgressInterval() {
+        return progressInterval;
+    }
+
+    public void setProgressInterval(Duration progressInterval) {
+        this.progressInterval = progressInterval;
+    }
+}
@@ -0,0 +1,25 @@
+package com.expensetracker.config;
+
+import com.expensetracker.repository.ExpenseRepository;
+import com.expensetracker.service.ExpenseMetrics;
+import com.expensetracker.service.ExpenseQueryCache;
+import io.micrometer.core.aop.TimedAspect;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class MetricsConfig {
+
+    /** Times every method of classes annotated with {@code @Timed}, such as the service. */
+    @Bean
+    public TimedAspect timedAspect(MeterRegistry registry) {
+        return new TimedAspect(registry);
+    }
+
+    @Bean
+    public ExpenseMetrics expenseMetrics(MeterRegistry registry, ExpenseRepository repository,
+                                         ExpenseQueryCache cache) {
+        return new ExpenseMetrics(registry, repository, cache);
+    }
+}
@@ -0,0 +1,24 @@
+package com.expensetracker.config;
+
+import com.expensetracker.persistence.ExpensePersistence;
+import com.expensetracker.persistence.NoOpExpensePersistence;
+import com.expensetracker.persistence.WalExpensePersistence;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.nio.file.Paths;
+
+@Configuration
+@EnableConfigurationProperties(PersistenceProperties.class)
+public class PersistenceConfig {
+
+    @Bean
+    public ExpensePersistence expensePersistence(PersistenceProperties properties) {
+        if (!properties.isEnabled()) {
+            return new NoOpExpensePersistence();
+        }
+        return new WalExpensePersistence(Paths.get(properties.getDirectory()), properties.getDurability(),
+                properties.getSnapshotInterval(), properties.getFlushInterval());
+    }
+}
@@ -0,0 +1,28 @@
+package com.expensetracker.config;
+
+import com.expensetracker.repository.ExpenseAggregator;
+import com.expensetracker.repository.ExpenseSharding;
+import com.expensetracker.repository.ExpenseStorageEngine;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@EnableConfigurationProperties(StorageProperties.class)
+public class StorageConfig {
+
+    @Bean
+    public ExpenseStorageEngine expenseStorageEngine(StorageProperties properties) {
+        return properties.getEngine();
+    }
+
+    @Bean(destroyMethod = "close")
+    public ExpenseAggregator expenseAggregator(StorageProperties properties) {
+        return new ExpenseAggregator(properties.getAggregationParallelism(), properties.getAggregationThreshold());
+    }
+
+    @Bean
+    public ExpenseSharding expenseSharding(StorageProperties properties) {
+        return new ExpenseSharding(properties.getShards());
+    }
+}
@@ -0,0 +1,45 @@
+package com.expensetracker.config;
+
+import com.expensetracker.repository.ExpenseAggregator;
+import com.expensetracker.repository.ExpenseStorageEngine;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@ConfigurationProperties(prefix = "expense.storage")
+public class StorageProperties {
+    private ExpenseStorageEngine engine = ExpenseStorageEngine.HEAP;
+    private int aggregationParallelism;
+    private int aggregationThreshold = ExpenseAggregator.DEFAULT_THRESHOLD;
+    private int shards = 1;
+
+    public ExpenseStorageEngine getEngine() {
+        return engine;
+    }
+
+    public void setEngine(ExpenseStorageEngine engine) {
+        this.engine = engine;
+    }
+
+    public int getAggregationParallelism() {
+        return aggregationParallelism;
+    }
+
+    public void setAggregationParallelism(int aggregationParallelism) {
+        this.aggregationParallelism = aggregationParallelism;
+    }
+
+    public int getAggregationThreshold() {
+        return aggregationThreshold;
+    }
+
+    public void setAggregationThreshold(int aggregationThreshold) {
+        this.aggregationThreshold = aggregationThreshold;
+    }
+
+    public int getShards() {
+        return shards;
+    }
+
+    public void setShards(int shards) {
+        this.shards = shards;
+    }
+}
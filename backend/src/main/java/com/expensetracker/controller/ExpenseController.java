@@ -1,31 +1,72 @@
 package com.expensetracker.controller;
 
+import com.expensetracker.dto.CacheStats;
+import com.expensetracker.dto.ExpenseBatchResult;
+import com.expensetracker.dto.ExpensePage;
 import com.expensetracker.dto.ExpenseRequest;
 import com.expensetracker.dto.ExpenseResponse;
 import com.expensetracker.dto.ExpenseSummary;
+import com.expensetracker.dto.ExpenseUpdateRequest;
+import com.expensetracker.dto.PeriodAggregate;
+import com.expensetracker.export.ExpenseExporter;
+import com.expensetracker.export.ExportFormat;
+import com.expensetracker.repository.ExpenseVersionConflictException;
+import com.expensetracker.repository.Granularity;
 import com.expensetracker.service.ExpenseService;
+import jakarta.validation.ConstraintViolation;
 import jakarta.validation.Valid;
+import jakarta.validation.Validator;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.math.BigDecimal;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.time.YearMonth;
 import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @RestController
 @RequestMapping("/api/expenses")
 @CrossOrigin(origins = "*")
 public class ExpenseController {
 
+    public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
+    private static final String NDJSON_VALUE = "application/x-ndjson";
+    private static final MediaType NDJSON = MediaType.parseMediaType(NDJSON_VALUE);
+    private static final MediaType CBOR = MediaType.parseMediaType("application/cbor");
+    private static final MediaType SMILE = MediaType.parseMediaType("application/x-jackson-smile");
+    private static final int DEFAULT_PAGE_SIZE = 100;
+    private static final int MAX_PAGE_SIZE = 1000;
+    private static final int MAX_BATCH_SIZE = 10_000;
+    private static final String NDJSON_TAG = "ndjson";
+
     private final ExpenseService expenseService;
+    // Versions restart with the process, so ETags carry its start time to never match an older one
+    private final String etagEpoch = Long.toString(System.currentTimeMillis(), 36);
+    private final ExpenseExporter exporter;
+    private final Validator validator;
 
     @Autowired
-    public ExpenseController(ExpenseService expenseService) {
+    public ExpenseController(ExpenseService expenseService, ExpenseExporter exporter, Validator validator) {
         this.expenseService = expenseService;
+        this.exporter = exporter;
+        this.validator = validator;
     }
 
     @PostMapping
@@ -34,12 +75,21 @@ public class ExpenseController {
         return ResponseEntity.status(HttpStatus.CREATED).body(response);
     }
 
+    /**
+     * With an {@code If-Match} ETag from {@code GET /{id}}, the update only applies if the expense has
+     * not changed since, and is answered with 409 otherwise.
+     */
     @PutMapping("/{id}")
     public ResponseEntity<ExpenseResponse> updateExpense(@PathVariable Long id, 
-                                                       @Valid @RequestBody ExpenseRequest request) {
+                                                       @Valid @RequestBody ExpenseRequest request,
+                                                       @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
         try {
-            ExpenseResponse response = expenseService.updateExpense(id, request);
-            return ResponseEntity.ok(response);
+            ExpenseResponse response = ifMatch == null || ifMatch.trim().equals("*")
+                    ? expenseService.updateExpense(id, request)
+                    : expenseService.updateExpense(id, request, expectedVersion(ifMatch));
+            return ResponseEntity.ok().eTag(etag(response.getVersion())).body(response);
+        } catch (ExpenseVersionConflictException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
         } catch (RuntimeException e) {
             return ResponseEntity.notFound().build();
         }
@@ -55,10 +105,29 @@ public class ExpenseController {
         }
     }
 
+    @PostMapping("/batch")
+    public ResponseEntity<List<ExpenseBatchResult>> createExpenses(@RequestBody List<ExpenseRequest> requests) {
+        return batch(requests, () -> expenseService.createExpenses(requests));
+    }
+
+    @PutMapping("/batch")
+    public ResponseEntity<List<ExpenseBatchResult>> updateExpenses(@RequestBody List<ExpenseUpdateRequest> requests) {
+        return batch(requests, () -> expenseService.updateExpenses(requests));
+    }
+
+    @DeleteMapping("/batch")
+    public ResponseEntity<List<ExpenseBatchResult>> deleteExpenses(@RequestBody List<Long> ids) {
+        return batch(ids, () -> expenseService.deleteExpenses(ids));
+    }
+
     @GetMapping("/{id}")
-    public ResponseEntity<ExpenseResponse> getExpenseById(@PathVariable Long id) {
+    public ResponseEntity<ExpenseResponse> getExpenseById(@PathVariable Long id, WebRequest request) {
         try {
             ExpenseResponse response = expenseService.getExpenseById(id);
+            // Tagged with the row's own version, which is what If-Match on PUT compares against
+            if (notModified(request, response.getVersion())) {
+                return null;
+            }
             return ResponseEntity.ok(response);
         } catch (RuntimeException e) {
             return ResponseEntity.notFound().build();
@@ -66,20 +135,66 @@ public class ExpenseController {
     }
 
     @GetMapping
-    public ResponseEntity<List<ExpenseResponse>> getAllExpenses() {
-        List<ExpenseResponse> expenses = expenseService.getAllExpenses();
-        return ResponseEntity.ok(expenses);
+    public ResponseEntity<List<ExpenseResponse>> getAllExpenses(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer size,
+            WebRequest request) {
+        if (notModified(request, expenseService.getDataVersion())) {
+            return null;
+        }
+        if (cursor == null && size == null) {
+            List<ExpenseResponse> expenses = expenseService.getAllExpenses();
+            return ResponseEntity.ok(expenses);
+        }
+        try {
+            return pageResponse(expenseService.getExpensesPage(cursor, pageSize(size)));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    @GetMapping(produces = NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamAllExpenses(WebRequest request) {
+        if (notModified(request, expenseService.getDataVersion(), NDJSON_TAG)) {
+            return null;
+        }
+        return ndjson(expenseService.streamAllExpenses());
     }
 
     @GetMapping("/date-range")
     public ResponseEntity<List<ExpenseResponse>> getExpensesByDateRange(
             @RequestParam String startDate, 
-            @RequestParam String endDate) {
+            @RequestParam String endDate,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer size,
+            WebRequest request) {
+        if (notModified(request, expenseService.getDataVersion())) {
+            return null;
+        }
         try {
             LocalDateTime start = LocalDateTime.parse(startDate);
             LocalDateTime end = LocalDateTime.parse(endDate);
+            if (cursor != null || size != null) {
+                return pageResponse(expenseService.getExpensesByDateRangePage(start, end, cursor, pageSize(size)));
+            }
             List<ExpenseResponse> expenses = expenseService.getExpensesByDateRange(start, end);
             return ResponseEntity.ok(expenses);
+        } catch (DateTimeParseException | IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    @GetMapping(value = "/date-range", produces = NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamExpensesByDateRange(
+            @RequestParam String startDate,
+            @RequestParam String endDate,
+            WebRequest request) {
+        if (notModified(request, expenseService.getDataVersion(), NDJSON_TAG)) {
+            return null;
+        }
+        try {
+            return ndjson(expenseService.streamExpensesByDateRange(
+                    LocalDateTime.parse(startDate), LocalDateTime.parse(endDate)));
         } catch (DateTimeParseException e) {
             return ResponseEntity.badRequest().build();
         }
@@ -88,8 +203,18 @@ public class ExpenseController {
     @GetMapping("/month/{year}/{month}")
     public ResponseEntity<List<ExpenseResponse>> getExpensesByMonth(
             @PathVariable int year, 
-            @PathVariable int month) {
+            @PathVariable int month,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer size,
+            WebRequest request) {
         try {
+            // Inside the try, since an invalid month already fails when its version is looked up
+            if (notModified(request, expenseService.getMonthVersion(year, month))) {
+                return null;
+            }
+            if (cursor != null || size != null) {
+                return pageResponse(expenseService.getExpensesByMonthPage(year, month, cursor, pageSize(size)));
+            }
             List<ExpenseResponse> expenses = expenseService.getExpensesByMonth(year, month);
             return ResponseEntity.ok(expenses);
         } catch (Exception e) {
@@ -97,9 +222,57 @@ public class ExpenseController {
         }
     }
 
+    @GetMapping(value = "/month/{year}/{month}", produces = NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamExpensesByMonth(
+            @PathVariable int year,
+            @PathVariable int month,
+            WebRequest request) {
+        try {
+            if (notModified(request, expenseService.getMonthVersion(year, month), NDJSON_TAG)) {
+                return null;
+            }
+            return ndjson(expenseService.streamExpensesByMonth(year, month));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    @GetMapping("/category/{name}")
+    public ResponseEntity<List<ExpenseResponse>> getExpensesInCategory(
+            @PathVariable String name,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer size,
+            WebRequest request) {
+        if (notModified(request, expenseService.getCategoryVersion(name))) {
+            return null;
+        }
+        try {
+            if (cursor != null || size != null) {
+                return pageResponse(expenseService.getExpensesInCategoryPage(name, cursor, pageSize(size)));
+            }
+            List<ExpenseResponse> expenses = expenseService.getExpensesInCategory(name);
+            return ResponseEntity.ok(expenses);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    @GetMapping(value = "/category/{name}", produces = NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamExpensesInCategory(@PathVariable String name,
+                                                                          WebRequest request) {
+        if (notModified(request, expenseService.getCategoryVersion(name), NDJSON_TAG)) {
+            return null;
+        }
+        return ndjson(expenseService.streamExpensesInCategory(name));
+    }
+
     @GetMapping("/recent")
     public ResponseEntity<List<ExpenseResponse>> getRecentExpenses(
-            @RequestParam(defaultValue = "50") int limit) {
+            @RequestParam(defaultValue = "50") int limit,
+            WebRequest request) {
+        if (notModified(request, expenseService.getDataVersion())) {
+            return null;
+        }
         try {
             List<ExpenseResponse> expenses = expenseService.getRecentExpenses(limit);
             return ResponseEntity.ok(expenses);
@@ -111,8 +284,17 @@ public class ExpenseController {
     @GetMapping("/sorted")
     public ResponseEntity<List<ExpenseResponse>> getSortedExpenses(
             @RequestParam(defaultValue = "date") String sortBy,
-            @RequestParam(defaultValue = "true") boolean ascending) {
+            @RequestParam(defaultValue = "true") boolean ascending,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer size,
+            WebRequest request) {
+        if (notModified(request, expenseService.getDataVersion())) {
+            return null;
+        }
         try {
+            if (cursor != null || size != null) {
+                return pageResponse(expenseService.getExpensesSortedByPage(sortBy, ascending, cursor, pageSize(size)));
+            }
             List<ExpenseResponse> expenses = expenseService.getExpensesSortedBy(sortBy, ascending);
             return ResponseEntity.ok(expenses);
         } catch (Exception e) {
@@ -120,8 +302,23 @@ public class ExpenseController {
         }
     }
 
+    @GetMapping(value = "/sorted", produces = NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamSortedExpenses(
+            @RequestParam(defaultValue = "date") String sortBy,
+            @RequestParam(defaultValue = "true") boolean ascending,
+            WebRequest request) {
+        if (notModified(request, expenseService.getDataVersion(), NDJSON_TAG)) {
+            return null;
+        }
+        return ndjson(expenseService.streamExpensesSortedBy(sortBy, ascending));
+    }
+
     @GetMapping("/summary")
-    public ResponseEntity<ExpenseSummary> getExpenseSummary() {
+    public ResponseEntity<ExpenseSummary> getExpenseSummary(WebRequest request) {
+        // The monthly and yearly figures are for the current month, so a new month is a new version
+        if (notModified(request, expenseService.getDataVersion(), YearMonth.now())) {
+            return null;
+        }
         try {
             ExpenseSummary summary = expenseService.getExpenseSummary();
             return ResponseEntity.ok(summary);
@@ -131,7 +328,10 @@ public class ExpenseController {
     }
 
     @GetMapping("/by-category")
-    public ResponseEntity<Map<String, BigDecimal>> getExpensesByCategory() {
+    public ResponseEntity<Map<String, BigDecimal>> getExpensesByCategory(WebRequest request) {
+        if (notModified(request, expenseService.getDataVersion())) {
+            return null;
+        }
         try {
             Map<String, BigDecimal> expensesByCategory = expenseService.getExpensesByCategory();
             return ResponseEntity.ok(expensesByCategory);
@@ -141,7 +341,10 @@ public class ExpenseController {
     }
 
     @GetMapping("/trend/{year}")
-    public ResponseEntity<Map<String, BigDecimal>> getMonthlyTrend(@PathVariable int year) {
+    public ResponseEntity<Map<String, BigDecimal>> getMonthlyTrend(@PathVariable int year, WebRequest request) {
+        if (notModified(request, expenseService.getYearVersion(year))) {
+            return null;
+        }
         try {
             Map<String, BigDecimal> trend = expenseService.getMonthlyTrend(year);
             return ResponseEntity.ok(trend);
@@ -149,4 +352,168 @@ public class ExpenseController {
             return ResponseEntity.badRequest().build();
         }
     }
+
+    @GetMapping("/cache/stats")
+    public ResponseEntity<CacheStats> getCacheStats() {
+        return ResponseEntity.ok(expenseService.getCacheStats());
+    }
+
+    @GetMapping("/aggregate")
+    public ResponseEntity<List<PeriodAggregate>> getPeriodAggregates(
+            @RequestParam String granularity,
+            @RequestParam String from,
+            @RequestParam String to,
+            @RequestParam(required = false) String category,
+            WebRequest request) {
+        long version = category != null ? expenseService.getCategoryVersion(category) : expenseService.getDataVersion();
+        if (notModified(request, version)) {
+            return null;
+        }
+        try {
+            Granularity parsed = Granularity.valueOf(granularity.toUpperCase(Locale.ROOT));
+            return ResponseEntity.ok(expenseService.getPeriodAggregates(
+                    parsed, LocalDate.parse(from), LocalDate.parse(to), category));
+        } catch (DateTimeParseException | IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    /**
+     * Applies a batch once every item is valid. A batch over the size limit is refused as a whole
+     * with 413, before any item is looked at; otherwise any invalid item fails it with 400.
+     */
+    private ResponseEntity<List<ExpenseBatchResult>> batch(List<?> items, Supplier<List<ExpenseBatchResult>> apply) {
+        if (items.size() > MAX_BATCH_SIZE) {
+            return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE).build();
+        }
+        List<ExpenseBatchResult> invalid = validateBatch(items);
+        if (!invalid.isEmpty()) {
+            return ResponseEntity.badRequest().body(invalid);
+        }
+        return ResponseEntity.ok(apply.get());
+    }
+
+    /**
+     * Checks every item up front so that a batch is either applied whole or rejected with the
+     * errors of each offending item.
+     */
+    private List<ExpenseBatchResult> validateBatch(List<?> items) {
+        List<ExpenseBatchResult> invalid = new ArrayList<>();
+        for (int i = 0; i < items.size(); i++) {
+            Object item = items.get(i);
+            List<String> errors = item == null
+                    ? List.of("Item is required")
+                    : validator.validate(item).stream()
+                            .map(ConstraintViolation::getMessage)
+                            .sorted()
+                            .collect(Collectors.toList());
+            if (!errors.isEmpty()) {
+                invalid.add(ExpenseBatchResult.invalid(i, errors));
+            }
+        }
+        return invalid;
+    }
+
+    private static int pageSize(Integer size) {
+        int pageSize = size != null ? size : DEFAULT_PAGE_SIZE;
+        if (pageSize < 1 || pageSize > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("Page size must be between 1 and " + MAX_PAGE_SIZE);
+        }
+        return pageSize;
+    }
+
+    /**
+     * Tags the response with the version of the data it is read from. When the client already holds
+     * that version the response becomes a 304 and the caller returns {@code null} without computing
+     * or serializing a body.
+     */
+    private boolean notModified(WebRequest request, Object... version) {
+        String format = binaryFormat(request);
+        if (format != null) {
+            version = Arrays.copyOf(version, version.length + 1);
+            version[version.length - 1] = format;
+        }
+        return request.checkNotModified(etag(version));
+    }
+
+    /**
+     * "cbor" or "smile" when the Accept header will get the body in that format rather than JSON.
+     * A JSON and a binary body must not share an ETag, so the format becomes part of the tag.
+     */
+    private static String binaryFormat(WebRequest request) {
+        String accept = request.getHeader(HttpHeaders.ACCEPT);
+        if (accept == null || (!accept.contains("cbor") && !accept.contains("smile"))) {
+            return null;
+        }
+        MediaType best = null;
+        try {
+            for (MediaType type : MediaType.parseMediaTypes(accept)) {
+                if (!type.isCompatibleWith(MediaType.APPLICATION_JSON) && !type.isCompatibleWith(CBOR)
+                        && !type.isCompatibleWith(SMILE)) {
+                    continue;
+                }
+                // Higher quality wins, then a concrete type over a wildcard, then the earlier one
+                if (best == null || type.getQualityValue() > best.getQualityValue()
+                        || (type.getQualityValue() == best.getQualityValue()
+                            && isWildcard(best) && !isWildcard(type))) {
+                    best = type;
+                }
+            }
+        } catch (InvalidMediaTypeException e) {
+            return null;
+        }
+        if (best == null || isWildcard(best)) {
+            return null;
+        }
+        return best.equalsTypeAndSubtype(CBOR) ? "cbor" : best.equalsTypeAndSubtype(SMILE) ? "smile" : null;
+    }
+
+    private static boolean isWildcard(MediaType type) {
+        return type.isWildcardType() || type.isWildcardSubtype();
+    }
+
+    private String etag(Object... version) {
+        StringBuilder etag = new StringBuilder("\"").append(etagEpoch);
+        for (Object part : version) {
+            etag.append('-').append(part);
+        }
+        return etag.append('"').toString();
+    }
+
+    /**
+     * The row version in an {@code If-Match} header. A tag from before a restart or of another
+     * resource yields -1, which no row has, so the update is rejected as a conflict.
+     */
+    private long expectedVersion(String ifMatch) {
+        String prefix = "\"" + etagEpoch + "-";
+        for (String tag : ifMatch.split(",")) {
+            tag = tag.trim();
+            if (tag.startsWith("W/")) {
+                tag = tag.substring(2);
+            }
+            if (tag.startsWith(prefix) && tag.endsWith("\"") && tag.length() > prefix.length() + 1) {
+                // A tag read in a binary format ends in "-cbor" or "-smile" after the version
+                int end = tag.indexOf('-', prefix.length());
+                try {
+                    return Long.parseLong(tag.substring(prefix.length(), end > 0 ? end : tag.length() - 1));
+                } catch (NumberFormatException e) {
+                    // Not one of ours; try the next tag
+                }
+            }
+        }
+        return -1;
+    }
+
+    private static ResponseEntity<List<ExpenseResponse>> pageResponse(ExpensePage page) {
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (page.getNextCursor() != null) {
+            response.header(NEXT_CURSOR_HEADER, page.getNextCursor());
+        }
+        return response.body(page.getItems());
+    }
+
+    private ResponseEntity<StreamingResponseBody> ndjson(Stream<ExpenseResponse> rows) {
+        StreamingResponseBody body = outputStream -> exporter.export(rows, ExportFormat.NDJSON, false, outputStream);
+        return ResponseEntity.ok().contentType(NDJSON).body(body);
+    }
 }
@@ -0,0 +1,70 @@
+package com.expensetracker.controller;
+
+import com.expensetracker.export.ExpenseExporter;
+import com.expensetracker.export.ExportFormat;
+import com.expensetracker.service.ExpenseService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.format.DateTimeParseException;
+
+@RestController
+@RequestMapping("/api/expenses")
+@CrossOrigin(origins = "*")
+public class ExpenseExportController {
+
+    private final ExpenseService expenseService;
+    private final ExpenseExporter exporter;
+
+    @Autowired
+    public ExpenseExportController(ExpenseService expenseService, ExpenseExporter exporter) {
+        this.expenseService = expenseService;
+        this.exporter = exporter;
+    }
+
+    /**
+     * Exports expenses dated from {@code from} through {@code to}, both inclusive, in date order.
+     * Both bounds take a date or a date-time and may be left out; a date {@code to} covers that whole day.
+     */
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportExpenses(
+            @RequestParam(defaultValue = "csv") String format,
+            @RequestParam(required = false) String from,
+            @RequestParam(required = false) String to,
+            @RequestParam(defaultValue = "false") boolean gzip) {
+        ExportFormat exportFormat;
+        LocalDateTime start;
+        LocalDateTime end;
+        try {
+            exportFormat = ExportFormat.parse(format);
+            start = bound(from, LocalTime.MIN);
+            end = bound(to, LocalTime.MAX);
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        String fileName = "expenses." + exportFormat.getExtension() + (gzip ? ".gz" : "");
+        StreamingResponseBody body = outputStream -> exporter.export(
+                expenseService.streamExpensesForExport(start, end), exportFormat, gzip, outputStream);
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(gzip ? "application/gzip" : exportFormat.getMediaType()))
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment().filename(fileName).build().toString())
+                .body(body);
+    }
+
+    /** A date-time as given, or a date at {@code timeOfDay}. */
+    private static LocalDateTime bound(String value, LocalTime timeOfDay) {
+        if (value == null) {
+            return null;
+        }
+        return value.length() == 10 ? LocalDate.parse(value).atTime(timeOfDay) : LocalDateTime.parse(value);
+    }
+}
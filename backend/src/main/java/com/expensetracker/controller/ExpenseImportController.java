@@ -0,0 +1,56 @@
+package com.expensetracker.controller;
+
+import com.expensetracker.config.ImportProperties;
+import com.expensetracker.dto.ImportReport;
+import com.expensetracker.importer.ExpenseImporter;
+import com.expensetracker.importer.ImportFormat;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.atomic.AtomicLong;
+
+@RestController
+@RequestMapping("/api/expenses")
+@CrossOrigin(origins = "*")
+public class ExpenseImportController {
+
+    private static final MediaType CSV = MediaType.parseMediaType(ImportFormat.CSV.getMediaType());
+    private static final DateTimeFormatter REJECT_FILE_TIME = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+
+    private final ExpenseImporter importer;
+    private final Path rejectDirectory;
+    private final AtomicLong importCount = new AtomicLong();
+
+    @Autowired
+    public ExpenseImportController(ExpenseImporter importer, ImportProperties properties) {
+        this.importer = importer;
+        this.rejectDirectory = Paths.get(properties.getRejectDirectory());
+    }
+
+    /** Streams the request body through the import pipeline; the body is never held in memory. */
+    @PostMapping(value = "/import", consumes = {"text/csv", "application/x-ndjson"})
+    public ResponseEntity<ImportReport> importExpenses(@RequestHeader(HttpHeaders.CONTENT_TYPE) String contentType,
+                                                       InputStream body) {
+        ImportFormat format = CSV.isCompatibleWith(MediaType.parseMediaType(contentType))
+                ? ImportFormat.CSV
+                : ImportFormat.NDJSON;
+        Path rejectFile = rejectDirectory.resolve(String.format("rejects-%s-%d.csv",
+                LocalDateTime.now().format(REJECT_FILE_TIME), importCount.incrementAndGet()));
+        try {
+            return ResponseEntity.ok(importer.importFrom(body, format, rejectFile));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        } catch (IOException e) {
+            return ResponseEntity.internalServerError().build();
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package com.expensetracker.dto;
+
+import java.util.List;
+
+/**
+ * Outcome of one item of a batch request; {@code index} is its position in the request body.
+ */
+public class ExpenseBatchResult {
+
+    public enum Status {
+        CREATED, UPDATED, DELETED, NOT_FOUND, INVALID
+    }
+
+    private int index;
+    private Long id;
+    private Status status;
+    private ExpenseResponse expense;
+    private List<String> errors;
+
+    public ExpenseBatchResult() {}
+
+    public ExpenseBatchResult(int index, Long id, Status status, ExpenseResponse expense, List<String> errors) {
+        this.index = index;
+        this.id = id;
+        this.status = status;
+        this.expense = expense;
+        this.errors = errors;
+    }
+
+    public static ExpenseBatchResult of(int index, Status status, ExpenseResponse expense) {
+        return new ExpenseBatchResult(index, expense.getId(), status, expense, null);
+    }
+
+    public static ExpenseBatchResult of(int index, Long id, Status status) {
+        return new ExpenseBatchResult(index, id, status, null, null);
+    }
+
+    public static ExpenseBatchResult invalid(int index, List<String> errors) {
+        return new ExpenseBatchResult(index, null, Status.INVALID, null, errors);
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    public void setIndex(int index) {
+        this.index = index;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public void setStatus(Status status) {
+        this.status = status;
+    }
+
+    public ExpenseResponse getExpense() {
+        return expense;
+    }
+
+    public void setExpense(ExpenseResponse expense) {
+        this.expense = expense;
+    }
+
+    public List<String> getErrors() {
+        return errors;
+    }
+
+    public void setErrors(List<String> errors) {
+        this.errors = errors;
+    }
+}
@@ -0,0 +1,21 @@
+package com.expensetracker.dto;
+
+import java.util.List;
+
+public class ExpensePage {
+    private final List<ExpenseResponse> items;
+    private final String nextCursor;
+
+    public ExpensePage(List<ExpenseResponse> items, String nextCursor) {
+        this.items = items;
+        this.nextCursor = nextCursor;
+    }
+
+    public List<ExpenseResponse> getItems() {
+        return items;
+    }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+}
@@ -1,6 +1,7 @@
 package com.expensetracker.dto;
 
 import com.expensetracker.model.Expense;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 
@@ -12,6 +13,9 @@ public class ExpenseResponse {
     private LocalDateTime date;
     private LocalDateTime createdAt;
     private LocalDateTime updatedAt;
+    // Sent as the ETag, not in the body
+    @JsonIgnore
+    private long version;
 
     public ExpenseResponse() {}
 
@@ -23,6 +27,7 @@ public class ExpenseResponse {
         this.date = expense.getDate();
         this.createdAt = expense.getCreatedAt();
         this.updatedAt = expense.getUpdatedAt();
+        this.version = expense.getVersion();
     }
 
     public Long getId() {
@@ -80,4 +85,12 @@ public class ExpenseResponse {
     public void setUpdatedAt(LocalDateTime updatedAt) {
         this.updatedAt = updatedAt;
     }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public void setVersion(long version) {
+        this.version = version;
+    }
 }
@@ -0,0 +1,138 @@
+package com.expensetracker.dto;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+import org.springframework.boot.jackson.JsonComponent;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Writes an {@link ExpenseResponse} field by field, with no bean introspection, producing the same
+ * bytes as Jackson's bean serializer with dates as ISO strings: the fields in declaration order,
+ * nulls written out and {@code version} left out. Dates are formatted by hand like
+ * {@link DateTimeFormatter#ISO_LOCAL_DATE_TIME}, and the text of recently written dates is kept, as
+ * the same date often comes back within a row or across neighbouring rows. When the mapper writes
+ * dates as timestamps they are handed to its own date serializer instead.
+ * <p>
+ * As a {@link JsonComponent} it replaces the bean serializer in the application's ObjectMapper, so
+ * lists, NDJSON streams and exports all go through it.
+ */
+@JsonComponent
+public class ExpenseResponseSerializer extends StdSerializer<ExpenseResponse> {
+    private static final long serialVersionUID = 1L;
+
+    private static final SerializedString ID = new SerializedString("id");
+    private static final SerializedString DESCRIPTION = new SerializedString("description");
+    private static final SerializedString AMOUNT = new SerializedString("amount");
+    private static final SerializedString CATEGORY = new SerializedString("category");
+    private static final SerializedString DATE = new SerializedString("date");
+    private static final SerializedString CREATED_AT = new SerializedString("createdAt");
+    private static final SerializedString UPDATED_AT = new SerializedString("updatedAt");
+
+    // Direct-mapped; entries are immutable, so racing threads at worst format a date twice
+    private static final int CACHE_SIZE = 1024;
+    private final FormattedDate[] formatted = new FormattedDate[CACHE_SIZE];
+
+    public ExpenseResponseSerializer() {
+        super(ExpenseResponse.class);
+    }
+
+    @Override
+    public void serialize(ExpenseResponse expense, JsonGenerator generator, SerializerProvider provider)
+            throws IOException {
+        boolean timestamps = provider.isEnabled(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        generator.writeStartObject(expense);
+        generator.writeFieldName(ID);
+        if (expense.getId() != null) {
+            generator.writeNumber(expense.getId());
+        } else {
+            generator.writeNull();
+        }
+        generator.writeFieldName(DESCRIPTION);
+        generator.writeString(expense.getDescription());
+        generator.writeFieldName(AMOUNT);
+        generator.writeNumber(expense.getAmount());
+        generator.writeFieldName(CATEGORY);
+        generator.writeString(expense.getCategory());
+        writeDate(DATE, expense.getDate(), timestamps, generator, provider);
+        writeDate(CREATED_AT, expense.getCreatedAt(), timestamps, generator, provider);
+        writeDate(UPDATED_AT, expense.getUpdatedAt(), timestamps, generator, provider);
+        generator.writeEndObject();
+    }
+
+    private void writeDate(SerializedString name, LocalDateTime date, boolean timestamps,
+                           JsonGenerator generator, SerializerProvider provider) throws IOException {
+        if (timestamps) {
+            provider.defaultSerializeField(name.getValue(), date, generator);
+            return;
+        }
+        generator.writeFieldName(name);
+        if (date == null) {
+            generator.writeNull();
+            return;
+        }
+        char[] text = format(date);
+        generator.writeString(text, 0, text.length);
+    }
+
+    private char[] format(LocalDateTime date) {
+        int hash = date.hashCode();
+        int slot = (hash ^ (hash >>> 16)) & (CACHE_SIZE - 1);
+        FormattedDate cached = formatted[slot];
+        if (cached != null && cached.date().equals(date)) {
+            return cached.text();
+        }
+        char[] text = isoLocalDateTime(date);
+        formatted[slot] = new FormattedDate(date, text);
+        return text;
+    }
+
+    /** Same text as {@link DateTimeFormatter#ISO_LOCAL_DATE_TIME}: seconds always, fraction without trailing zeros. */
+    static char[] isoLocalDateTime(LocalDateTime date) {
+        int year = date.getYear();
+        if (year < 0 || year > 9999) {
+            return DateTimeFormatter.ISO_LOCAL_DATE_TIME.format(date).toCharArray();
+        }
+        int nano = date.getNano();
+        int fraction = 0;
+        if (nano != 0) {
+            fraction = 9;
+            while (nano % 10 == 0) {
+                nano /= 10;
+                fraction--;
+            }
+        }
+        char[] text = new char[fraction == 0 ? 19 : 20 + fraction];
+        digits(text, 0, year, 4);
+        text[4] = '-';
+        digits(text, 5, date.getMonthValue(), 2);
+        text[7] = '-';
+        digits(text, 8, date.getDayOfMonth(), 2);
+        text[10] = 'T';
+        digits(text, 11, date.getHour(), 2);
+        text[13] = ':';
+        digits(text, 14, date.getMinute(), 2);
+        text[16] = ':';
+        digits(text, 17, date.getSecond(), 2);
+        if (fraction != 0) {
+            text[19] = '.';
+            digits(text, 20, nano, fraction);
+        }
+        return text;
+    }
+
+    private static void digits(char[] text, int offset, int value, int width) {
+        for (int i = offset + width - 1; i >= offset; i--) {
+            text[i] = (char) ('0' + value % 10);
+            value /= 10;
+        }
+    }
+
+    private record FormattedDate(LocalDateTime date, char[] text) {
+    }
+}
@@ -0,0 +1,26 @@
+package com.expensetracker.dto;
+
+import jakarta.validation.constraints.NotNull;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+public class ExpenseUpdateRequest extends ExpenseRequest {
+
+    @NotNull(message = "Id is required")
+    private Long id;
+
+    public ExpenseUpdateRequest() {}
+
+    public ExpenseUpdateRequest(Long id, String description, BigDecimal amount, String category, LocalDateTime date) {
+        super(description, amount, category, date);
+        this.id = id;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+}
@@ -0,0 +1,42 @@
+package com.expensetracker.dto;
+
+public class ImportReport {
+    private final long rowsRead;
+    private final long imported;
+    private final long rejected;
+    private final long elapsedMillis;
+    private final String rejectFile;
+
+    public ImportReport(long rowsRead, long imported, long rejected, long elapsedMillis, String rejectFile) {
+        this.rowsRead = rowsRead;
+        this.imported = imported;
+        this.rejected = rejected;
+        this.elapsedMillis = elapsedMillis;
+        this.rejectFile = rejectFile;
+    }
+
+    public long getRowsRead() {
+        return rowsRead;
+    }
+
+    public long getImported() {
+        return imported;
+    }
+
+    public long getRejected() {
+        return rejected;
+    }
+
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+
+    public double getRowsPerSecond() {
+        return elapsedMillis > 0 ? rowsRead * 1000.0 / elapsedMillis : rowsRead;
+    }
+
+    /** Where rejected rows were written, or {@code null} when every row was imported. */
+    public String getRejectFile() {
+        return rejectFile;
+    }
+}
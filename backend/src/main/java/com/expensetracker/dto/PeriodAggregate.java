@@ -0,0 +1,42 @@
+package com.expensetracker.dto;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+public class PeriodAggregate {
+    private LocalDate period;
+    private long count;
+    private BigDecimal total;
+
+    public PeriodAggregate() {}
+
+    public PeriodAggregate(LocalDate period, long count, BigDecimal total) {
+        this.period = period;
+        this.count = count;
+        this.total = total;
+    }
+
+    public LocalDate getPeriod() {
+        return period;
+    }
+
+    public void setPeriod(LocalDate period) {
+        this.period = period;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public void setCount(long count) {
+        this.count = count;
+    }
+
+    public BigDecimal getTotal() {
+        return total;
+    }
+
+    public void setTotal(BigDecimal total) {
+        this.total = total;
+    }
+}
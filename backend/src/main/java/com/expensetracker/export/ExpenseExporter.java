@@ -0,0 +1,119 @@
+package com.expensetracker.export;
+
+import com.expensetracker.dto.ExpenseResponse;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Iterator;
+import java.util.stream.Stream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Writes expenses to an output stream one row at a time, so an export of any size needs only a
+ * fixed-size buffer. Rows are consumed from a lazy stream and never collected. The streaming
+ * NDJSON endpoints of the expense API write through here too.
+ */
+@Component
+public class ExpenseExporter {
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final String CSV_HEADER = "id,description,amount,category,date,createdAt,updatedAt\n";
+
+    private final ObjectMapper objectMapper;
+
+    public ExpenseExporter(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    public void export(Stream<ExpenseResponse> rows, ExportFormat format, boolean gzip, OutputStream output)
+            throws IOException {
+        try (rows) {
+            if (!gzip) {
+                write(rows, format, output);
+                return;
+            }
+            GZIPOutputStream compressed = new GZIPOutputStream(output, BUFFER_SIZE);
+            write(rows, format, compressed);
+            compressed.finish();
+        }
+    }
+
+    private void write(Stream<ExpenseResponse> rows, ExportFormat format, OutputStream output) throws IOException {
+        Iterator<ExpenseResponse> iterator = rows.iterator();
+        if (format == ExportFormat.NDJSON) {
+            writeNdjson(iterator, output);
+            return;
+        }
+
+        Writer writer = new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8), BUFFER_SIZE);
+        StringBuilder line = new StringBuilder(256);
+        writer.write(CSV_HEADER);
+        while (iterator.hasNext()) {
+            ExpenseResponse expense = iterator.next();
+            line.setLength(0);
+            line.append(expense.getId()).append(',');
+            appendField(line, expense.getDescription()).append(',');
+            line.append(expense.getAmount() != null ? expense.getAmount().toPlainString() : "").append(',');
+            appendField(line, expense.getCategory()).append(',');
+            appendDate(line, expense.getDate()).append(',');
+            appendDate(line, expense.getCreatedAt()).append(',');
+            appendDate(line, expense.getUpdatedAt()).append('\n');
+            writer.append(line);
+        }
+        writer.flush();
+    }
+
+    private void writeNdjson(Iterator<ExpenseResponse> rows, OutputStream output) throws IOException {
+        ObjectWriter writer = objectMapper.writerFor(ExpenseResponse.class)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        JsonGenerator generator = objectMapper.getFactory().createGenerator(output);
+        // Rows are separated by the newline below, not by Jackson's default space between root values
+        generator.setRootValueSeparator(null);
+        while (rows.hasNext()) {
+            writer.writeValue(generator, rows.next());
+            generator.writeRaw('\n');
+        }
+        generator.flush();
+    }
+
+    private static StringBuilder appendField(StringBuilder line, String value) {
+        if (value == null) {
+            return line;
+        }
+        boolean quote = false;
+        for (int i = 0; i < value.length() && !quote; i++) {
+            char c = value.charAt(i);
+            quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!quote) {
+            return line.append(value);
+        }
+        line.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"') {
+                line.append('"');
+            }
+            line.append(c);
+        }
+        return line.append('"');
+    }
+
+    private static StringBuilder appendDate(StringBuilder line, LocalDateTime date) {
+        // Same text as the JSON output, which always includes seconds
+        if (date != null) {
+            DateTimeFormatter.ISO_LOCAL_DATE_TIME.formatTo(date, line);
+        }
+        return line;
+    }
+}
@@ -0,0 +1,101 @@
+package com.expensetracker.importer;
+
+import com.expensetracker.dto.ExpenseRequest;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Column positions taken from the header line of a CSV import, and the parsing of one record.
+ * Fields may be quoted with {@code "} and quotes inside them doubled; a record must fit on one line.
+ */
+final class CsvHeader {
+    private static final String[] COLUMNS = {"description", "amount", "category", "date"};
+
+    private final int[] positions = new int[COLUMNS.length];
+
+    private CsvHeader(List<String> names) {
+        for (int column = 0; column < COLUMNS.length; column++) {
+            positions[column] = names.indexOf(COLUMNS[column]);
+            if (positions[column] < 0) {
+                throw new IllegalArgumentException("CSV header is missing the " + COLUMNS[column] + " column");
+            }
+        }
+    }
+
+    static CsvHeader parse(String line) {
+        if (line == null) {
+            throw new IllegalArgumentException("CSV input is empty");
+        }
+        List<String> names = new ArrayList<>();
+        for (String name : split(line.startsWith("\uFEFF") ? line.substring(1) : line)) {
+            names.add(name.trim().toLowerCase(Locale.ROOT));
+        }
+        return new CsvHeader(names);
+    }
+
+    ExpenseRequest toRequest(String line) {
+        List<String> fields = split(line);
+        // Empty values become null so that Bean Validation reports them like a missing JSON field
+        String amount = field(fields, 1);
+        String date = field(fields, 3);
+        return new ExpenseRequest(field(fields, 0), amount.isEmpty() ? null : amount(amount), field(fields, 2),
+                date.isEmpty() ? null : date(date));
+    }
+
+    private String field(List<String> fields, int column) {
+        int position = positions[column];
+        if (position >= fields.size()) {
+            throw new IllegalArgumentException("Expected at least " + (position + 1) + " fields but found " + fields.size());
+        }
+        return fields.get(position).trim();
+    }
+
+    /** Accepts a date-time, or a bare date meaning the start of that day. */
+    private static LocalDateTime date(String value) {
+        return value.length() == 10 ? LocalDate.parse(value).atStartOfDay() : LocalDateTime.parse(value);
+    }
+
+    private static BigDecimal amount(String value) {
+        try {
+            return new BigDecimal(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid amount '" + value + "'");
+        }
+    }
+
+    static List<String> split(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c != '"') {
+                    field.append(c);
+                } else if (i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else {
+                    quoted = false;
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        if (quoted) {
+            throw new IllegalArgumentException("Unterminated quoted field");
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+}
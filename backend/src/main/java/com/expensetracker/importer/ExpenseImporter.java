@@ -0,0 +1,297 @@
+package com.expensetracker.importer;
+
+import com.expensetracker.dto.ExpenseRequest;
+import com.expensetracker.dto.ImportReport;
+import com.expensetracker.model.Expense;
+import com.expensetracker.repository.ExpenseRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+/**
+ * Loads expenses from a CSV or NDJSON stream of any size.
+ * <p>
+ * The work runs as stages joined by bounded queues of line chunks: one reader, a pool of parsers,
+ * a pool of validators and the calling thread, which saves each chunk with
+ * {@link ExpenseRepository#saveAll}. A full queue blocks the stage feeding it, so at most a few
+ * chunks per stage are in memory whatever the size of the input. Rows that fail to parse or
+ * validate are written to the reject file with their line number and reason.
+ */
+public class ExpenseImporter {
+    private static final Logger log = LoggerFactory.getLogger(ExpenseImporter.class);
+
+    private static final Chunk END = new Chunk(0, List.of());
+
+    private final ExpenseRepository repository;
+    private final ObjectMapper objectMapper;
+    private final Validator validator;
+    private final int chunkSize;
+    private final int parseThreads;
+    private final int validateThreads;
+    private final int queueCapacity;
+    private final Duration progressInterval;
+
+    public ExpenseImporter(ExpenseRepository repository, ObjectMapper objectMapper, Validator validator,
+                           int chunkSize, int parseThreads, int validateThreads, int queueCapacity,
+                           Duration progressInterval) {
+        this.repository = repository;
+        this.objectMapper = objectMapper;
+        this.validator = validator;
+        this.chunkSize = chunkSize;
+        this.parseThreads = parseThreads;
+        this.validateThreads = validateThreads;
+        this.queueCapacity = queueCapacity;
+        this.progressInterval = progressInterval;
+    }
+
+    public ImportReport importFile(Path source, ImportFormat format, Path rejectFile) throws IOException {
+        try (InputStream input = Files.newInputStream(source)) {
+            return importFrom(input, format, rejectFile);
+        }
+    }
+
+    public ImportReport importFrom(InputStream input, ImportFormat format, Path rejectFile) throws IOException {
+        long start = System.nanoTime();
+        BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8), 1 << 16);
+        CsvHeader header = format == ImportFormat.CSV ? CsvHeader.parse(reader.readLine()) : null;
+        long firstLine = header != null ? 2 : 1;
+
+        BlockingQueue<Chunk> read = new ArrayBlockingQueue<>(queueCapacity);
+        BlockingQueue<Chunk> parsed = new ArrayBlockingQueue<>(queueCapacity);
+        BlockingQueue<Chunk> validated = new ArrayBlockingQueue<>(queueCapacity);
+        AtomicInteger threadCount = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(1 + parseThreads + validateThreads, runnable -> {
+            Thread thread = new Thread(runnable, "expense-import-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        RejectWriter rejects = new RejectWriter(rejectFile);
+        long rowsRead = 0;
+        long imported = 0;
+        try (rejects) {
+            Future<?> readStage = executor.submit(() -> readChunks(reader, firstLine, read));
+            List<Future<?>> stages = new ArrayList<>();
+            AtomicInteger parsers = new AtomicInteger(parseThreads);
+            for (int i = 0; i < parseThreads; i++) {
+                stages.add(executor.submit(() -> runStage(read, parsed, parsers, validateThreads,
+                        chunk -> parse(chunk, header))));
+            }
+            AtomicInteger validators = new AtomicInteger(validateThreads);
+            for (int i = 0; i < validateThreads; i++) {
+                stages.add(executor.submit(() -> runStage(parsed, validated, validators, 1, this::validate)));
+            }
+
+            long nextProgress = System.nanoTime() + progressInterval.toNanos();
+            for (Chunk chunk = validated.take(); chunk != END; chunk = validated.take()) {
+                rejects.write(chunk.rejects);
+                repository.saveAll(chunk.rows.stream().map(Row::toExpense).collect(Collectors.toList()));
+                rowsRead += chunk.lines.size();
+                imported += chunk.rows.size();
+                if (System.nanoTime() >= nextProgress) {
+                    log.info("Imported {} of {} rows read so far ({} rejected, {} rows/s)", imported, rowsRead,
+                            rowsRead - imported, rowsPerSecond(rowsRead, start));
+                    nextProgress = System.nanoTime() + progressInterval.toNanos();
+                }
+            }
+            // Workers have all finished once the end marker got here; check them before the
+            // reader, which would stay blocked on a full queue if the parsers had failed
+            for (Future<?> stage : stages) {
+                stage.get();
+            }
+            readStage.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Import interrupted", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException("Import failed", e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+
+        long elapsedMillis = Duration.ofNanos(System.nanoTime() - start).toMillis();
+        log.info("Imported {} of {} rows in {} ms ({} rows/s){}", imported, rowsRead, elapsedMillis,
+                rowsPerSecond(rowsRead, start), rejects.written() ? ", rejects written to " + rejectFile : "");
+        return new ImportReport(rowsRead, imported, rowsRead - imported, elapsedMillis,
+                rejects.written() ? rejectFile.toString() : null);
+    }
+
+    private Void readChunks(BufferedReader reader, long firstLine, BlockingQueue<Chunk> out)
+            throws IOException, InterruptedException {
+        try {
+            long lineNumber = firstLine;
+            Chunk chunk = new Chunk(lineNumber, new ArrayList<>(chunkSize));
+            for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+                chunk.lines.add(line);
+                lineNumber++;
+                if (chunk.lines.size() == chunkSize) {
+                    out.put(chunk);
+                    chunk = new Chunk(lineNumber, new ArrayList<>(chunkSize));
+                }
+            }
+            if (!chunk.lines.isEmpty()) {
+                out.put(chunk);
+            }
+        } finally {
+            for (int i = 0; i < parseThreads; i++) {
+                out.put(END);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Applies {@code work} to each chunk until the end marker arrives. The last worker of a
+     * stage to finish passes one end marker per worker of the next stage.
+     */
+    private static Void runStage(BlockingQueue<Chunk> in, BlockingQueue<Chunk> out, AtomicInteger running,
+                                 int nextWorkers, Consumer<Chunk> work) throws InterruptedException {
+        try {
+            for (Chunk chunk = in.take(); chunk != END; chunk = in.take()) {
+                work.accept(chunk);
+                out.put(chunk);
+            }
+        } finally {
+            if (running.decrementAndGet() == 0) {
+                for (int i = 0; i < nextWorkers; i++) {
+                    out.put(END);
+                }
+            }
+        }
+        return null;
+    }
+
+    private void parse(Chunk chunk, CsvHeader header) {
+        for (int i = 0; i < chunk.lines.size(); i++) {
+            String line = chunk.lines.get(i);
+            long lineNumber = chunk.firstLine + i;
+            if (line.isBlank()) {
+                chunk.rejects.add(new Row(lineNumber, line, null, "Empty line"));
+                continue;
+            }
+            try {
+                ExpenseRequest request = header != null
+                        ? header.toRequest(line)
+                        : objectMapper.readValue(line, ExpenseRequest.class);
+                chunk.rows.add(new Row(lineNumber, line, request, null));
+            } catch (JsonProcessingException e) {
+                chunk.rejects.add(new Row(lineNumber, line, null, e.getOriginalMessage()));
+            } catch (RuntimeException e) {
+                chunk.rejects.add(new Row(lineNumber, line, null, e.getMessage()));
+            }
+        }
+    }
+
+    private void validate(Chunk chunk) {
+        List<Row> valid = new ArrayList<>(chunk.rows.size());
+        for (Row row : chunk.rows) {
+            String errors = validator.validate(row.request).stream()
+                    .map(ConstraintViolation::getMessage)
+                    .sorted()
+                    .collect(Collectors.joining("; "));
+            if (errors.isEmpty()) {
+                valid.add(row);
+            } else {
+                chunk.rejects.add(new Row(row.line, row.raw, row.request, errors));
+            }
+        }
+        chunk.rows = valid;
+    }
+
+    private static long rowsPerSecond(long rows, long startNanos) {
+        long elapsed = System.nanoTime() - startNanos;
+        return elapsed > 0 ? rows * 1_000_000_000L / elapsed : rows;
+    }
+
+    private static final class Chunk {
+        final long firstLine;
+        final List<String> lines;
+        List<Row> rows = new ArrayList<>();
+        final List<Row> rejects = new ArrayList<>();
+
+        Chunk(long firstLine, List<String> lines) {
+            this.firstLine = firstLine;
+            this.lines = lines;
+        }
+    }
+
+    private record Row(long line, String raw, ExpenseRequest request, String reason) {
+        Expense toExpense() {
+            return new Expense(request.getDescription(), request.getAmount(), request.getCategory(), request.getDate());
+        }
+    }
+
+    /** CSV of rejected rows (line, reason, original text), created on the first reject. */
+    private static final class RejectWriter implements AutoCloseable {
+        private final Path file;
+        private BufferedWriter writer;
+
+        RejectWriter(Path file) {
+            this.file = file;
+        }
+
+        void write(List<Row> rows) {
+            if (rows.isEmpty() || file == null) {
+                return;
+            }
+            try {
+                if (writer == null) {
+                    Path parent = file.toAbsolutePath().getParent();
+                    if (parent != null) {
+                        Files.createDirectories(parent);
+                    }
+                    writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8);
+                    writer.write("line,reason,record\n");
+                }
+                for (Row row : rows) {
+                    writer.write(row.line + "," + quote(row.reason) + "," + quote(row.raw) + "\n");
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to write rejects to " + file, e);
+            }
+        }
+
+        boolean written() {
+            return writer != null;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (writer != null) {
+                writer.close();
+            }
+        }
+
+        private static String quote(String value) {
+            return value == null ? "" : "\"" + value.replace("\"", "\"\"") + "\"";
+        }
+    }
+}
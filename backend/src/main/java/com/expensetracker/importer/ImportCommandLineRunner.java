@@ -0,0 +1,51 @@
+package com.expensetracker.importer;
+
+import com.expensetracker.dto.ImportReport;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.stereotype.Component;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Runs a one-off import and exits when the application is started with
+ * {@code --import=<file>}, optionally with {@code --import-format=csv|ndjson} and
+ * {@code --reject-file=<file>}.
+ */
+@Component
+public class ImportCommandLineRunner implements ApplicationRunner {
+    private static final Logger log = LoggerFactory.getLogger(ImportCommandLineRunner.class);
+
+    private final ExpenseImporter importer;
+    private final ConfigurableApplicationContext context;
+
+    public ImportCommandLineRunner(ExpenseImporter importer, ConfigurableApplicationContext context) {
+        this.importer = importer;
+        this.context = context;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) throws Exception {
+        if (!args.containsOption("import")) {
+            return;
+        }
+        Path source = Paths.get(args.getOptionValues("import").get(0));
+        ImportFormat format = args.containsOption("import-format")
+                ? ImportFormat.valueOf(args.getOptionValues("import-format").get(0).toUpperCase())
+                : ImportFormat.forFileName(source.getFileName().toString());
+        Path rejectFile = args.containsOption("reject-file")
+                ? Paths.get(args.getOptionValues("reject-file").get(0))
+                : source.resolveSibling(source.getFileName() + ".rejects.csv");
+
+        ImportReport report = importer.importFile(source, format, rejectFile);
+        log.info("Import of {} finished: {} imported, {} rejected, {} rows/s", source,
+                report.getImported(), report.getRejected(), Math.round(report.getRowsPerSecond()));
+        // Closing the context also flushes and closes the persistence layer
+        System.exit(SpringApplication.exit(context, () -> report.getRejected() == 0 ? 0 : 2));
+    }
+}
@@ -0,0 +1,23 @@
+package com.expensetracker.importer;
+
+import java.util.Locale;
+
+public enum ImportFormat {
+    CSV("text/csv"),
+    NDJSON("application/x-ndjson");
+
+    private final String mediaType;
+
+    ImportFormat(String mediaType) {
+        this.mediaType = mediaType;
+    }
+
+    public String getMediaType() {
+        return mediaType;
+    }
+
+    /** Guesses the format from a file name, defaulting to NDJSON for anything but {@code .csv}. */
+    public static ImportFormat forFileName(String fileName) {
+        return fileName.toLowerCase(Locale.ROOT).endsWith(".csv") ? CSV : NDJSON;
+    }
+}
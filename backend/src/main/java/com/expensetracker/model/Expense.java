@@ -12,6 +12,8 @@ public class Expense {
     private LocalDateTime date;
     private LocalDateTime createdAt;
     private LocalDateTime updatedAt;
+    // Set by the repository on every save; versions restart with the process
+    private long version;
 
     public Expense() {
         this.createdAt = LocalDateTime.now();
@@ -26,6 +28,18 @@ public class Expense {
         this.date = date;
     }
 
+    /** Copies every field, so that a stored row can be changed by replacing it with an edited copy. */
+    public Expense(Expense other) {
+        this.id = other.id;
+        this.description = other.description;
+        this.amount = other.amount;
+        this.category = other.category;
+        this.date = other.date;
+        this.createdAt = other.createdAt;
+        this.updatedAt = other.updatedAt;
+        this.version = other.version;
+    }
+
     public Long getId() {
         return id;
     }
@@ -82,6 +96,14 @@ public class Expense {
         this.updatedAt = updatedAt;
     }
 
+    public long getVersion() {
+        return version;
+    }
+
+    public void setVersion(long version) {
+        this.version = version;
+    }
+
     @Override
     public boolean equals(Object obj) {
         if (this == obj) return true;
@@ -0,0 +1,10 @@
+package com.expensetracker.persistence;
+
+public enum DurabilityMode {
+    /** Every write is fsynced before it returns. */
+    FSYNC,
+    /** Writers wait for an fsync, but concurrent writers share a single one. */
+    GROUP_COMMIT,
+    /** Writes return once they are in the page cache; a background task fsyncs periodically. */
+    ASYNC
+}
@@ -0,0 +1,101 @@
+package com.expensetracker.persistence;
+
+import com.expensetracker.model.Expense;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+/**
+ * Binary row encoding shared by write-ahead log records and snapshots.
+ */
+final class ExpenseCodec {
+    private static final long NULL_SECONDS = Long.MIN_VALUE;
+
+    private ExpenseCodec() {
+    }
+
+    static void write(DataOutput out, Expense expense) throws IOException {
+        out.writeLong(expense.getId());
+        writeString(out, expense.getDescription());
+        writeAmount(out, expense.getAmount());
+        writeString(out, expense.getCategory());
+        writeDate(out, expense.getDate());
+        writeDate(out, expense.getCreatedAt());
+        writeDate(out, expense.getUpdatedAt());
+    }
+
+    static Expense read(DataInput in) throws IOException {
+        Expense expense = new Expense();
+        expense.setId(in.readLong());
+        expense.setDescription(readString(in));
+        expense.setAmount(readAmount(in));
+        expense.setCategory(readString(in));
+        expense.setDate(readDate(in));
+        expense.setCreatedAt(readDate(in));
+        expense.setUpdatedAt(readDate(in));
+        return expense;
+    }
+
+    private static void writeString(DataOutput out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInput in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void writeAmount(DataOutput out, BigDecimal amount) throws IOException {
+        if (amount == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] unscaled = amount.unscaledValue().toByteArray();
+        out.writeInt(unscaled.length);
+        out.write(unscaled);
+        out.writeInt(amount.scale());
+    }
+
+    private static BigDecimal readAmount(DataInput in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] unscaled = new byte[length];
+        in.readFully(unscaled);
+        return new BigDecimal(new BigInteger(unscaled), in.readInt());
+    }
+
+    private static void writeDate(DataOutput out, LocalDateTime date) throws IOException {
+        if (date == null) {
+            out.writeLong(NULL_SECONDS);
+            return;
+        }
+        out.writeLong(date.toEpochSecond(ZoneOffset.UTC));
+        out.writeInt(date.getNano());
+    }
+
+    private static LocalDateTime readDate(DataInput in) throws IOException {
+        long seconds = in.readLong();
+        if (seconds == NULL_SECONDS) {
+            return null;
+        }
+        return LocalDateTime.ofEpochSecond(seconds, in.readInt(), ZoneOffset.UTC);
+    }
+}
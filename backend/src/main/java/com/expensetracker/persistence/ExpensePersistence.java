@@ -0,0 +1,36 @@
+package com.expensetracker.persistence;
+
+import com.expensetracker.model.Expense;
+import java.util.Collection;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Durable storage behind {@code ExpenseRepository}. The repository logs each change while it
+ * holds the row's lock and then waits, outside the lock, for the returned position to be durable.
+ */
+public interface ExpensePersistence extends AutoCloseable {
+
+    RecoveredState recover();
+
+    /** Begins background work such as snapshotting, reading live state from the given suppliers. */
+    void start(Supplier<Collection<Expense>> liveRows, LongSupplier nextId);
+
+    /**
+     * Runs {@code change}, which logs a change and then makes it visible in memory, and returns its
+     * result. A snapshot never rotates the log between the two steps, so every change logged to a
+     * segment it deletes is already in the rows it writes.
+     */
+    default long logged(LongSupplier change) {
+        return change.getAsLong();
+    }
+
+    long logSave(Expense expense);
+
+    long logDelete(long id);
+
+    void awaitDurable(long position);
+
+    @Override
+    void close();
+}
@@ -0,0 +1,406 @@
+package com.expensetracker.persistence;
+
+import com.expensetracker.model.Expense;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Columnar snapshot file read through memory mappings.
+ * <p>
+ * Rows are sorted by id and stored as fixed-width columns: ids, dates as epoch seconds plus
+ * nanos, amounts as unscaled longs plus a scale byte, and categories as ids into a dictionary.
+ * Descriptions, category names and amounts too large for a long live in a trailing string heap;
+ * a string length of -1 stands for null.
+ * Opening a snapshot only maps the file and decodes the dictionary; rows are read straight from
+ * the mapping and an {@link Expense} is only created by {@link #materialize(int)}.
+ */
+public final class MappedSnapshot {
+    static final int MAGIC = 0x45585053;
+    static final int VERSION = 2;
+
+    private static final int HEADER_BYTES = 64;
+    private static final byte OVERFLOW_SCALE = Byte.MIN_VALUE;
+    private static final long NULL_SECONDS = Long.MIN_VALUE;
+    private static final int HEAP_CHUNK_BITS = 30;
+    private static final long HEAP_CHUNK_BYTES = 1L << HEAP_CHUNK_BITS;
+
+    private static final int ID = 0;
+    private static final int DATE_SECONDS = 1;
+    private static final int DATE_NANOS = 2;
+    private static final int AMOUNT = 3;
+    private static final int AMOUNT_SCALE = 4;
+    private static final int CATEGORY = 5;
+    private static final int CREATED_SECONDS = 6;
+    private static final int CREATED_NANOS = 7;
+    private static final int UPDATED_SECONDS = 8;
+    private static final int UPDATED_NANOS = 9;
+    private static final int DESCRIPTION_OFFSET = 10;
+    private static final int DESCRIPTION_LENGTH = 11;
+    private static final int[] ROW_WIDTHS = {8, 8, 4, 8, 1, 4, 8, 4, 8, 4, 8, 4};
+
+    private final long replayFrom;
+    private final long nextId;
+    private final int size;
+    private final ByteBuffer[] columns = new ByteBuffer[ROW_WIDTHS.length];
+    private final ByteBuffer[] heap;
+    private final String[] categories;
+
+    private MappedSnapshot(FileChannel channel) throws IOException {
+        ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_BYTES);
+        if (header.getInt(0) != MAGIC || header.getInt(4) != VERSION) {
+            throw new IOException("Unrecognized snapshot format");
+        }
+        replayFrom = header.getLong(8);
+        nextId = header.getLong(16);
+        size = header.getInt(24);
+        int categoryCount = header.getInt(28);
+        long heapBytes = header.getLong(32);
+
+        long offset = HEADER_BYTES;
+        for (int column = 0; column < ROW_WIDTHS.length; column++) {
+            long bytes = (long) ROW_WIDTHS[column] * size;
+            columns[column] = channel.map(FileChannel.MapMode.READ_ONLY, offset, bytes);
+            offset = align(offset + bytes);
+        }
+        ByteBuffer categoryOffsets = channel.map(FileChannel.MapMode.READ_ONLY, offset, 8L * categoryCount);
+        offset = align(offset + 8L * categoryCount);
+        ByteBuffer categoryLengths = channel.map(FileChannel.MapMode.READ_ONLY, offset, 4L * categoryCount);
+        offset = align(offset + 4L * categoryCount);
+
+        heap = new ByteBuffer[(int) ((heapBytes + HEAP_CHUNK_BYTES - 1) / HEAP_CHUNK_BYTES)];
+        for (int chunk = 0; chunk < heap.length; chunk++) {
+            long start = chunk * HEAP_CHUNK_BYTES;
+            heap[chunk] = channel.map(FileChannel.MapMode.READ_ONLY, offset + start,
+                    Math.min(HEAP_CHUNK_BYTES, heapBytes - start));
+        }
+
+        categories = new String[categoryCount];
+        for (int i = 0; i < categoryCount; i++) {
+            categories[i] = readString(categoryOffsets.getLong(i * 8), categoryLengths.getInt(i * 4));
+        }
+    }
+
+    public static MappedSnapshot open(Path file) throws IOException {
+        // The mappings stay valid after the channel is closed
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return new MappedSnapshot(channel);
+        }
+    }
+
+    public long replayFrom() {
+        return replayFrom;
+    }
+
+    public long nextId() {
+        return nextId;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public long id(int row) {
+        return columns[ID].getLong(row * 8);
+    }
+
+    /** Returns the row holding {@code id}, or a negative value when there is none. */
+    public int find(long id) {
+        int low = 0;
+        int high = size - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            long midId = id(mid);
+            if (midId < id) {
+                low = mid + 1;
+            } else if (midId > id) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -(low + 1);
+    }
+
+    public LocalDateTime date(int row) {
+        return readDate(DATE_SECONDS, DATE_NANOS, row);
+    }
+
+    public String category(int row) {
+        return categories[columns[CATEGORY].getInt(row * 4)];
+    }
+
+    public BigDecimal amount(int row) {
+        long unscaled = columns[AMOUNT].getLong(row * 8);
+        byte scale = columns[AMOUNT_SCALE].get(row);
+        if (scale != OVERFLOW_SCALE) {
+            return BigDecimal.valueOf(unscaled, scale);
+        }
+        int length = heapInt(unscaled);
+        return new BigDecimal(readString(unscaled + 4, length));
+    }
+
+    public Expense materialize(int row) {
+        Expense expense = new Expense();
+        expense.setId(id(row));
+        expense.setDescription(readString(columns[DESCRIPTION_OFFSET].getLong(row * 8),
+                columns[DESCRIPTION_LENGTH].getInt(row * 4)));
+        expense.setAmount(amount(row));
+        expense.setCategory(category(row));
+        expense.setDate(date(row));
+        expense.setCreatedAt(readDate(CREATED_SECONDS, CREATED_NANOS, row));
+        expense.setUpdatedAt(readDate(UPDATED_SECONDS, UPDATED_NANOS, row));
+        return expense;
+    }
+
+    private LocalDateTime readDate(int secondsColumn, int nanosColumn, int row) {
+        long seconds = columns[secondsColumn].getLong(row * 8);
+        if (seconds == NULL_SECONDS) {
+            return null;
+        }
+        return LocalDateTime.ofEpochSecond(seconds, columns[nanosColumn].getInt(row * 4), ZoneOffset.UTC);
+    }
+
+    private String readString(long offset, int length) {
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        int copied = 0;
+        while (copied < length) {
+            long position = offset + copied;
+            ByteBuffer chunk = heap[(int) (position >>> HEAP_CHUNK_BITS)];
+            int start = (int) (position & (HEAP_CHUNK_BYTES - 1));
+            int count = Math.min(length - copied, chunk.limit() - start);
+            chunk.get(start, bytes, copied, count);
+            copied += count;
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private int heapInt(long offset) {
+        int value = 0;
+        for (int i = 0; i < 4; i++) {
+            long position = offset + i;
+            value = (value << 8) | (heap[(int) (position >>> HEAP_CHUNK_BITS)]
+                    .get((int) (position & (HEAP_CHUNK_BYTES - 1))) & 0xFF);
+        }
+        return value;
+    }
+
+    /**
+     * Writes {@code rows} as a columnar snapshot. The rows are copied into a list sorted by id
+     * first, so the live collection may keep changing while this runs.
+     */
+    public static int write(Path file, long replayFrom, long nextId, Collection<Expense> rows) throws IOException {
+        List<Expense> sorted = new ArrayList<>(rows);
+        sorted.sort(Comparator.comparing(Expense::getId));
+        int size = sorted.size();
+
+        Map<String, Integer> dictionary = new LinkedHashMap<>();
+        long descriptionBytes = 0;
+        long overflowBytes = 0;
+        for (Expense expense : sorted) {
+            dictionary.putIfAbsent(expense.getCategory(), dictionary.size());
+            descriptionBytes += utf8Length(expense.getDescription());
+            if (isOverflow(expense.getAmount())) {
+                overflowBytes += 4 + utf8Length(expense.getAmount().toString());
+            }
+        }
+        long categoryBytes = 0;
+        for (String category : dictionary.keySet()) {
+            categoryBytes += utf8Length(category);
+        }
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            CountingOutput out = new CountingOutput(channel);
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(replayFrom);
+            out.writeLong(nextId);
+            out.writeInt(size);
+            out.writeInt(dictionary.size());
+            out.writeLong(descriptionBytes + overflowBytes + categoryBytes);
+            while (out.count() < HEADER_BYTES) {
+                out.writeByte(0);
+            }
+
+            for (Expense expense : sorted) {
+                out.writeLong(expense.getId());
+            }
+            out.pad();
+            writeDateColumns(out, sorted, Expense::getDate);
+            long overflowCursor = descriptionBytes;
+            for (Expense expense : sorted) {
+                if (isOverflow(expense.getAmount())) {
+                    out.writeLong(overflowCursor);
+                    overflowCursor += 4 + utf8Length(expense.getAmount().toString());
+                } else {
+                    out.writeLong(expense.getAmount().unscaledValue().longValue());
+                }
+            }
+            out.pad();
+            for (Expense expense : sorted) {
+                out.writeByte(isOverflow(expense.getAmount()) ? OVERFLOW_SCALE : expense.getAmount().scale());
+            }
+            out.pad();
+            for (Expense expense : sorted) {
+                out.writeInt(dictionary.get(expense.getCategory()));
+            }
+            out.pad();
+            writeDateColumns(out, sorted, Expense::getCreatedAt);
+            writeDateColumns(out, sorted, Expense::getUpdatedAt);
+            long descriptionCursor = 0;
+            for (Expense expense : sorted) {
+                out.writeLong(descriptionCursor);
+                descriptionCursor += utf8Length(expense.getDescription());
+            }
+            out.pad();
+            for (Expense expense : sorted) {
+                out.writeInt(expense.getDescription() != null ? utf8Length(expense.getDescription()) : -1);
+            }
+            out.pad();
+
+            long categoryCursor = descriptionBytes + overflowBytes;
+            for (String category : dictionary.keySet()) {
+                out.writeLong(categoryCursor);
+                categoryCursor += utf8Length(category);
+            }
+            out.pad();
+            for (String category : dictionary.keySet()) {
+                out.writeInt(category != null ? utf8Length(category) : -1);
+            }
+            out.pad();
+
+            for (Expense expense : sorted) {
+                if (expense.getDescription() != null) {
+                    out.write(expense.getDescription().getBytes(StandardCharsets.UTF_8));
+                }
+            }
+            for (Expense expense : sorted) {
+                if (isOverflow(expense.getAmount())) {
+                    byte[] text = expense.getAmount().toString().getBytes(StandardCharsets.UTF_8);
+                    out.writeInt(text.length);
+                    out.write(text);
+                }
+            }
+            for (String category : dictionary.keySet()) {
+                if (category != null) {
+                    out.write(category.getBytes(StandardCharsets.UTF_8));
+                }
+            }
+            out.flush();
+            channel.force(true);
+        }
+        return size;
+    }
+
+    private static void writeDateColumns(CountingOutput out, List<Expense> rows,
+                                         Function<Expense, LocalDateTime> column) throws IOException {
+        for (Expense expense : rows) {
+            LocalDateTime date = column.apply(expense);
+            out.writeLong(date != null ? date.toEpochSecond(ZoneOffset.UTC) : NULL_SECONDS);
+        }
+        out.pad();
+        for (Expense expense : rows) {
+            LocalDateTime date = column.apply(expense);
+            out.writeInt(date != null ? date.getNano() : 0);
+        }
+        out.pad();
+    }
+
+    private static boolean isOverflow(BigDecimal amount) {
+        return amount.unscaledValue().bitLength() > 63
+                || amount.scale() <= Byte.MIN_VALUE || amount.scale() > Byte.MAX_VALUE;
+    }
+
+    private static int utf8Length(String value) {
+        if (value == null) {
+            return 0;
+        }
+        int length = 0;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                length++;
+            } else if (c < 0x800) {
+                length += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < value.length()
+                    && Character.isLowSurrogate(value.charAt(i + 1))) {
+                length += 4;
+                i++;
+            } else {
+                length += 3;
+            }
+        }
+        return length;
+    }
+
+    private static long align(long offset) {
+        return (offset + 7) & ~7L;
+    }
+
+    private static final class CountingOutput extends DataOutputStream {
+        private final CountingStream counter;
+
+        CountingOutput(FileChannel channel) {
+            this(new CountingStream(new BufferedOutputStream(Channels.newOutputStream(channel), 256 * 1024)));
+        }
+
+        private CountingOutput(CountingStream counter) {
+            super(counter);
+            this.counter = counter;
+        }
+
+        long count() {
+            return counter.count;
+        }
+
+        void pad() throws IOException {
+            while ((counter.count & 7) != 0) {
+                writeByte(0);
+            }
+        }
+    }
+
+    // DataOutputStream's own counter is an int and saturates at 2 GB
+    private static final class CountingStream extends FilterOutputStream {
+        private long count;
+
+        CountingStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) throws IOException {
+            out.write(bytes, offset, length);
+            count += length;
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package com.expensetracker.persistence;
+
+import com.expensetracker.model.Expense;
+import java.util.Collection;
+import java.util.Map;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Keeps expenses in memory only, which is the default when persistence is disabled.
+ */
+public class NoOpExpensePersistence implements ExpensePersistence {
+
+    @Override
+    public RecoveredState recover() {
+        return new RecoveredState(null, Map.of(), 1);
+    }
+
+    @Override
+    public void start(Supplier<Collection<Expense>> liveRows, LongSupplier nextId) {
+    }
+
+    @Override
+    public long logSave(Expense expense) {
+        return 0;
+    }
+
+    @Override
+    public long logDelete(long id) {
+        return 0;
+    }
+
+    @Override
+    public void awaitDurable(long position) {
+    }
+
+    @Override
+    public void close() {
+    }
+}
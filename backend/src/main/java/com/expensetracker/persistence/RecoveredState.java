@@ -0,0 +1,11 @@
+package com.expensetracker.persistence;
+
+import com.expensetracker.model.Expense;
+import java.util.Map;
+
+/**
+ * State found at startup: an optional mapped snapshot, and the changes replayed from the log on
+ * top of it in order, where a {@code null} value marks a deleted id.
+ */
+public record RecoveredState(MappedSnapshot snapshot, Map<Long, Expense> changes, long nextId) {
+}
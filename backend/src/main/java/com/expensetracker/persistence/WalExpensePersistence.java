@@ -0,0 +1,192 @@
+package com.expensetracker.persistence;
+
+import com.expensetracker.model.Expense;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Persists expenses as a write-ahead log plus periodic snapshots.
+ * <p>
+ * A snapshot first rotates the log, then writes the live rows as a {@link MappedSnapshot} that
+ * records the new segment as the replay start, and finally deletes the older segments. Writers hold
+ * a shared lock from logging a change until it is visible in memory, and the rotation takes it
+ * exclusively, so every change in an older segment is in the rows the snapshot reads. Rows changed
+ * while the snapshot is being written are also in the new segment, and replaying a full-row save
+ * or a delete twice is harmless, so writers only wait for the rotation itself.
+ */
+public class WalExpensePersistence implements ExpensePersistence {
+    private static final Logger log = LoggerFactory.getLogger(WalExpensePersistence.class);
+
+    private static final String SNAPSHOT_FILE = "snapshot.dat";
+
+    private final Path directory;
+    private final DurabilityMode durability;
+    private final Duration snapshotInterval;
+    private final Duration flushInterval;
+    private final ReadWriteLock rotationLock = new ReentrantReadWriteLock();
+
+    private WriteAheadLog wal;
+    private ScheduledExecutorService scheduler;
+    private Supplier<Collection<Expense>> liveRows;
+    private LongSupplier nextId;
+
+    public WalExpensePersistence(Path directory, DurabilityMode durability,
+                                 Duration snapshotInterval, Duration flushInterval) {
+        this.directory = directory;
+        this.durability = durability;
+        this.snapshotInterval = snapshotInterval;
+        this.flushInterval = flushInterval;
+    }
+
+    @Override
+    public RecoveredState recover() {
+        try {
+            Files.createDirectories(directory);
+            MappedSnapshot snapshot = null;
+            Map<Long, Expense> changes = new LinkedHashMap<>();
+            long nextId = 1;
+            long replayFrom = 0;
+
+            Path snapshotFile = directory.resolve(SNAPSHOT_FILE);
+            if (Files.exists(snapshotFile)) {
+                snapshot = MappedSnapshot.open(snapshotFile);
+                replayFrom = snapshot.replayFrom();
+                nextId = snapshot.nextId();
+            }
+
+            List<Long> segments = WriteAheadLog.segments(directory);
+            long lastSegment = replayFrom;
+            for (long segment : segments) {
+                if (segment < replayFrom) {
+                    Files.deleteIfExists(WriteAheadLog.segmentPath(directory, segment));
+                    continue;
+                }
+                long maxId = WriteAheadLog.replay(WriteAheadLog.segmentPath(directory, segment), changes);
+                nextId = Math.max(nextId, maxId + 1);
+                lastSegment = segment;
+            }
+
+            // Never append to a segment written by a previous process
+            wal = new WriteAheadLog(directory, lastSegment + 1, durability);
+            log.info("Mapped snapshot of {} expenses and replayed {} logged changes from {} (durability {})",
+                    snapshot != null ? snapshot.size() : 0, changes.size(), directory, durability);
+            return new RecoveredState(snapshot, changes, nextId);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to recover expenses from " + directory, e);
+        }
+    }
+
+    @Override
+    public void start(Supplier<Collection<Expense>> liveRows, LongSupplier nextId) {
+        this.liveRows = liveRows;
+        this.nextId = nextId;
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "expense-persistence");
+            thread.setDaemon(true);
+            return thread;
+        });
+        if (durability == DurabilityMode.ASYNC) {
+            long flushMillis = flushInterval.toMillis();
+            scheduler.scheduleWithFixedDelay(this::flushQuietly, flushMillis, flushMillis, TimeUnit.MILLISECONDS);
+        }
+        long snapshotMillis = snapshotInterval.toMillis();
+        if (snapshotMillis > 0) {
+            scheduler.scheduleWithFixedDelay(this::snapshotQuietly, snapshotMillis, snapshotMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @Override
+    public long logged(LongSupplier change) {
+        rotationLock.readLock().lock();
+        try {
+            return change.getAsLong();
+        } finally {
+            rotationLock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public long logSave(Expense expense) {
+        return wal.appendSave(expense);
+    }
+
+    @Override
+    public long logDelete(long id) {
+        return wal.appendDelete(id);
+    }
+
+    @Override
+    public void awaitDurable(long position) {
+        wal.awaitDurable(position);
+    }
+
+    public synchronized void snapshot() throws IOException {
+        long replayFrom;
+        // Waits for changes already in the old segment to become visible, so the rows read below hold them
+        rotationLock.writeLock().lock();
+        try {
+            replayFrom = wal.rotate();
+        } finally {
+            rotationLock.writeLock().unlock();
+        }
+        long next = nextId.getAsLong();
+        Collection<Expense> rows = liveRows.get();
+
+        Path temp = directory.resolve(SNAPSHOT_FILE + ".tmp");
+        int count = MappedSnapshot.write(temp, replayFrom, next, rows);
+        // Replacing the file leaves any mapping of the previous snapshot valid
+        Files.move(temp, directory.resolve(SNAPSHOT_FILE),
+                StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+        for (long segment : WriteAheadLog.segments(directory)) {
+            if (segment < replayFrom) {
+                Files.deleteIfExists(WriteAheadLog.segmentPath(directory, segment));
+            }
+        }
+        log.info("Wrote snapshot of {} expenses, replaying from segment {}", count, replayFrom);
+    }
+
+    @Override
+    public void close() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+        if (wal != null) {
+            wal.close();
+        }
+    }
+
+    private void flushQuietly() {
+        try {
+            wal.flush();
+        } catch (RuntimeException e) {
+            log.error("Background flush of the write-ahead log failed", e);
+        }
+    }
+
+    private void snapshotQuietly() {
+        try {
+            snapshot();
+        } catch (IOException | RuntimeException e) {
+            log.error("Background snapshot failed", e);
+        }
+    }
+}
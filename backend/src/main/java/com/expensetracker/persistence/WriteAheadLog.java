@@ -0,0 +1,273 @@
+package com.expensetracker.persistence;
+
+import com.expensetracker.model.Expense;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * Append-only log of expense changes, split into numbered segment files.
+ * <p>
+ * Each record is framed as {@code [payload length][CRC32C][payload]} so a torn tail left by a
+ * crash is detected and cut off on replay. With {@link DurabilityMode#GROUP_COMMIT} a writer that
+ * needs an fsync becomes the leader and forces everything appended so far; writers queued behind
+ * it find their position already durable and return without forcing again.
+ */
+class WriteAheadLog implements AutoCloseable {
+    private static final Logger log = LoggerFactory.getLogger(WriteAheadLog.class);
+
+    private static final String SEGMENT_PREFIX = "wal-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final byte SAVE = 1;
+    private static final byte DELETE = 2;
+    private static final int HEADER_BYTES = 8;
+    private static final int MAX_RECORD_BYTES = 16 * 1024 * 1024;
+
+    private final Path directory;
+    private final DurabilityMode durability;
+    // Lock order: syncLock before appendLock. Both are j.u.c locks so that waiting writers
+    // park instead of pinning a carrier thread when running on virtual threads.
+    private final ReentrantLock appendLock = new ReentrantLock();
+    private final ReentrantLock syncLock = new ReentrantLock();
+
+    private FileChannel channel;
+    private long segment;
+    private long appended;
+    private volatile long durable;
+
+    WriteAheadLog(Path directory, long segment, DurabilityMode durability) throws IOException {
+        this.directory = directory;
+        this.durability = durability;
+        this.segment = segment;
+        this.channel = open(segment);
+    }
+
+    static List<Long> segments(Path directory) throws IOException {
+        List<Long> segments = new ArrayList<>();
+        try (Stream<Path> files = Files.list(directory)) {
+            files.map(path -> path.getFileName().toString())
+                    .filter(name -> name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX))
+                    .forEach(name -> segments.add(Long.parseLong(
+                            name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()))));
+        }
+        segments.sort(null);
+        return segments;
+    }
+
+    static Path segmentPath(Path directory, long segment) {
+        return directory.resolve(String.format("%s%020d%s", SEGMENT_PREFIX, segment, SEGMENT_SUFFIX));
+    }
+
+    /**
+     * Applies the records of one segment to {@code rows}, mapping deleted ids to {@code null},
+     * and returns the highest id seen.
+     * A truncated or corrupt tail is cut off so that later appends start on a clean frame.
+     */
+    static long replay(Path file, Map<Long, Expense> rows) throws IOException {
+        long maxId = 0;
+        long validBytes = 0;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            while (true) {
+                int length;
+                try {
+                    length = in.readInt();
+                } catch (EOFException e) {
+                    break;
+                }
+                byte[] payload;
+                int checksum;
+                try {
+                    checksum = in.readInt();
+                    if (length <= 0 || length > MAX_RECORD_BYTES) {
+                        throw new EOFException("Invalid record length " + length);
+                    }
+                    payload = new byte[length];
+                    in.readFully(payload);
+                } catch (EOFException e) {
+                    log.warn("Truncated record at offset {} of {}, ignoring the tail", validBytes, file);
+                    break;
+                }
+                CRC32C crc = new CRC32C();
+                crc.update(payload);
+                if ((int) crc.getValue() != checksum) {
+                    log.warn("Checksum mismatch at offset {} of {}, ignoring the tail", validBytes, file);
+                    break;
+                }
+                maxId = Math.max(maxId, apply(payload, rows));
+                validBytes += HEADER_BYTES + length;
+            }
+        }
+        if (validBytes < Files.size(file)) {
+            try (FileChannel truncate = FileChannel.open(file, StandardOpenOption.WRITE)) {
+                truncate.truncate(validBytes);
+            }
+        }
+        return maxId;
+    }
+
+    private static long apply(byte[] payload, Map<Long, Expense> rows) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload));
+        byte type = in.readByte();
+        if (type == SAVE) {
+            Expense expense = ExpenseCodec.read(in);
+            rows.put(expense.getId(), expense);
+            return expense.getId();
+        }
+        long id = in.readLong();
+        rows.put(id, null);
+        return id;
+    }
+
+    long appendSave(Expense expense) {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeLong(0);
+            out.writeByte(SAVE);
+            ExpenseCodec.write(out, expense);
+            return append(bytes.toByteArray());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to encode expense " + expense.getId(), e);
+        }
+    }
+
+    long appendDelete(long id) {
+        ByteBuffer frame = ByteBuffer.allocate(HEADER_BYTES + 9);
+        frame.position(HEADER_BYTES);
+        frame.put(DELETE).putLong(id);
+        return append(frame.array());
+    }
+
+    private long append(byte[] frame) {
+        CRC32C crc = new CRC32C();
+        crc.update(frame, HEADER_BYTES, frame.length - HEADER_BYTES);
+        ByteBuffer buffer = ByteBuffer.wrap(frame);
+        buffer.putInt(0, frame.length - HEADER_BYTES);
+        buffer.putInt(4, (int) crc.getValue());
+
+        appendLock.lock();
+        try {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            appended += frame.length;
+            if (durability == DurabilityMode.FSYNC) {
+                channel.force(false);
+                durable = appended;
+            }
+            return appended;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to append to write-ahead log", e);
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    void awaitDurable(long position) {
+        if (durability != DurabilityMode.GROUP_COMMIT || durable >= position) {
+            return;
+        }
+        syncLock.lock();
+        try {
+            // The previous leader's fsync may already cover this position
+            if (durable < position) {
+                force();
+            }
+        } finally {
+            syncLock.unlock();
+        }
+    }
+
+    /** Fsyncs everything appended so far; used by the async flusher. */
+    void flush() {
+        syncLock.lock();
+        try {
+            force();
+        } finally {
+            syncLock.unlock();
+        }
+    }
+
+    private void force() {
+        FileChannel target;
+        long upTo;
+        appendLock.lock();
+        try {
+            target = channel;
+            upTo = appended;
+        } finally {
+            appendLock.unlock();
+        }
+        if (upTo <= durable) {
+            return;
+        }
+        try {
+            target.force(false);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to sync write-ahead log", e);
+        }
+        durable = upTo;
+    }
+
+    /**
+     * Seals the current segment and starts a new one. Returns the number of the new segment:
+     * a snapshot taken after this call must replay from it.
+     */
+    long rotate() throws IOException {
+        syncLock.lock();
+        appendLock.lock();
+        try {
+            channel.force(false);
+            durable = appended;
+            channel.close();
+            segment++;
+            channel = open(segment);
+            return segment;
+        } finally {
+            appendLock.unlock();
+            syncLock.unlock();
+        }
+    }
+
+    @Override
+    public void close() {
+        syncLock.lock();
+        appendLock.lock();
+        try {
+            if (channel.isOpen()) {
+                channel.force(false);
+                durable = appended;
+                channel.close();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to close write-ahead log", e);
+        } finally {
+            appendLock.unlock();
+            syncLock.unlock();
+        }
+    }
+
+    private FileChannel open(long segment) throws IOException {
+        return FileChannel.open(segmentPath(directory, segment),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+}
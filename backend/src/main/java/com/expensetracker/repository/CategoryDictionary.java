@@ -0,0 +1,67 @@
+package com.expensetracker.repository;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Assigns dense int codes to category names. Codes are never reused, which is fine for the
+ * small number of distinct categories expenses have. {@code null} maps to -1.
+ */
+final class CategoryDictionary {
+    static final int NULL_CODE = -1;
+
+    private final Map<String, Integer> codes = new ConcurrentHashMap<>();
+    private final NavigableMap<String, Integer> ordered = new ConcurrentSkipListMap<>();
+    private volatile String[] names = new String[16];
+    private int size;
+
+    int encode(String name) {
+        if (name == null) {
+            return NULL_CODE;
+        }
+        Integer code = codes.get(name);
+        return code != null ? code : add(name);
+    }
+
+    /** Returns the code of a known name without adding it, or {@link #NULL_CODE}. */
+    int find(String name) {
+        Integer code = name != null ? codes.get(name) : null;
+        return code != null ? code : NULL_CODE;
+    }
+
+    /** Returns the dictionary's own instance of {@code name}, so equal names share one string. */
+    String intern(String name) {
+        return decode(encode(name));
+    }
+
+    /** Every known name in {@link String#compareTo} order, with its code. */
+    NavigableMap<String, Integer> ordered() {
+        return ordered;
+    }
+
+    String decode(int code) {
+        return code == NULL_CODE ? null : names[code];
+    }
+
+    private synchronized int add(String name) {
+        Integer existing = codes.get(name);
+        if (existing != null) {
+            return existing;
+        }
+        int code = size;
+        String[] current = names;
+        if (code == current.length) {
+            current = Arrays.copyOf(current, code * 2);
+        }
+        current[code] = name;
+        // Publish the name before the code so a reader never sees a code it cannot decode
+        names = current;
+        size++;
+        ordered.put(name, code);
+        codes.put(name, code);
+        return code;
+    }
+}
@@ -0,0 +1,305 @@
+package com.expensetracker.repository;
+
+import com.expensetracker.model.Expense;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.AbstractCollection;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.BiFunction;
+
+/**
+ * Keeps rows in parallel primitive arrays instead of one {@link Expense} object graph per row:
+ * amounts as unscaled long plus scale, categories as dictionary codes and timestamps as UTC
+ * epoch seconds plus nanos. Only the description stays a reference per row.
+ * <p>
+ * Rows are decoded into a new {@link Expense} on every read, so callers never share state with
+ * the store and must {@link #compute} to change a row. Amounts whose unscaled value does not fit
+ * a long are kept as {@link BigDecimal} in a side table.
+ */
+public class ColumnarExpenseStore implements ExpenseStore {
+    private static final long FREE = Long.MIN_VALUE;
+    private static final byte OVERFLOW_SCALE = Byte.MIN_VALUE;
+    private static final int NULL_NANO = -1;
+
+    // One lock for the whole store, as growing replaces every array: a write blocks all other writes
+    // and reads of this store while it runs. It only covers copying the row into the arrays, since the
+    // repository appends to the log and updates its indexes and totals before calling compute, and
+    // passes a remapping function that just returns the new row. More shards split this lock.
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final CategoryDictionary categories = new CategoryDictionary();
+    private final LongIntHashMap slots;
+    private final Map<Integer, BigDecimal> overflowAmounts = new HashMap<>();
+
+    private long[] ids;
+    private String[] descriptions;
+    private long[] unscaledAmounts;
+    private byte[] amountScales;
+    private int[] categoryCodes;
+    private long[] dateSeconds;
+    private int[] dateNanos;
+    private long[] createdSeconds;
+    private int[] createdNanos;
+    private long[] updatedSeconds;
+    private int[] updatedNanos;
+    private long[] versions;
+
+    private int[] freeSlots = new int[16];
+    private int freeCount;
+    private int highWater;
+    private volatile int size;
+
+    public ColumnarExpenseStore() {
+        this(1024);
+    }
+
+    public ColumnarExpenseStore(int expectedRows) {
+        int capacity = Math.max(16, expectedRows);
+        slots = new LongIntHashMap(capacity);
+        ids = new long[capacity];
+        descriptions = new String[capacity];
+        unscaledAmounts = new long[capacity];
+        amountScales = new byte[capacity];
+        categoryCodes = new int[capacity];
+        dateSeconds = new long[capacity];
+        dateNanos = new int[capacity];
+        createdSeconds = new long[capacity];
+        createdNanos = new int[capacity];
+        updatedSeconds = new long[capacity];
+        updatedNanos = new int[capacity];
+        versions = new long[capacity];
+    }
+
+    @Override
+    public Expense get(long id) {
+        lock.readLock().lock();
+        try {
+            int slot = slots.get(id);
+            return slot >= 0 ? materialize(slot) : null;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public Expense compute(long id, BiFunction<Long, Expense, Expense> remapping) {
+        lock.writeLock().lock();
+        try {
+            int slot = slots.get(id);
+            Expense next = remapping.apply(id, slot >= 0 ? materialize(slot) : null);
+            if (next == null) {
+                if (slot >= 0) {
+                    release(id, slot);
+                }
+                return null;
+            }
+            if (slot < 0) {
+                slot = allocate();
+                slots.put(id, slot);
+                size++;
+            }
+            write(slot, id, next);
+            return next;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public Collection<Expense> values() {
+        return new AbstractCollection<>() {
+            @Override
+            public Iterator<Expense> iterator() {
+                return new SlotIterator();
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    @Override
+    public void forEachIndexed(IndexVisitor visitor) {
+        forEachIndexed(0, Integer.MAX_VALUE, visitor);
+    }
+
+    /** Ranges of slots; the read lock is shared, so the segments can be visited side by side. */
+    @Override
+    public List<Segment> segments(int count) {
+        int end;
+        lock.readLock().lock();
+        try {
+            end = highWater;
+        } finally {
+            lock.readLock().unlock();
+        }
+        List<Segment> segments = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            int from = (int) ((long) end * i / count);
+            // The last segment also takes slots allocated since
+            int to = i == count - 1 ? Integer.MAX_VALUE : (int) ((long) end * (i + 1) / count);
+            segments.add(visitor -> forEachIndexed(from, to, visitor));
+        }
+        return segments;
+    }
+
+    private void forEachIndexed(int from, int to, IndexVisitor visitor) {
+        lock.readLock().lock();
+        try {
+            for (int slot = from, end = Math.min(to, highWater); slot < end; slot++) {
+                if (ids[slot] != FREE) {
+                    visitor.visit(ids[slot], dateTime(dateSeconds[slot], dateNanos[slot]),
+                            categories.decode(categoryCodes[slot]), amount(slot));
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean returnsCopies() {
+        return true;
+    }
+
+    private Expense materialize(int slot) {
+        Expense expense = new Expense();
+        expense.setId(ids[slot]);
+        expense.setDescription(descriptions[slot]);
+        expense.setAmount(amount(slot));
+        expense.setCategory(categories.decode(categoryCodes[slot]));
+        expense.setDate(dateTime(dateSeconds[slot], dateNanos[slot]));
+        expense.setCreatedAt(dateTime(createdSeconds[slot], createdNanos[slot]));
+        expense.setUpdatedAt(dateTime(updatedSeconds[slot], updatedNanos[slot]));
+        expense.setVersion(versions[slot]);
+        return expense;
+    }
+
+    private void write(int slot, long id, Expense expense) {
+        ids[slot] = id;
+        descriptions[slot] = expense.getDescription();
+        BigDecimal amount = expense.getAmount();
+        if (amount != null && amount.scale() > OVERFLOW_SCALE && amount.scale() <= Byte.MAX_VALUE
+                && amount.unscaledValue().bitLength() < Long.SIZE) {
+            unscaledAmounts[slot] = amount.unscaledValue().longValue();
+            amountScales[slot] = (byte) amount.scale();
+            overflowAmounts.remove(slot);
+        } else {
+            unscaledAmounts[slot] = 0;
+            amountScales[slot] = OVERFLOW_SCALE;
+            overflowAmounts.put(slot, amount);
+        }
+        categoryCodes[slot] = categories.encode(expense.getCategory());
+        dateSeconds[slot] = seconds(expense.getDate());
+        dateNanos[slot] = nanos(expense.getDate());
+        createdSeconds[slot] = seconds(expense.getCreatedAt());
+        createdNanos[slot] = nanos(expense.getCreatedAt());
+        updatedSeconds[slot] = seconds(expense.getUpdatedAt());
+        updatedNanos[slot] = nanos(expense.getUpdatedAt());
+        versions[slot] = expense.getVersion();
+    }
+
+    private BigDecimal amount(int slot) {
+        byte scale = amountScales[slot];
+        return scale == OVERFLOW_SCALE ? overflowAmounts.get(slot) : BigDecimal.valueOf(unscaledAmounts[slot], scale);
+    }
+
+    private int allocate() {
+        if (freeCount > 0) {
+            return freeSlots[--freeCount];
+        }
+        if (highWater == ids.length) {
+            grow(ids.length * 2);
+        }
+        return highWater++;
+    }
+
+    private void release(long id, int slot) {
+        slots.remove(id);
+        ids[slot] = FREE;
+        descriptions[slot] = null;
+        overflowAmounts.remove(slot);
+        if (freeCount == freeSlots.length) {
+            freeSlots = Arrays.copyOf(freeSlots, freeCount * 2);
+        }
+        freeSlots[freeCount++] = slot;
+        size--;
+    }
+
+    private void grow(int capacity) {
+        ids = Arrays.copyOf(ids, capacity);
+        descriptions = Arrays.copyOf(descriptions, capacity);
+        unscaledAmounts = Arrays.copyOf(unscaledAmounts, capacity);
+        amountScales = Arrays.copyOf(amountScales, capacity);
+        categoryCodes = Arrays.copyOf(categoryCodes, capacity);
+        dateSeconds = Arrays.copyOf(dateSeconds, capacity);
+        dateNanos = Arrays.copyOf(dateNanos, capacity);
+        createdSeconds = Arrays.copyOf(createdSeconds, capacity);
+        createdNanos = Arrays.copyOf(createdNanos, capacity);
+        updatedSeconds = Arrays.copyOf(updatedSeconds, capacity);
+        updatedNanos = Arrays.copyOf(updatedNanos, capacity);
+        versions = Arrays.copyOf(versions, capacity);
+    }
+
+    private static long seconds(LocalDateTime dateTime) {
+        return dateTime != null ? dateTime.toEpochSecond(ZoneOffset.UTC) : 0;
+    }
+
+    private static int nanos(LocalDateTime dateTime) {
+        return dateTime != null ? dateTime.getNano() : NULL_NANO;
+    }
+
+    private static LocalDateTime dateTime(long seconds, int nanos) {
+        return nanos == NULL_NANO ? null : LocalDateTime.ofEpochSecond(seconds, nanos, ZoneOffset.UTC);
+    }
+
+    /** Walks slots in order, decoding one live row at a time under the read lock. */
+    private final class SlotIterator implements Iterator<Expense> {
+        private int slot;
+        private Expense next;
+
+        @Override
+        public boolean hasNext() {
+            while (next == null) {
+                lock.readLock().lock();
+                try {
+                    if (slot >= highWater) {
+                        return false;
+                    }
+                    if (ids[slot] != FREE) {
+                        next = materialize(slot);
+                    }
+                    slot++;
+                } finally {
+                    lock.readLock().unlock();
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public Expense next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            Expense result = next;
+            next = null;
+            return result;
+        }
+    }
+}
@@ -0,0 +1,295 @@
+package com.expensetracker.repository;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Running totals maintained with deltas on every repository write, so summary
+ * reads cost O(#categories) instead of a scan over every expense.
+ * <p>
+ * Day, month and year rollups are kept both per category and across all categories, in maps
+ * sorted by (category, period start) so that any period range is one sub-map walk. Weeks are
+ * summed from the day rollups when asked for. Buckets stay in their map once created, and empty
+ * ones are skipped on reads, so that an update never has to swap a bucket out under a writer.
+ */
+public class ExpenseAggregates implements ExpenseTotals {
+    private static final Granularity[] ROLLED_UP = {Granularity.DAY, Granularity.MONTH, Granularity.YEAR};
+
+    private final Bucket total = new Bucket();
+    private final ConcurrentMap<String, Bucket> byCategory = new ConcurrentHashMap<>();
+    private final Map<Granularity, ConcurrentNavigableMap<RollupKey, Bucket>> rollups = new EnumMap<>(Granularity.class);
+
+    public ExpenseAggregates() {
+        for (Granularity granularity : ROLLED_UP) {
+            rollups.put(granularity, new ConcurrentSkipListMap<>());
+        }
+    }
+
+    public void add(String category, LocalDateTime date, BigDecimal amount) {
+        update(category, date, amount, 1);
+    }
+
+    public void remove(String category, LocalDateTime date, BigDecimal amount) {
+        update(category, date, amount, -1);
+    }
+
+    public void add(Row row) {
+        update(row.category(), row.date(), row.amount(), 1);
+    }
+
+    /** Adds every row counted in {@code other}, which must not change meanwhile. */
+    public void addAll(ExpenseAggregates other) {
+        total.merge(other.total);
+        other.byCategory.forEach((category, bucket) -> bucket(byCategory, category).merge(bucket));
+        for (Granularity granularity : ROLLED_UP) {
+            ConcurrentNavigableMap<RollupKey, Bucket> rollup = rollups.get(granularity);
+            other.rollups.get(granularity).forEach((key, bucket) -> bucket(rollup, key).merge(bucket));
+        }
+    }
+
+    private void update(String category, LocalDateTime date, BigDecimal amount, int sign) {
+        // Converted once, so that the eight bucket updates below are plain long arithmetic
+        int scale = Math.max(0, amount.scale());
+        long unscaled = Bucket.unscaled(amount, scale);
+        total.add(unscaled, scale, amount, sign);
+        bucket(byCategory, category).add(unscaled, scale, amount, sign);
+        LocalDate day = date.toLocalDate();
+        for (Granularity granularity : ROLLED_UP) {
+            ConcurrentNavigableMap<RollupKey, Bucket> rollup = rollups.get(granularity);
+            LocalDate period = granularity.start(day);
+            bucket(rollup, new RollupKey(null, period)).add(unscaled, scale, amount, sign);
+            bucket(rollup, new RollupKey(category, period)).add(unscaled, scale, amount, sign);
+        }
+    }
+
+    private static <K> Bucket bucket(ConcurrentMap<K, Bucket> buckets, K key) {
+        Bucket bucket = buckets.get(key);
+        return bucket != null ? bucket : buckets.computeIfAbsent(key, k -> new Bucket());
+    }
+
+    @Override
+    public BigDecimal getTotal() {
+        return total.value();
+    }
+
+    @Override
+    public BigDecimal getMonthTotal(int year, int month) {
+        return value(rollups.get(Granularity.MONTH).get(new RollupKey(null, LocalDate.of(year, month, 1))));
+    }
+
+    @Override
+    public BigDecimal getYearTotal(int year) {
+        return value(rollups.get(Granularity.YEAR).get(new RollupKey(null, LocalDate.of(year, 1, 1))));
+    }
+
+    @Override
+    public List<PeriodTotal> getPeriodTotals(Granularity granularity, LocalDate from, LocalDate to, String category) {
+        LocalDate first = granularity.start(from);
+        LocalDate last = granularity.start(to);
+        List<PeriodTotal> totals = new ArrayList<>();
+        if (first.isAfter(last)) {
+            return totals;
+        }
+        if (granularity != Granularity.WEEK) {
+            rollups.get(granularity)
+                    .subMap(new RollupKey(category, first), true, new RollupKey(category, last), true)
+                    .forEach((key, bucket) -> bucket.addTo(totals, key.period()));
+            return totals;
+        }
+
+        LocalDate week = null;
+        Bucket sum = new Bucket();
+        for (Map.Entry<RollupKey, Bucket> day : rollups.get(Granularity.DAY)
+                .subMap(new RollupKey(category, first), true, new RollupKey(category, last.plusDays(6)), true)
+                .entrySet()) {
+            LocalDate dayWeek = Granularity.WEEK.start(day.getKey().period());
+            if (!dayWeek.equals(week) && week != null) {
+                sum.addTo(totals, week);
+                sum = new Bucket();
+            }
+            week = dayWeek;
+            sum.merge(day.getValue());
+        }
+        if (week != null) {
+            sum.addTo(totals, week);
+        }
+        return totals;
+    }
+
+    @Override
+    public Map<String, BigDecimal> getCategoryTotals() {
+        Map<String, BigDecimal> totals = new HashMap<>();
+        byCategory.forEach((category, bucket) -> {
+            BigDecimal value = bucket.valueOrNull();
+            if (value != null) {
+                totals.put(category, value);
+            }
+        });
+        return totals;
+    }
+
+    /** The fields a row is aggregated by. */
+    public interface Row {
+        String category();
+
+        LocalDateTime date();
+
+        BigDecimal amount();
+    }
+
+    public record PeriodTotal(LocalDate period, long count, BigDecimal total) {
+    }
+
+    /** Sorts by category, with {@code null} (all categories) first, then by period start. */
+    private record RollupKey(String category, LocalDate period) implements Comparable<RollupKey> {
+        private static final Comparator<RollupKey> ORDER = Comparator
+                .comparing(RollupKey::category, Comparator.nullsFirst(Comparator.<String>naturalOrder()))
+                .thenComparing(RollupKey::period);
+
+        @Override
+        public int compareTo(RollupKey other) {
+            return ORDER.compare(this, other);
+        }
+    }
+
+    private static BigDecimal value(Bucket bucket) {
+        return bucket != null ? bucket.value() : BigDecimal.ZERO;
+    }
+
+    /**
+     * Count and sum of some rows, updated in place under the bucket's own lock. The sum is a
+     * fixed-point long at the largest scale added so far, so updates allocate nothing; it only
+     * moves to a {@link BigDecimal} once the long would overflow or an amount has more than
+     * {@value #MAX_SCALE} decimals. Rows are also counted per amount scale so that
+     * {@link #value()} has exactly the scale a fresh {@code reduce(ZERO, add)} over the remaining
+     * rows would produce, even after removals.
+     */
+    static final class Bucket {
+        static final int MAX_SCALE = 18;
+        /** {@link #unscaled(BigDecimal, int)} of an amount that does not fit a long. */
+        static final long UNFIXED = Long.MIN_VALUE;
+        private static final long[] POWERS_OF_TEN = new long[MAX_SCALE + 1];
+
+        static {
+            POWERS_OF_TEN[0] = 1;
+            for (int i = 1; i <= MAX_SCALE; i++) {
+                POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+            }
+        }
+
+        private long count;
+        private long unscaled;
+        private int scale;
+        private BigDecimal overflow;
+        private long[] scaleCounts = new long[3];
+
+        /**
+         * The amount as a long at {@code scale}, which is its own scale or 0 if negative, or
+         * {@link #UNFIXED} when that needs more than 18 digits.
+         */
+        static long unscaled(BigDecimal amount, int scale) {
+            if (scale > MAX_SCALE || amount.precision() - amount.scale() + scale > MAX_SCALE) {
+                return UNFIXED;
+            }
+            return amount.movePointRight(scale).longValue();
+        }
+
+        /** Adds ({@code sign} 1) or removes ({@code sign} -1) one row. */
+        synchronized void add(long amountUnscaled, int amountScale, BigDecimal amount, int sign) {
+            count += sign;
+            if (amountScale >= scaleCounts.length) {
+                scaleCounts = Arrays.copyOf(scaleCounts, amountScale + 1);
+            }
+            scaleCounts[amountScale] += sign;
+            addToSum(amountUnscaled, amountScale, amount, sign);
+        }
+
+        /** Adds every row of {@code other}. */
+        void merge(Bucket other) {
+            long otherCount;
+            long[] otherScaleCounts;
+            long otherUnscaled;
+            int otherScale;
+            BigDecimal otherOverflow;
+            synchronized (other) {
+                otherCount = other.count;
+                otherScaleCounts = other.scaleCounts.clone();
+                otherUnscaled = other.unscaled;
+                otherScale = other.scale;
+                otherOverflow = other.overflow;
+            }
+            synchronized (this) {
+                count += otherCount;
+                if (otherScaleCounts.length > scaleCounts.length) {
+                    scaleCounts = Arrays.copyOf(scaleCounts, otherScaleCounts.length);
+                }
+                for (int i = 0; i < otherScaleCounts.length; i++) {
+                    scaleCounts[i] += otherScaleCounts[i];
+                }
+                if (otherOverflow != null) {
+                    addToSum(UNFIXED, 0, otherOverflow, 1);
+                } else {
+                    addToSum(otherUnscaled, otherScale, null, 1);
+                }
+            }
+        }
+
+        private void addToSum(long amountUnscaled, int amountScale, BigDecimal amount, int sign) {
+            if (overflow == null && amountUnscaled != UNFIXED) {
+                try {
+                    if (amountScale > scale) {
+                        unscaled = Math.multiplyExact(unscaled, POWERS_OF_TEN[amountScale - scale]);
+                        scale = amountScale;
+                    }
+                    long term = Math.multiplyExact(amountUnscaled, POWERS_OF_TEN[scale - amountScale]);
+                    unscaled = sign > 0 ? Math.addExact(unscaled, term) : Math.subtractExact(unscaled, term);
+                    return;
+                } catch (ArithmeticException e) {
+                    // Falls back to BigDecimal below
+                }
+            }
+            if (overflow == null) {
+                overflow = BigDecimal.valueOf(unscaled, scale);
+            }
+            BigDecimal term = amount != null ? amount : BigDecimal.valueOf(amountUnscaled, amountScale);
+            overflow = sign > 0 ? overflow.add(term) : overflow.subtract(term);
+        }
+
+        synchronized BigDecimal value() {
+            BigDecimal value = valueOrNull();
+            return value != null ? value : BigDecimal.ZERO;
+        }
+
+        /** The sum, or {@code null} when the bucket holds no rows. */
+        synchronized BigDecimal valueOrNull() {
+            if (count == 0) {
+                return null;
+            }
+            int valueScale = scaleCounts.length - 1;
+            while (valueScale > 0 && scaleCounts[valueScale] == 0) {
+                valueScale--;
+            }
+            BigDecimal sum = overflow != null ? overflow : BigDecimal.valueOf(unscaled, scale);
+            return sum.setScale(valueScale, RoundingMode.UNNECESSARY);
+        }
+
+        synchronized void addTo(List<PeriodTotal> totals, LocalDate period) {
+            if (count != 0) {
+                totals.add(new PeriodTotal(period, count, valueOrNull()));
+            }
+        }
+    }
+}
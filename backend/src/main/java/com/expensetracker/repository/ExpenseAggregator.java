@@ -0,0 +1,102 @@
+package com.expensetracker.repository;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.Supplier;
+
+/**
+ * Builds {@link ExpenseAggregates} over many rows at once, as on startup. The rows come in parts,
+ * such as the segments of the repository's stores, that each sum into partial aggregates on a
+ * dedicated {@link ForkJoinPool}; the partials are merged in part order, per group of parts. Sums are exact, so the
+ * result is the same as adding every row on one thread, whatever the scheduling. Fewer rows than
+ * the threshold are summed on the calling thread.
+ */
+public class ExpenseAggregator implements AutoCloseable {
+    public static final int DEFAULT_THRESHOLD = 100_000;
+    /** Sums every batch on the calling thread. */
+    public static final ExpenseAggregator SEQUENTIAL = new ExpenseAggregator(null, Integer.MAX_VALUE);
+
+    private static final int MIN_SEGMENT = 4_096;
+    private static final int SEGMENTS_PER_THREAD = 4;
+
+    private final ForkJoinPool pool;
+    private final int threshold;
+
+    /** A {@code parallelism} of 0 or less uses one thread per available processor. */
+    public ExpenseAggregator(int parallelism, int threshold) {
+        this(new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors()), threshold);
+    }
+
+    private ExpenseAggregator(ForkJoinPool pool, int threshold) {
+        if (threshold < 0) {
+            throw new IllegalArgumentException("Threshold must not be negative: " + threshold);
+        }
+        this.pool = pool;
+        this.threshold = threshold;
+    }
+
+    /**
+     * How many parts {@code rows} rows should be split into: a few per thread of the pool, so that an
+     * uneven split still keeps every thread busy, but none smaller than a few thousand rows. One
+     * below the threshold.
+     */
+    public int segments(long rows) {
+        if (pool == null || rows < threshold) {
+            return 1;
+        }
+        return (int) Math.max(1, Math.min((long) pool.getParallelism() * SEGMENTS_PER_THREAD, rows / MIN_SEGMENT));
+    }
+
+    /**
+     * Merges the partial aggregates the {@code parts} build, in part order. The parts run as tasks on
+     * the pool when they hold {@code rows} of at least the threshold between them, and one after the
+     * other on the calling thread otherwise.
+     */
+    public ExpenseAggregates aggregate(long rows, List<? extends Supplier<ExpenseAggregates>> parts) {
+        return aggregateGroups(rows, List.of(parts)).get(0);
+    }
+
+    /**
+     * Like {@link #aggregate(long, List)} for several groups of parts at once, such as the segments of
+     * each shard: every part of every group is scheduled together, and each group is merged on its own.
+     */
+    public List<ExpenseAggregates> aggregateGroups(long rows, List<? extends List<? extends Supplier<ExpenseAggregates>>> groups) {
+        int parts = groups.stream().mapToInt(List::size).sum();
+        List<ExpenseAggregates> merged = new ArrayList<>(groups.size());
+        if (pool == null || parts <= 1 || rows < threshold) {
+            for (List<? extends Supplier<ExpenseAggregates>> group : groups) {
+                ExpenseAggregates totals = group.isEmpty() ? new ExpenseAggregates() : group.get(0).get();
+                for (int i = 1; i < group.size(); i++) {
+                    totals.addAll(group.get(i).get());
+                }
+                merged.add(totals);
+            }
+            return merged;
+        }
+        List<List<ForkJoinTask<ExpenseAggregates>>> tasks = new ArrayList<>(groups.size());
+        for (List<? extends Supplier<ExpenseAggregates>> group : groups) {
+            List<ForkJoinTask<ExpenseAggregates>> groupTasks = new ArrayList<>(group.size());
+            for (Supplier<ExpenseAggregates> part : group) {
+                groupTasks.add(pool.submit(part::get));
+            }
+            tasks.add(groupTasks);
+        }
+        for (List<ForkJoinTask<ExpenseAggregates>> groupTasks : tasks) {
+            ExpenseAggregates totals = groupTasks.isEmpty() ? new ExpenseAggregates() : groupTasks.get(0).join();
+            for (int i = 1; i < groupTasks.size(); i++) {
+                totals.addAll(groupTasks.get(i).join());
+            }
+            merged.add(totals);
+        }
+        return merged;
+    }
+
+    @Override
+    public void close() {
+        if (pool != null) {
+            pool.shutdown();
+        }
+    }
+}
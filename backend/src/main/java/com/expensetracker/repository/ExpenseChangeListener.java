@@ -0,0 +1,11 @@
+package com.expensetracker.repository;
+
+import java.time.LocalDateTime;
+
+/** Told about every change once the store reflects it, before the write returns to its caller. */
+@FunctionalInterface
+public interface ExpenseChangeListener {
+
+    /** {@code previousDate} is {@code null} for a new expense and {@code date} is {@code null} for a delete. */
+    void expenseChanged(LocalDateTime previousDate, LocalDateTime date);
+}
@@ -1,73 +1,698 @@
 package com.expensetracker.repository;
 
 import com.expensetracker.model.Expense;
+import com.expensetracker.persistence.ExpensePersistence;
+import com.expensetracker.persistence.MappedSnapshot;
+import com.expensetracker.persistence.NoOpExpensePersistence;
+import com.expensetracker.persistence.RecoveredState;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Repository;
+import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 @Repository
 public class ExpenseRepository {
-    private final Map<Long, Expense> expenses = new ConcurrentHashMap<>();
-    private final AtomicLong idGenerator = new AtomicLong(1);
+    private static final long NOT_FOUND = -1;
+    private static final long ANY_VERSION = Long.MIN_VALUE;
+    private static final int ROW_LOCK_STRIPES = 256;
+
+    // Rows are split by id over shards, each with its own store, indexes and id sequence, so that
+    // parallel inserts contend on neither one counter nor one map. Queries merge the shards.
+    private final ExpenseSharding sharding;
+    private final Shard[] shards;
+
+    // The service saves edited copies, but callers may still mutate a stored instance before
+    // saving it, so unless the store hands out copies the indexed values of each row are
+    // remembered separately.
+    private final boolean rememberIndexedRows;
+    private final CategoryDictionary categories = new CategoryDictionary();
+    private final ExpenseTotals totals;
+    private final List<ExpenseChangeListener> listeners = new CopyOnWriteArrayList<>();
+
+    private final ExpensePersistence persistence;
+
+    // Writers of one id take its stripe from reading the current row until the change is visible, so
+    // the log append, and any fsync it waits for, and the index and total updates happen outside the
+    // store's compute. That holds a monitor in the heap store, which would pin a virtual thread to its
+    // carrier, and the store-wide write lock in the columnar one, which blocks all reads of the shard.
+    private final ReentrantLock[] rowLocks =
+            Stream.generate(ReentrantLock::new).limit(ROW_LOCK_STRIPES).toArray(ReentrantLock[]::new);
+
+    public ExpenseRepository() {
+        this(new NoOpExpensePersistence());
+    }
+
+    public ExpenseRepository(ExpensePersistence persistence) {
+        this(persistence, ExpenseStorageEngine.HEAP);
+    }
+
+    public ExpenseRepository(ExpensePersistence persistence, ExpenseStorageEngine engine) {
+        this(persistence, engine, ExpenseAggregator.SEQUENTIAL);
+    }
+
+    public ExpenseRepository(ExpensePersistence persistence, ExpenseStorageEngine engine, ExpenseAggregator aggregator) {
+        this(persistence, engine, aggregator, ExpenseSharding.SINGLE);
+    }
+
+    @Autowired
+    public ExpenseRepository(ExpensePersistence persistence, ExpenseStorageEngine engine, ExpenseAggregator aggregator,
+                             ExpenseSharding sharding) {
+        this.persistence = persistence;
+        this.sharding = sharding;
+        RecoveredState state = persistence.recover();
+        shards = new Shard[sharding.shards()];
+        if (shards.length == 1) {
+            shards[0] = new Shard(engine.create(state.snapshot()));
+        } else {
+            // A snapshot holds every shard's rows, so it is copied into the shards instead of read in place
+            for (int i = 0; i < shards.length; i++) {
+                shards[i] = new Shard(engine.create(null));
+            }
+            MappedSnapshot snapshot = state.snapshot();
+            for (int row = 0; snapshot != null && row < snapshot.size(); row++) {
+                Expense expense = snapshot.materialize(row);
+                shard(expense.getId()).expenses.compute(expense.getId(), (id, previous) -> expense);
+            }
+        }
+        rememberIndexedRows = !shards[0].expenses.returnsCopies();
+        state.changes().forEach((id, expense) -> shard(id).expenses.compute(id, (key, previous) -> expense));
+        long recovered = 0;
+        for (int i = 0; i < shards.length; i++) {
+            recovered += shards[i].expenses.size();
+            shards[i].sequence.set(sharding.firstSequence(i, state.nextId()));
+        }
+        // Every shard is split into segments, so that one shard, the default, is still rebuilt on every
+        // thread of the pool; the indexes are concurrent, and segments never share a row
+        int segmentsPerShard = (aggregator.segments(recovered) + shards.length - 1) / shards.length;
+        List<List<Supplier<ExpenseAggregates>>> parts = new ArrayList<>();
+        for (Shard shard : shards) {
+            List<Supplier<ExpenseAggregates>> shardParts = new ArrayList<>();
+            for (ExpenseStore.Segment segment : shard.expenses.segments(segmentsPerShard)) {
+                shardParts.add(() -> recover(shard, segment));
+            }
+            parts.add(shardParts);
+        }
+        List<ExpenseAggregates> shardTotals = aggregator.aggregateGroups(recovered, parts);
+        for (int i = 0; i < shards.length; i++) {
+            shards[i].aggregates = shardTotals.get(i);
+        }
+        totals = shards.length == 1 ? shardTotals.get(0) : new MergedExpenseTotals(shardTotals);
+        persistence.start(this::values, this::nextId);
+    }
 
     public Expense save(Expense expense) {
         if (expense.getId() == null) {
-            expense.setId(idGenerator.getAndIncrement());
+            int shard = localShard();
+            expense.setId(sharding.id(shard, shards[shard].sequence.getAndIncrement()));
         } else {
             expense.setUpdatedAt(LocalDateTime.now());
         }
-        expenses.put(expense.getId(), expense);
+        persistence.awaitDurable(write(expense, ANY_VERSION));
         return expense;
     }
 
+    /**
+     * Saves an existing row only if it is still at {@code expectedVersion}. The check and the swap
+     * happen under the row's lock, so of two updates based on the same version exactly one wins;
+     * the other gets an {@link ExpenseVersionConflictException}, as does an update of a deleted row.
+     */
+    public Expense save(Expense expense, long expectedVersion) {
+        expense.setUpdatedAt(LocalDateTime.now());
+        persistence.awaitDurable(write(expense, expectedVersion));
+        return expense;
+    }
+
+    /**
+     * Saves a batch in one pass: ids for new rows are taken from one shard's sequence as one block,
+     * which makes them consecutive when there is a single shard, and the caller waits for
+     * durability once, after the last row.
+     */
+    public List<Expense> saveAll(List<Expense> batch) {
+        long newRows = batch.stream().filter(expense -> expense.getId() == null).count();
+        int shard = localShard();
+        long sequence = shards[shard].sequence.getAndAdd(newRows);
+        LocalDateTime now = LocalDateTime.now();
+        long logPosition = 0;
+        for (Expense expense : batch) {
+            if (expense.getId() == null) {
+                expense.setId(sharding.id(shard, sequence++));
+            } else {
+                expense.setUpdatedAt(now);
+            }
+            logPosition = Math.max(logPosition, write(expense, ANY_VERSION));
+        }
+        persistence.awaitDurable(logPosition);
+        return batch;
+    }
+
+    /**
+     * Saves a batch of existing rows, each only if it is still at the version it was read at, with a
+     * single durability wait. The result tells which rows were saved; the others had been changed or
+     * deleted in the meantime and are left as they are.
+     */
+    public List<Boolean> saveAllIfUnchanged(List<Expense> batch) {
+        LocalDateTime now = LocalDateTime.now();
+        List<Boolean> saved = new ArrayList<>(batch.size());
+        long logPosition = 0;
+        for (Expense expense : batch) {
+            expense.setUpdatedAt(now);
+            try {
+                logPosition = Math.max(logPosition, write(expense, expense.getVersion()));
+                saved.add(true);
+            } catch (ExpenseVersionConflictException e) {
+                saved.add(false);
+            }
+        }
+        persistence.awaitDurable(logPosition);
+        return saved;
+    }
+
     public Optional<Expense> findById(Long id) {
-        return Optional.ofNullable(expenses.get(id));
+        return Optional.ofNullable(shard(id).expenses.get(id));
     }
 
     public List<Expense> findAll() {
-        return new ArrayList<>(expenses.values());
+        return new ArrayList<>(values());
     }
 
     public void deleteById(Long id) {
-        expenses.remove(id);
+        long logPosition = remove(id);
+        if (logPosition != NOT_FOUND) {
+            persistence.awaitDurable(logPosition);
+        }
+    }
+
+    /** Deletes a batch with a single durability wait; the result tells which ids existed. */
+    public List<Boolean> deleteAllById(List<Long> ids) {
+        List<Boolean> deleted = new ArrayList<>(ids.size());
+        long logPosition = 0;
+        for (Long id : ids) {
+            long position = remove(id);
+            deleted.add(position != NOT_FOUND);
+            logPosition = Math.max(logPosition, position);
+        }
+        persistence.awaitDurable(logPosition);
+        return deleted;
+    }
+
+    public void addChangeListener(ExpenseChangeListener listener) {
+        listeners.add(listener);
+    }
+
+    /** Increases with every change; it restarts from zero with the process. */
+    public long getVersion() {
+        long version = 0;
+        for (Shard shard : shards) {
+            version += shard.version.get();
+        }
+        return version;
+    }
+
+    public long getYearVersion(int year) {
+        long version = 0;
+        for (Shard shard : shards) {
+            version += shard.yearVersions.getOrDefault(year, 0L);
+        }
+        return version;
+    }
+
+    public long getMonthVersion(int year, int month) {
+        YearMonth yearMonth = YearMonth.of(year, month);
+        long version = 0;
+        for (Shard shard : shards) {
+            version += shard.monthVersions.getOrDefault(yearMonth, 0L);
+        }
+        return version;
+    }
+
+    public long getCategoryVersion(String category) {
+        if (category == null) {
+            return 0L;
+        }
+        long version = 0;
+        for (Shard shard : shards) {
+            version += shard.categoryVersions.getOrDefault(category, 0L);
+        }
+        return version;
+    }
+
+    /** Running totals over all shards, merged on every read when there is more than one. */
+    public ExpenseTotals getAggregates() {
+        return totals;
+    }
+
+    /** Number of stored rows over all shards. */
+    public long count() {
+        long rows = 0;
+        for (Shard shard : shards) {
+            rows += shard.expenses.size();
+        }
+        return rows;
+    }
+
+    /** Entries in the date index; kept as a counter because sizing a skip list walks all of it. */
+    public long getDateIndexSize() {
+        long entries = 0;
+        for (Shard shard : shards) {
+            entries += shard.dateEntries.sum();
+        }
+        return entries;
+    }
+
+    /** Row ids in the category index, which leaves out rows without a category. */
+    public long getCategoryIndexSize() {
+        long postings = 0;
+        for (Shard shard : shards) {
+            postings += shard.postings.sum();
+        }
+        return postings;
     }
 
     public List<Expense> findByDateBetween(LocalDateTime startDate, LocalDateTime endDate) {
-        return expenses.values().stream()
-                .filter(expense -> expense.getDate().isAfter(startDate.minusSeconds(1)) && 
-                                 expense.getDate().isBefore(endDate.plusSeconds(1)))
-                .collect(Collectors.toList());
+        return streamByDateBetween(startDate, endDate, null, null).collect(Collectors.toList());
     }
 
     public List<Expense> findByCategory(String category) {
-        return expenses.values().stream()
-                .filter(expense -> expense.getCategory().equals(category))
-                .collect(Collectors.toList());
+        return streamByCategory(category, null).collect(Collectors.toList());
+    }
+
+    /** Lazily walks the expenses of one category in id order, resuming after {@code afterId} when given. */
+    public Stream<Expense> streamByCategory(String category, Long afterId) {
+        int code = categories.find(category);
+        List<NavigableSet<Long>> postings = new ArrayList<>(shards.length);
+        for (Shard shard : shards) {
+            NavigableSet<Long> ids = shard.categoryIndex.get(code);
+            if (ids != null) {
+                postings.add(afterId != null ? ids.tailSet(afterId, false) : ids);
+            }
+        }
+        return merge(postings, Comparator.naturalOrder())
+                .map(id -> shard(id).expenses.get(id))
+                .filter(Objects::nonNull);
     }
 
     public List<Expense> findRecentExpenses(int limit) {
-        return expenses.values().stream()
-                .sorted((e1, e2) -> e2.getDate().compareTo(e1.getDate()))
-                .limit(limit)
-                .collect(Collectors.toList());
+        // The date index is already ordered, so this reads only the newest `limit` entries
+        return streamByDate(false, null, null).limit(limit).collect(Collectors.toList());
     }
 
     public List<Expense> findByMonth(int year, int month) {
-    return expenses.values().stream()
-            .filter(expense -> expense.getDate().getYear() == year && 
-                             expense.getDate().getMonthValue() == month)
-            .sorted(Comparator.comparing(Expense::getDate))
-            .collect(Collectors.toList());
-}
+        return streamByMonth(year, month, null, null).collect(Collectors.toList());
+    }
 
-public List<Expense> findByYear(int year) {
-    return expenses.values().stream()
-            .filter(expense -> expense.getDate().getYear() == year)
-            .sorted(Comparator.comparing(Expense::getDate))
-            .collect(Collectors.toList());
-}
+    public List<Expense> findByYear(int year) {
+        return walk(DateKey.of(LocalDateTime.of(year, 1, 1, 0, 0), Long.MIN_VALUE), true,
+                DateKey.of(LocalDateTime.of(year + 1, 1, 1, 0, 0), Long.MIN_VALUE), false,
+                true, null).collect(Collectors.toList());
+    }
 
+    /**
+     * Lazily walks every expense in (date, id) order. When {@code afterDate} is given the walk
+     * resumes strictly after that (date, id) position, which is what keyset pagination needs.
+     */
+    public Stream<Expense> streamByDate(boolean ascending, LocalDateTime afterDate, Long afterId) {
+        return walk(DateKey.MIN, true, DateKey.MAX, true, ascending, afterKey(afterDate, afterId));
+    }
+
+    /** Lazily walks expenses dated from {@code from} through {@code to}, both inclusive; null bounds are open. */
+    public Stream<Expense> streamByDateRange(LocalDateTime from, LocalDateTime to) {
+        return walk(from != null ? DateKey.of(from, Long.MIN_VALUE) : DateKey.MIN, true,
+                to != null ? DateKey.of(to, Long.MAX_VALUE) : DateKey.MAX, true,
+                true, null);
+    }
+
+    public Stream<Expense> streamByDateBetween(LocalDateTime startDate, LocalDateTime endDate,
+                                               LocalDateTime afterDate, Long afterId) {
+        // Same bounds as the original scan: after (start - 1s) and before (end + 1s)
+        return walk(DateKey.of(startDate.minusSeconds(1), Long.MAX_VALUE), false,
+                DateKey.of(endDate.plusSeconds(1), Long.MIN_VALUE), false,
+                true, afterKey(afterDate, afterId));
+    }
+
+    public Stream<Expense> streamByMonth(int year, int month, LocalDateTime afterDate, Long afterId) {
+        YearMonth yearMonth = YearMonth.of(year, month);
+        return walk(DateKey.of(yearMonth.atDay(1).atStartOfDay(), Long.MIN_VALUE), true,
+                DateKey.of(yearMonth.plusMonths(1).atDay(1).atStartOfDay(), Long.MIN_VALUE), false,
+                true, afterKey(afterDate, afterId));
+    }
+
+    /**
+     * Lazily walks every expense in (amount, id) order, resuming strictly after that position when
+     * {@code afterAmount} is given. A descending walk reads the same view backwards.
+     */
+    public Stream<Expense> streamByAmount(boolean ascending, BigDecimal afterAmount, Long afterId) {
+        AmountKey after = afterAmount != null ? new AmountKey(afterAmount, afterId) : null;
+        List<NavigableSet<AmountKey>> views = new ArrayList<>(shards.length);
+        for (Shard shard : shards) {
+            NavigableSet<AmountKey> view = ascending ? shard.amountIndex : shard.amountIndex.descendingSet();
+            views.add(after != null ? view.tailSet(after, false) : view);
+        }
+        return merge(views, ascending ? Comparator.<AmountKey>naturalOrder() : Comparator.<AmountKey>reverseOrder())
+                .map(key -> shard(key.id()).expenses.get(key.id()))
+                .filter(Objects::nonNull);
+    }
+
+    /**
+     * Lazily walks the expenses that have a category in (category, id) order, resuming strictly after
+     * that position when {@code afterCategory} is given. The id postings of each category are already
+     * sorted, so this reads the category index one name at a time, in name order.
+     */
+    public Stream<Expense> streamByCategoryName(boolean ascending, String afterCategory, Long afterId) {
+        NavigableMap<String, Integer> names = ascending ? categories.ordered() : categories.ordered().descendingMap();
+        if (afterCategory != null) {
+            names = names.tailMap(afterCategory, true);
+        }
+        Comparator<Long> order = ascending ? Comparator.naturalOrder() : Comparator.reverseOrder();
+        return names.entrySet().stream()
+                .flatMap(name -> {
+                    boolean resume = name.getKey().equals(afterCategory);
+                    List<NavigableSet<Long>> postings = new ArrayList<>(shards.length);
+                    for (Shard shard : shards) {
+                        NavigableSet<Long> ids = shard.categoryIndex.get(name.getValue());
+                        if (ids != null) {
+                            NavigableSet<Long> view = ascending ? ids : ids.descendingSet();
+                            postings.add(resume ? view.tailSet(afterId, false) : view);
+                        }
+                    }
+                    return merge(postings, order);
+                })
+                .map(id -> shard(id).expenses.get(id))
+                .filter(Objects::nonNull);
+    }
+
+    private Stream<Expense> walk(DateKey lower, boolean lowerInclusive, DateKey upper, boolean upperInclusive,
+                                 boolean ascending, DateKey after) {
+        if (after != null && ascending && after.compareTo(lower) >= 0) {
+            lower = after;
+            lowerInclusive = false;
+        } else if (after != null && !ascending && after.compareTo(upper) <= 0) {
+            upper = after;
+            upperInclusive = false;
+        }
+        if (lower.compareTo(upper) > 0) {
+            return Stream.empty();
+        }
+        List<NavigableSet<DateKey>> ranges = new ArrayList<>(shards.length);
+        for (Shard shard : shards) {
+            NavigableSet<DateKey> range = shard.dateIndex.subSet(lower, lowerInclusive, upper, upperInclusive);
+            ranges.add(ascending ? range : range.descendingSet());
+        }
+        return merge(ranges, ascending ? Comparator.<DateKey>naturalOrder() : Comparator.<DateKey>reverseOrder())
+                .map(key -> shard(key.id()).expenses.get(key.id()))
+                .filter(Objects::nonNull);
+    }
+
+    /** Lazily merges sets that are each sorted by {@code order} into one stream in that order. */
+    private static <T> Stream<T> merge(List<NavigableSet<T>> sets, Comparator<? super T> order) {
+        if (sets.size() == 1) {
+            return sets.get(0).stream();
+        }
+        List<Iterator<T>> iterators = new ArrayList<>(sets.size());
+        for (NavigableSet<T> set : sets) {
+            iterators.add(set.iterator());
+        }
+        Iterator<T> merged = new Iterator<>() {
+            // Holds the next element of every iterator that has one, paired with its iterator index
+            private final PriorityQueue<Map.Entry<T, Integer>> heads =
+                    new PriorityQueue<>(Map.Entry.comparingByKey(order));
+
+            {
+                for (int i = 0; i < iterators.size(); i++) {
+                    advance(i);
+                }
+            }
+
+            @Override
+            public boolean hasNext() {
+                return !heads.isEmpty();
+            }
+
+            @Override
+            public T next() {
+                Map.Entry<T, Integer> head = heads.poll();
+                if (head == null) {
+                    throw new NoSuchElementException();
+                }
+                advance(head.getValue());
+                return head.getKey();
+            }
+
+            private void advance(int i) {
+                if (iterators.get(i).hasNext()) {
+                    heads.add(Map.entry(iterators.get(i).next(), i));
+                }
+            }
+        };
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(merged, Spliterator.ORDERED), false);
+    }
+
+    private long write(Expense expense, long expectedVersion) {
+        long id = expense.getId();
+        Shard shard = shard(id);
+        IndexedRow[] replaced = new IndexedRow[1];
+        long logPosition;
+        ReentrantLock rowLock = rowLock(id);
+        rowLock.lock();
+        try {
+            Expense previous = shard.expenses.get(id);
+            if (expectedVersion != ANY_VERSION && (previous == null || previous.getVersion() != expectedVersion)) {
+                throw new ExpenseVersionConflictException(id, expectedVersion);
+            }
+            expense.setVersion(previous != null ? previous.getVersion() + 1 : 1);
+            logPosition = persistence.logged(() -> {
+                // Logged before the in-memory change so a failed append leaves the row untouched
+                long position = persistence.logSave(expense);
+                replaced[0] = reindex(shard, id, previous, expense.getDate(), expense.getCategory(), expense.getAmount());
+                shard.expenses.compute(id, (key, current) -> expense);
+                return position;
+            });
+        } finally {
+            rowLock.unlock();
+        }
+        // Outside the lock, so that versions move and listeners hear of the change once readers can see it
+        changed(shard, replaced[0], IndexedRow.of(id, expense));
+        return logPosition;
+    }
+
+    /** Returns the log position of the delete, or {@link #NOT_FOUND} when there was no such row. */
+    private long remove(long id) {
+        Shard shard = shard(id);
+        IndexedRow[] removed = new IndexedRow[1];
+        long logPosition;
+        ReentrantLock rowLock = rowLock(id);
+        rowLock.lock();
+        try {
+            Expense expense = shard.expenses.get(id);
+            if (expense == null) {
+                return NOT_FOUND;
+            }
+            logPosition = persistence.logged(() -> {
+                long position = persistence.logDelete(id);
+                IndexedRow indexed = rememberIndexedRows ? shard.indexedRows.remove(id) : IndexedRow.of(id, expense);
+                if (indexed != null) {
+                    removeDateKey(shard, indexed.dateKey());
+                    shard.amountIndex.remove(new AmountKey(indexed.amount(), id));
+                    removePosting(shard, indexed.category(), id);
+                    shard.aggregates.remove(indexed.category(), indexed.date(), indexed.amount());
+                    removed[0] = indexed;
+                }
+                shard.expenses.compute(id, (key, current) -> null);
+                return position;
+            });
+        } finally {
+            rowLock.unlock();
+        }
+        changed(shard, removed[0], null);
+        return logPosition;
+    }
+
+    private void changed(Shard shard, IndexedRow previous, IndexedRow current) {
+        long changeVersion = shard.version.incrementAndGet();
+        for (IndexedRow row : new IndexedRow[] {previous, current}) {
+            if (row != null) {
+                shard.monthVersions.merge(YearMonth.from(row.date()), changeVersion, Math::max);
+                shard.yearVersions.merge(row.date().getYear(), changeVersion, Math::max);
+                if (row.category() != null) {
+                    shard.categoryVersions.merge(row.category(), changeVersion, Math::max);
+                }
+            }
+        }
+        LocalDateTime previousDate = previous != null ? previous.date() : null;
+        LocalDateTime date = current != null ? current.date() : null;
+        for (ExpenseChangeListener listener : listeners) {
+            listener.expenseChanged(previousDate, date);
+        }
+    }
+
+    private static DateKey afterKey(LocalDateTime afterDate, Long afterId) {
+        return afterDate != null ? DateKey.of(afterDate, afterId) : null;
+    }
+
+    /** Returns the values the row was indexed under before, or {@code null} for a new row. */
+    private IndexedRow reindex(Shard shard, long id, Expense before, LocalDateTime date, String category,
+                               BigDecimal amount) {
+        IndexedRow row = index(shard, id, date, category, amount);
+        IndexedRow previous = rememberIndexedRows ? shard.indexedRows.put(id, row) : IndexedRow.of(id, before);
+        if (previous != null) {
+            if (!previous.dateKey().equals(row.dateKey())) {
+                removeDateKey(shard, previous.dateKey());
+            }
+            // Keys compare amounts by value, so 1.0 and 1.00 are one entry
+            if (previous.amount().compareTo(row.amount()) != 0) {
+                shard.amountIndex.remove(new AmountKey(previous.amount(), id));
+            }
+            if (!Objects.equals(previous.category(), row.category())) {
+                removePosting(shard, previous.category(), id);
+            }
+            shard.aggregates.remove(previous.category(), previous.date(), previous.amount());
+        }
+        shard.aggregates.add(row.category(), row.date(), row.amount());
+        return previous;
+    }
+
+    /** Adds one segment of a shard's store to its indexes, summing its rows into their own totals on the way. */
+    private ExpenseAggregates recover(Shard shard, ExpenseStore.Segment segment) {
+        ExpenseAggregates totals = new ExpenseAggregates();
+        segment.forEachIndexed((id, date, category, amount) -> {
+            IndexedRow row = index(shard, id, date, category, amount);
+            if (rememberIndexedRows) {
+                shard.indexedRows.put(id, row);
+            }
+            totals.add(row);
+        });
+        return totals;
+    }
+
+    /** Adds the row to the date and category indexes; the returned row holds the shared category string. */
+    private IndexedRow index(Shard shard, long id, LocalDateTime date, String category, BigDecimal amount) {
+        int categoryCode = categories.encode(category);
+        IndexedRow row = new IndexedRow(DateKey.of(date, id), date, categories.decode(categoryCode), amount);
+        if (shard.dateIndex.add(row.dateKey())) {
+            shard.dateEntries.increment();
+        }
+        shard.amountIndex.add(new AmountKey(amount, id));
+        if (categoryCode != CategoryDictionary.NULL_CODE
+                && shard.categoryIndex.computeIfAbsent(categoryCode, code -> new ConcurrentSkipListSet<>()).add(id)) {
+            shard.postings.increment();
+        }
+        return row;
+    }
+
+    private static void removeDateKey(Shard shard, DateKey key) {
+        if (shard.dateIndex.remove(key)) {
+            shard.dateEntries.decrement();
+        }
+    }
+
+    private void removePosting(Shard shard, String category, long id) {
+        NavigableSet<Long> ids = shard.categoryIndex.get(categories.find(category));
+        if (ids != null && ids.remove(id)) {
+            shard.postings.decrement();
+        }
+    }
+
+    private ReentrantLock rowLock(long id) {
+        return rowLocks[(int) Math.floorMod(id ^ (id >>> 32), (long) ROW_LOCK_STRIPES)];
+    }
+
+    private Shard shard(long id) {
+        return shards[sharding.shardOf(id)];
+    }
+
+    /** The shard new rows of the calling thread go to, so that threads inserting in parallel rarely share one. */
+    private int localShard() {
+        return (int) Math.floorMod(Thread.currentThread().getId(), (long) shards.length);
+    }
+
+    /** Weakly consistent view of the rows of every shard. */
+    private Collection<Expense> values() {
+        if (shards.length == 1) {
+            return shards[0].expenses.values();
+        }
+        List<Expense> rows = new ArrayList<>();
+        for (Shard shard : shards) {
+            rows.addAll(shard.expenses.values());
+        }
+        return rows;
+    }
+
+    private long nextId() {
+        long[] sequences = new long[shards.length];
+        for (int i = 0; i < shards.length; i++) {
+            sequences[i] = shards[i].sequence.get();
+        }
+        return sharding.nextId(sequences);
+    }
+
+    /** A slice of the rows with its own store, derived indexes and id sequence. */
+    private static final class Shard {
+        final ExpenseStore expenses;
+        final AtomicLong sequence = new AtomicLong();
+        // Kept in sync with the store under its per-key lock
+        final NavigableSet<DateKey> dateIndex = new ConcurrentSkipListSet<>();
+        final NavigableSet<AmountKey> amountIndex = new ConcurrentSkipListSet<>();
+        final Map<Long, IndexedRow> indexedRows = new ConcurrentHashMap<>();
+        final Map<Integer, NavigableSet<Long>> categoryIndex = new ConcurrentHashMap<>();
+        final LongAdder dateEntries = new LongAdder();
+        final LongAdder postings = new LongAdder();
+        // Totals and data versions are kept per shard too, so writers to different shards share no
+        // bucket or counter; reads add up the shards. A shard's version counts its changes, and a
+        // partition holds the shard version of its last change there, so every sum only grows.
+        ExpenseAggregates aggregates;
+        final AtomicLong version = new AtomicLong();
+        final Map<YearMonth, Long> monthVersions = new ConcurrentHashMap<>();
+        final Map<Integer, Long> yearVersions = new ConcurrentHashMap<>();
+        final Map<String, Long> categoryVersions = new ConcurrentHashMap<>();
+
+        Shard(ExpenseStore expenses) {
+            this.expenses = expenses;
+        }
+    }
+
+    private record IndexedRow(DateKey dateKey, LocalDateTime date, String category, BigDecimal amount)
+            implements ExpenseAggregates.Row {
+        static IndexedRow of(long id, Expense expense) {
+            return expense == null ? null : new IndexedRow(DateKey.of(expense.getDate(), id),
+                    expense.getDate(), expense.getCategory(), expense.getAmount());
+        }
+    }
+
+    private record AmountKey(BigDecimal amount, long id) implements Comparable<AmountKey> {
+        @Override
+        public int compareTo(AmountKey other) {
+            int result = amount.compareTo(other.amount);
+            return result != 0 ? result : Long.compare(id, other.id);
+        }
+    }
+
+    private record DateKey(long epochSecond, int nano, long id) implements Comparable<DateKey> {
+        static final DateKey MIN = new DateKey(Long.MIN_VALUE, 0, Long.MIN_VALUE);
+        static final DateKey MAX = new DateKey(Long.MAX_VALUE, Integer.MAX_VALUE, Long.MAX_VALUE);
+
+        static DateKey of(LocalDateTime date, long id) {
+            return new DateKey(date.toEpochSecond(ZoneOffset.UTC), date.getNano(), id);
+        }
+
+        @Override
+        public int compareTo(DateKey other) {
+            int result = Long.compare(epochSecond, other.epochSecond);
+            if (result == 0) {
+                result = Integer.compare(nano, other.nano);
+            }
+            return result != 0 ? result : Long.compare(id, other.id);
+        }
+    }
 }
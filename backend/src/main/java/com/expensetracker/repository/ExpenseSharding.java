@@ -0,0 +1,42 @@
+package com.expensetracker.repository;
+
+/**
+ * How {@link ExpenseRepository} splits its rows over independent shards, each with its own store,
+ * indexes and id sequence. Shard {@code s} of {@code n} hands out the ids {@code s + 1},
+ * {@code s + 1 + n}, {@code s + 1 + 2n} and so on, so the shard of a row follows from its id alone,
+ * whatever shard count the row was created under. A single shard hands out 1, 2, 3, ...
+ */
+public record ExpenseSharding(int shards) {
+    public static final ExpenseSharding SINGLE = new ExpenseSharding(1);
+
+    public ExpenseSharding {
+        if (shards < 1) {
+            throw new IllegalArgumentException("Shard count must be at least 1: " + shards);
+        }
+    }
+
+    int shardOf(long id) {
+        return (int) Math.floorMod(id - 1, (long) shards);
+    }
+
+    long id(int shard, long sequence) {
+        return sequence * shards + shard + 1;
+    }
+
+    /** The first sequence of {@code shard} whose id is at least {@code nextId}. */
+    long firstSequence(int shard, long nextId) {
+        long offset = nextId - shard - 1;
+        return offset <= 0 ? 0 : (offset + shards - 1) / shards;
+    }
+
+    /** One more than the highest id handed out by shards at the given next sequences. */
+    long nextId(long[] sequences) {
+        long next = 1;
+        for (int shard = 0; shard < sequences.length; shard++) {
+            if (sequences[shard] > 0) {
+                next = Math.max(next, id(shard, sequences[shard] - 1) + 1);
+            }
+        }
+        return next;
+    }
+}
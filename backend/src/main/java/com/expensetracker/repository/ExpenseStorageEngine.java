@@ -0,0 +1,33 @@
+package com.expensetracker.repository;
+
+import com.expensetracker.persistence.MappedSnapshot;
+
+/**
+ * How {@link ExpenseRepository} holds its rows in memory.
+ */
+public enum ExpenseStorageEngine {
+    /** One {@link com.expensetracker.model.Expense} object per row; a snapshot stays mapped and is read in place. */
+    HEAP {
+        @Override
+        ExpenseStore create(MappedSnapshot snapshot) {
+            return snapshot != null ? new MappedExpenseStore(snapshot) : new HeapExpenseStore();
+        }
+    },
+    /** Parallel primitive arrays; a snapshot is copied into them on startup. */
+    COLUMNAR {
+        @Override
+        ExpenseStore create(MappedSnapshot snapshot) {
+            if (snapshot == null) {
+                return new ColumnarExpenseStore();
+            }
+            ColumnarExpenseStore store = new ColumnarExpenseStore(snapshot.size());
+            for (int row = 0; row < snapshot.size(); row++) {
+                int current = row;
+                store.compute(snapshot.id(row), (id, previous) -> snapshot.materialize(current));
+            }
+            return store;
+        }
+    };
+
+    abstract ExpenseStore create(MappedSnapshot snapshot);
+}
@@ -0,0 +1,56 @@
+package com.expensetracker.repository;
+
+import com.expensetracker.model.Expense;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.BiFunction;
+
+/**
+ * Primary row storage behind {@link ExpenseRepository}. The repository keeps its secondary
+ * indexes in sync inside {@link #compute}, which must run atomically per id.
+ */
+public interface ExpenseStore {
+
+    Expense get(long id);
+
+    /** Same contract as {@link java.util.Map#compute}: a {@code null} result removes the row. */
+    Expense compute(long id, BiFunction<Long, Expense, Expense> remapping);
+
+    int size();
+
+    /** Weakly consistent view of all rows; iterating it may create {@link Expense} objects. */
+    Collection<Expense> values();
+
+    /** Visits the indexed fields of every row, without creating {@link Expense} objects where possible. */
+    void forEachIndexed(IndexVisitor visitor);
+
+    /**
+     * Splits the rows into at most {@code count} disjoint segments, which may be visited at the same
+     * time from different threads, each once. Between them they visit the rows {@link #forEachIndexed}
+     * does; rows changed while they run may or may not be seen.
+     */
+    default List<Segment> segments(int count) {
+        return List.of(this::forEachIndexed);
+    }
+
+    /**
+     * Whether {@link #get} decodes a fresh {@link Expense} on every call. When it does, callers
+     * cannot change a stored row in place and the value passed to {@link #compute} is exact.
+     */
+    default boolean returnsCopies() {
+        return false;
+    }
+
+    @FunctionalInterface
+    interface IndexVisitor {
+        void visit(long id, LocalDateTime date, String category, BigDecimal amount);
+    }
+
+    /** Part of a store's rows, from {@link #segments}. */
+    @FunctionalInterface
+    interface Segment {
+        void forEachIndexed(IndexVisitor visitor);
+    }
+}
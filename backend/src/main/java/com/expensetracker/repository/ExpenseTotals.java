@@ -0,0 +1,27 @@
+package com.expensetracker.repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The read side of the running totals, whether kept in one {@link ExpenseAggregates} or merged on
+ * read from the aggregates of every shard.
+ */
+public interface ExpenseTotals {
+    BigDecimal getTotal();
+
+    BigDecimal getMonthTotal(int year, int month);
+
+    BigDecimal getYearTotal(int year);
+
+    /**
+     * Totals of every non-empty period from the one containing {@code from} through the one
+     * containing {@code to}, in period order. A {@code null} category means all categories.
+     */
+    List<ExpenseAggregates.PeriodTotal> getPeriodTotals(Granularity granularity, LocalDate from, LocalDate to,
+                                                        String category);
+
+    Map<String, BigDecimal> getCategoryTotals();
+}
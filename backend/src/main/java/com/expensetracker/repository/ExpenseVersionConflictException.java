@@ -0,0 +1,25 @@
+package com.expensetracker.repository;
+
+/**
+ * Thrown by a conditional save when the row is no longer at the version the caller read it at.
+ */
+public class ExpenseVersionConflictException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    private final long id;
+    private final long expectedVersion;
+
+    public ExpenseVersionConflictException(long id, long expectedVersion) {
+        super("Expense " + id + " is no longer at version " + expectedVersion);
+        this.id = id;
+        this.expectedVersion = expectedVersion;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public long getExpectedVersion() {
+        return expectedVersion;
+    }
+}
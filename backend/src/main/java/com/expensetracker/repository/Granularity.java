@@ -0,0 +1,36 @@
+package com.expensetracker.repository;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.temporal.TemporalAdjusters;
+
+/** Calendar period sizes that expense totals are rolled up by. Weeks start on Monday. */
+public enum Granularity {
+    DAY {
+        @Override
+        public LocalDate start(LocalDate date) {
+            return date;
+        }
+    },
+    WEEK {
+        @Override
+        public LocalDate start(LocalDate date) {
+            return date.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+        }
+    },
+    MONTH {
+        @Override
+        public LocalDate start(LocalDate date) {
+            return date.withDayOfMonth(1);
+        }
+    },
+    YEAR {
+        @Override
+        public LocalDate start(LocalDate date) {
+            return date.withDayOfYear(1);
+        }
+    };
+
+    /** First day of the period containing {@code date}. */
+    public abstract LocalDate start(LocalDate date);
+}
@@ -0,0 +1,70 @@
+package com.expensetracker.repository;
+
+import com.expensetracker.model.Expense;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Spliterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiFunction;
+
+/**
+ * Keeps every row as an {@link Expense} object in a {@link ConcurrentHashMap}.
+ */
+public class HeapExpenseStore implements ExpenseStore {
+    private final Map<Long, Expense> expenses = new ConcurrentHashMap<>();
+
+    @Override
+    public Expense get(long id) {
+        return expenses.get(id);
+    }
+
+    @Override
+    public Expense compute(long id, BiFunction<Long, Expense, Expense> remapping) {
+        return expenses.compute(id, remapping);
+    }
+
+    @Override
+    public int size() {
+        return expenses.size();
+    }
+
+    @Override
+    public Collection<Expense> values() {
+        return expenses.values();
+    }
+
+    @Override
+    public void forEachIndexed(IndexVisitor visitor) {
+        for (Expense expense : expenses.values()) {
+            visit(visitor, expense);
+        }
+    }
+
+    /** The map's spliterator splits by ranges of its table, so the halves never share a row. */
+    @Override
+    public List<Segment> segments(int count) {
+        List<Spliterator<Expense>> parts = new ArrayList<>(List.of(expenses.values().spliterator()));
+        boolean split = true;
+        while (split && parts.size() < count) {
+            split = false;
+            for (int i = parts.size() - 1; i >= 0 && parts.size() < count; i--) {
+                Spliterator<Expense> half = parts.get(i).trySplit();
+                if (half != null) {
+                    parts.add(half);
+                    split = true;
+                }
+            }
+        }
+        List<Segment> segments = new ArrayList<>(parts.size());
+        for (Spliterator<Expense> part : parts) {
+            segments.add(visitor -> part.forEachRemaining(expense -> visit(visitor, expense)));
+        }
+        return segments;
+    }
+
+    private static void visit(IndexVisitor visitor, Expense expense) {
+        visitor.visit(expense.getId(), expense.getDate(), expense.getCategory(), expense.getAmount());
+    }
+}
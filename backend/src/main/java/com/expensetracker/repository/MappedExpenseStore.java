@@ -0,0 +1,163 @@
+package com.expensetracker.repository;
+
+import com.expensetracker.model.Expense;
+import com.expensetracker.persistence.MappedSnapshot;
+import java.util.AbstractCollection;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiFunction;
+
+/**
+ * Serves rows from a read-only {@link MappedSnapshot}, with rows changed since the snapshot held
+ * in an overlay map. Deleted snapshot rows are shadowed by a tombstone in the overlay. Snapshot
+ * rows become {@link Expense} objects only when they are read. This saves the rows, not the
+ * indexes: the repository still visits every row through {@link #forEachIndexed} on startup, and
+ * because overlay rows are shared instances it keeps an index entry per row as well.
+ */
+public class MappedExpenseStore implements ExpenseStore {
+    private static final Expense TOMBSTONE = new Expense();
+
+    private final MappedSnapshot base;
+    private final Map<Long, Expense> overlay = new ConcurrentHashMap<>();
+    private final AtomicInteger size;
+
+    public MappedExpenseStore(MappedSnapshot base) {
+        this.base = base;
+        this.size = new AtomicInteger(base.size());
+    }
+
+    @Override
+    public Expense get(long id) {
+        Expense expense = overlay.get(id);
+        if (expense == TOMBSTONE) {
+            return null;
+        }
+        return expense != null ? expense : fromBase(id);
+    }
+
+    @Override
+    public Expense compute(long id, BiFunction<Long, Expense, Expense> remapping) {
+        Expense result = overlay.compute(id, (key, shadow) -> {
+            Expense current = shadow == TOMBSTONE ? null : shadow != null ? shadow : fromBase(key);
+            Expense next = remapping.apply(key, current);
+            if (current == null && next != null) {
+                size.incrementAndGet();
+            } else if (current != null && next == null) {
+                size.decrementAndGet();
+            }
+            if (next == null) {
+                return base.find(key) >= 0 ? TOMBSTONE : null;
+            }
+            return next;
+        });
+        return result == TOMBSTONE ? null : result;
+    }
+
+    @Override
+    public int size() {
+        return size.get();
+    }
+
+    @Override
+    public Collection<Expense> values() {
+        return new AbstractCollection<>() {
+            @Override
+            public Iterator<Expense> iterator() {
+                return new RowIterator();
+            }
+
+            @Override
+            public int size() {
+                return size.get();
+            }
+        };
+    }
+
+    @Override
+    public void forEachIndexed(IndexVisitor visitor) {
+        forEachIndexed(0, base.size(), true, visitor);
+    }
+
+    /** Ranges of snapshot rows, read straight from the mapping; the last one also visits the overlay. */
+    @Override
+    public List<Segment> segments(int count) {
+        List<Segment> segments = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            int from = (int) ((long) base.size() * i / count);
+            int to = (int) ((long) base.size() * (i + 1) / count);
+            boolean last = i == count - 1;
+            segments.add(visitor -> forEachIndexed(from, to, last, visitor));
+        }
+        return segments;
+    }
+
+    private void forEachIndexed(int from, int to, boolean withOverlay, IndexVisitor visitor) {
+        for (int row = from; row < to; row++) {
+            long id = base.id(row);
+            if (!overlay.containsKey(id)) {
+                visitor.visit(id, base.date(row), base.category(row), base.amount(row));
+            }
+        }
+        if (withOverlay) {
+            for (Expense expense : overlay.values()) {
+                if (expense != TOMBSTONE) {
+                    visitor.visit(expense.getId(), expense.getDate(), expense.getCategory(), expense.getAmount());
+                }
+            }
+        }
+    }
+
+    private Expense fromBase(long id) {
+        int row = base.find(id);
+        return row >= 0 ? base.materialize(row) : null;
+    }
+
+    /** Snapshot rows in id order, with overlay versions substituted, then rows added since. */
+    private final class RowIterator implements Iterator<Expense> {
+        private int row;
+        private Iterator<Expense> added;
+        private Expense next;
+
+        @Override
+        public boolean hasNext() {
+            while (next == null && row < base.size()) {
+                long id = base.id(row);
+                Expense shadow = overlay.get(id);
+                if (shadow == null) {
+                    next = base.materialize(row);
+                } else if (shadow != TOMBSTONE) {
+                    next = shadow;
+                }
+                row++;
+            }
+            if (next == null) {
+                if (added == null) {
+                    added = overlay.values().iterator();
+                }
+                while (next == null && added.hasNext()) {
+                    Expense candidate = added.next();
+                    if (candidate != TOMBSTONE && base.find(candidate.getId()) < 0) {
+                        next = candidate;
+                    }
+                }
+            }
+            return next != null;
+        }
+
+        @Override
+        public Expense next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            Expense result = next;
+            next = null;
+            return result;
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package com.expensetracker.repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Sums the totals of several parts, such as shards, on every read, so that writers to different
+ * parts never share a bucket. Sums of exact sums keep the largest scale, so a merged value equals
+ * the one a single {@link ExpenseAggregates} over every row would give.
+ */
+final class MergedExpenseTotals implements ExpenseTotals {
+    private final List<? extends ExpenseTotals> parts;
+
+    MergedExpenseTotals(List<? extends ExpenseTotals> parts) {
+        this.parts = List.copyOf(parts);
+    }
+
+    @Override
+    public BigDecimal getTotal() {
+        BigDecimal total = BigDecimal.ZERO;
+        for (ExpenseTotals part : parts) {
+            total = total.add(part.getTotal());
+        }
+        return total;
+    }
+
+    @Override
+    public BigDecimal getMonthTotal(int year, int month) {
+        BigDecimal total = BigDecimal.ZERO;
+        for (ExpenseTotals part : parts) {
+            total = total.add(part.getMonthTotal(year, month));
+        }
+        return total;
+    }
+
+    @Override
+    public BigDecimal getYearTotal(int year) {
+        BigDecimal total = BigDecimal.ZERO;
+        for (ExpenseTotals part : parts) {
+            total = total.add(part.getYearTotal(year));
+        }
+        return total;
+    }
+
+    @Override
+    public List<ExpenseAggregates.PeriodTotal> getPeriodTotals(Granularity granularity, LocalDate from, LocalDate to,
+                                                               String category) {
+        Map<LocalDate, ExpenseAggregates.PeriodTotal> periods = new TreeMap<>();
+        for (ExpenseTotals part : parts) {
+            for (ExpenseAggregates.PeriodTotal total : part.getPeriodTotals(granularity, from, to, category)) {
+                periods.merge(total.period(), total, (a, b) ->
+                        new ExpenseAggregates.PeriodTotal(a.period(), a.count() + b.count(), a.total().add(b.total())));
+            }
+        }
+        return new ArrayList<>(periods.values());
+    }
+
+    @Override
+    public Map<String, BigDecimal> getCategoryTotals() {
+        Map<String, BigDecimal> totals = new HashMap<>();
+        for (ExpenseTotals part : parts) {
+            part.getCategoryTotals().forEach((category, total) -> totals.merge(category, total, BigDecimal::add));
+        }
+        return totals;
+    }
+}
@@ -0,0 +1,79 @@
+package com.expensetracker.service;
+
+import com.expensetracker.dto.CacheStats;
+import com.expensetracker.repository.ExpenseRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.ToLongFunction;
+
+/**
+ * Publishes the size of the data set and its indexes, the query cache statistics and, per listing,
+ * the rows read against the rows returned. Gauges are read when the registry is scraped, from
+ * counters the repository and cache keep anyway, so nothing here is on the request path except two
+ * counter increments per listing.
+ */
+public class ExpenseMetrics implements ExpenseQueryListener {
+
+    private final MeterRegistry registry;
+    private final Map<String, QueryCounters> queries = new ConcurrentHashMap<>();
+
+    public ExpenseMetrics(MeterRegistry registry, ExpenseRepository repository, ExpenseQueryCache cache) {
+        this.registry = registry;
+        Gauge.builder("expense.rows", repository, ExpenseRepository::count)
+                .description("Stored expenses")
+                .register(registry);
+        Gauge.builder("expense.index.entries", repository, ExpenseRepository::getDateIndexSize)
+                .tag("index", "date")
+                .description("Entries in a repository index")
+                .register(registry);
+        Gauge.builder("expense.index.entries", repository, ExpenseRepository::getCategoryIndexSize)
+                .tag("index", "category")
+                .description("Entries in a repository index")
+                .register(registry);
+
+        Gauge.builder("expense.cache.size", cache, c -> c.getStats().getSize())
+                .description("Entries in the query cache")
+                .register(registry);
+        cacheCounter(cache, "expense.cache.requests", "result", "hit", CacheStats::getHits);
+        cacheCounter(cache, "expense.cache.requests", "result", "miss", CacheStats::getMisses);
+        cacheCounter(cache, "expense.cache.removals", "cause", "eviction", CacheStats::getEvictions);
+        cacheCounter(cache, "expense.cache.removals", "cause", "invalidation", CacheStats::getInvalidations);
+    }
+
+    @Override
+    public void queried(String query, long scanned, long returned) {
+        QueryCounters counters = queries.get(query);
+        if (counters == null) {
+            counters = queries.computeIfAbsent(query, this::counters);
+        }
+        counters.scanned().increment(scanned);
+        counters.returned().increment(returned);
+    }
+
+    private QueryCounters counters(String query) {
+        return new QueryCounters(
+                Counter.builder("expense.query.rows.scanned")
+                        .tag("query", query)
+                        .description("Rows read from the repository to answer a listing")
+                        .register(registry),
+                Counter.builder("expense.query.rows.returned")
+                        .tag("query", query)
+                        .description("Rows a listing handed back")
+                        .register(registry));
+    }
+
+    private void cacheCounter(ExpenseQueryCache cache, String name, String tag, String value,
+                              ToLongFunction<CacheStats> count) {
+        FunctionCounter.builder(name, cache, c -> count.applyAsLong(c.getStats()))
+                .tag(tag, value)
+                .register(registry);
+    }
+
+    private record QueryCounters(Counter scanned, Counter returned) {
+    }
+}
@@ -0,0 +1,118 @@
+package com.expensetracker.service;
+
+import com.expensetracker.dto.CacheStats;
+import com.expensetracker.repository.ExpenseChangeListener;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Bounded LRU cache of read results with a time-to-live.
+ * <p>
+ * Each entry depends either on every expense or only on the expenses of one year, and remembers the
+ * generation of that scope when its value was computed. The repository reports each change after
+ * readers can see it and before the write returns; that bumps the generation of the touched years and
+ * of the whole store, so an entry computed earlier is never served again. A write in 2025 therefore
+ * leaves the 2024 trend cached, and no read that starts after a write has returned sees older data.
+ */
+public class ExpenseQueryCache implements ExpenseChangeListener {
+
+    private final int maxEntries;
+    private final long ttlNanos;
+    private final Map<Key, Entry> entries;
+
+    // All guarded by this
+    private long generation;
+    private final Map<Integer, Long> yearGenerations = new HashMap<>();
+    private long hits;
+    private long misses;
+    private long evictions;
+    private long invalidations;
+
+    public ExpenseQueryCache(int maxEntries, Duration ttl) {
+        this.maxEntries = maxEntries;
+        this.ttlNanos = ttl.toNanos();
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+                if (size() > ExpenseQueryCache.this.maxEntries) {
+                    evictions++;
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /** Result of a read over every expense. */
+    public <T> T get(String query, Object argument, Supplier<T> loader) {
+        return get(new Key(query, argument, null), loader);
+    }
+
+    /** Result of a read that only looks at the expenses dated in {@code year}. */
+    public <T> T getForYear(String query, int year, Supplier<T> loader) {
+        return get(new Key(query, null, year), loader);
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> T get(Key key, Supplier<T> loader) {
+        long seen;
+        synchronized (this) {
+            seen = generation(key);
+            Entry entry = entries.get(key);
+            if (entry != null) {
+                if (entry.generation() == seen && System.nanoTime() - entry.expiresAt() < 0) {
+                    hits++;
+                    return (T) entry.value();
+                }
+                entries.remove(key);
+                if (entry.generation() == seen) {
+                    evictions++;
+                } else {
+                    invalidations++;
+                }
+            }
+            misses++;
+        }
+
+        // Loaded without the lock; if a write lands meanwhile the entry is born stale and never served
+        T value = loader.get();
+        if (maxEntries > 0) {
+            synchronized (this) {
+                if (generation(key) == seen) {
+                    entries.put(key, new Entry(value, seen, System.nanoTime() + ttlNanos));
+                }
+            }
+        }
+        return value;
+    }
+
+    @Override
+    public synchronized void expenseChanged(LocalDateTime previousDate, LocalDateTime date) {
+        generation++;
+        if (previousDate != null) {
+            yearGenerations.merge(previousDate.getYear(), 1L, Long::sum);
+        }
+        if (date != null && (previousDate == null || date.getYear() != previousDate.getYear())) {
+            yearGenerations.merge(date.getYear(), 1L, Long::sum);
+        }
+    }
+
+    public synchronized CacheStats getStats() {
+        return new CacheStats(entries.size(), hits, misses, evictions, invalidations);
+    }
+
+    private long generation(Key key) {
+        return key.year() == null ? generation : yearGenerations.getOrDefault(key.year(), 0L);
+    }
+
+    private record Key(String query, Object argument, Integer year) {
+    }
+
+    private record Entry(Object value, long generation, long expiresAt) {
+    }
+}
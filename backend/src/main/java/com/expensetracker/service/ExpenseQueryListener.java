@@ -0,0 +1,13 @@
+package com.expensetracker.service;
+
+/**
+ * Told, once per listing, how many rows {@link ExpenseService} read from the repository to answer it
+ * and how many it handed back. Reads answered from the rollups or the cache read no rows and are not
+ * reported. A listing that scans far more rows than it returns is a full scan in disguise.
+ */
+@FunctionalInterface
+public interface ExpenseQueryListener {
+    ExpenseQueryListener NONE = (query, scanned, returned) -> { };
+
+    void queried(String query, long scanned, long returned);
+}
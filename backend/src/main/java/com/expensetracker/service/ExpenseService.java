@@ -1,30 +1,65 @@
 package com.expensetracker.service;
 
+import com.expensetracker.dto.CacheStats;
+import com.expensetracker.dto.ExpenseBatchResult;
+import com.expensetracker.dto.ExpenseCursor;
+import com.expensetracker.dto.ExpensePage;
 import com.expensetracker.dto.ExpenseRequest;
 import com.expensetracker.dto.ExpenseResponse;
 import com.expensetracker.dto.ExpenseSummary;
+import com.expensetracker.dto.ExpenseUpdateRequest;
+import com.expensetracker.dto.PeriodAggregate;
 import com.expensetracker.model.Expense;
 import com.expensetracker.repository.ExpenseRepository;
+import com.expensetracker.repository.ExpenseTotals;
+import com.expensetracker.repository.ExpenseVersionConflictException;
+import com.expensetracker.repository.Granularity;
+import io.micrometer.core.annotation.Timed;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
-import java.util.Comparator;
+import java.time.YearMonth;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.function.Function;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
 
 @Service
+@Timed("expense.service")
 public class ExpenseService {
 
+    private static final Function<Expense, String> DATE_KEY = expense -> expense.getDate().toString();
+
     private final ExpenseRepository expenseRepository;
+    private final ExpenseQueryCache queryCache;
+    private final ExpenseQueryListener queryListener;
 
-    @Autowired
     public ExpenseService(ExpenseRepository expenseRepository) {
+        this(expenseRepository, new ExpenseQueryCache(0, Duration.ZERO));
+    }
+
+    public ExpenseService(ExpenseRepository expenseRepository, ExpenseQueryCache queryCache) {
+        this(expenseRepository, queryCache, ExpenseQueryListener.NONE);
+    }
+
+    @Autowired
+    public ExpenseService(ExpenseRepository expenseRepository, ExpenseQueryCache queryCache,
+                          ExpenseQueryListener queryListener) {
         this.expenseRepository = expenseRepository;
+        this.queryCache = queryCache;
+        this.queryListener = queryListener;
+        expenseRepository.addChangeListener(queryCache);
     }
 
     public ExpenseResponse createExpense(ExpenseRequest request) {
@@ -34,21 +69,124 @@ public class ExpenseService {
         return new ExpenseResponse(savedExpense);
     }
 
+    /**
+     * Applies the request to the expense as it is now. If it changes between the read and the save,
+     * the request is applied again to the newer row; if it is deleted meanwhile, the update fails as
+     * not found rather than bringing the row back.
+     */
     public ExpenseResponse updateExpense(Long id, ExpenseRequest request) {
+        while (true) {
+            Expense expense = edited(id, request);
+            try {
+                return new ExpenseResponse(expenseRepository.save(expense, expense.getVersion()));
+            } catch (ExpenseVersionConflictException e) {
+                // Changed or deleted since the read; the next read tells which
+            }
+        }
+    }
+
+    /**
+     * Updates the expense only if it is still at {@code expectedVersion}, as read by the client;
+     * otherwise throws {@link ExpenseVersionConflictException}, or fails as not found if it was deleted.
+     */
+    public ExpenseResponse updateExpense(Long id, ExpenseRequest request, long expectedVersion) {
+        try {
+            return new ExpenseResponse(expenseRepository.save(edited(id, request), expectedVersion));
+        } catch (ExpenseVersionConflictException e) {
+            if (expenseRepository.findById(id).isEmpty()) {
+                throw new RuntimeException("Expense not found with id: " + id);
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * A copy of the stored row with the request applied. The stored instance is never changed, so
+     * readers see either the old row or the new one and never a mix of both.
+     */
+    private Expense edited(Long id, ExpenseRequest request) {
         Optional<Expense> existingExpense = expenseRepository.findById(id);
         if (existingExpense.isEmpty()) {
             throw new RuntimeException("Expense not found with id: " + id);
         }
+        return edited(existingExpense.get(), request);
+    }
 
-        Expense expense = existingExpense.get();
+    private static Expense edited(Expense existing, ExpenseRequest request) {
+        Expense expense = new Expense(existing);
         expense.setDescription(request.getDescription());
         expense.setAmount(request.getAmount());
         expense.setCategory(request.getCategory());
         expense.setDate(request.getDate());
-        expense.setUpdatedAt(LocalDateTime.now());
+        return expense;
+    }
+
+    public List<ExpenseBatchResult> createExpenses(List<ExpenseRequest> requests) {
+        List<Expense> expenses = new ArrayList<>(requests.size());
+        for (ExpenseRequest request : requests) {
+            expenses.add(new Expense(request.getDescription(), request.getAmount(),
+                                     request.getCategory(), request.getDate()));
+        }
+        expenseRepository.saveAll(expenses);
 
-        Expense updatedExpense = expenseRepository.save(expense);
-        return new ExpenseResponse(updatedExpense);
+        List<ExpenseBatchResult> results = new ArrayList<>(expenses.size());
+        for (int i = 0; i < expenses.size(); i++) {
+            results.add(ExpenseBatchResult.of(i, ExpenseBatchResult.Status.CREATED, new ExpenseResponse(expenses.get(i))));
+        }
+        return results;
+    }
+
+    /**
+     * Updates a batch like {@link #updateExpense(Long, ExpenseRequest)} does one expense: rows changed
+     * between the read and the save are read and saved again, and rows deleted meanwhile are reported
+     * as not found.
+     */
+    public List<ExpenseBatchResult> updateExpenses(List<ExpenseUpdateRequest> requests) {
+        List<Expense> expenses = new ArrayList<>(Collections.nCopies(requests.size(), null));
+        List<Integer> pending = IntStream.range(0, requests.size()).boxed().collect(Collectors.toList());
+        while (!pending.isEmpty()) {
+            List<Integer> found = new ArrayList<>(pending.size());
+            List<Expense> batch = new ArrayList<>(pending.size());
+            for (int i : pending) {
+                ExpenseUpdateRequest request = requests.get(i);
+                Expense expense = expenseRepository.findById(request.getId())
+                        .map(existing -> edited(existing, request))
+                        .orElse(null);
+                expenses.set(i, expense);
+                if (expense != null) {
+                    found.add(i);
+                    batch.add(expense);
+                }
+            }
+            List<Boolean> saved = expenseRepository.saveAllIfUnchanged(batch);
+            pending = new ArrayList<>();
+            for (int j = 0; j < found.size(); j++) {
+                if (!saved.get(j)) {
+                    pending.add(found.get(j));
+                }
+            }
+        }
+
+        List<ExpenseBatchResult> results = new ArrayList<>(expenses.size());
+        for (int i = 0; i < expenses.size(); i++) {
+            Expense expense = expenses.get(i);
+            results.add(expense != null
+                    ? ExpenseBatchResult.of(i, ExpenseBatchResult.Status.UPDATED, new ExpenseResponse(expense))
+                    : ExpenseBatchResult.of(i, requests.get(i).getId(), ExpenseBatchResult.Status.NOT_FOUND));
+        }
+        return results;
+    }
+
+    public List<ExpenseBatchResult> deleteExpenses(List<Long> ids) {
+        List<Boolean> deleted = expenseRepository.deleteAllById(ids);
+
+        List<ExpenseBatchResult> results = new ArrayList<>(ids.size());
+        for (int i = 0; i < ids.size(); i++) {
+            results.add(ExpenseBatchResult.of(i, ids.get(i), deleted.get(i)
+                    ? ExpenseBatchResult.Status.DELETED
+                    : ExpenseBatchResult.Status.NOT_FOUND));
+        }
+        return results;
     }
 
     public void deleteExpense(Long id) {
@@ -67,132 +205,239 @@ public class ExpenseService {
     }
 
     public List<ExpenseResponse> getAllExpenses() {
-        return expenseRepository.findAll().stream()
-                .map(ExpenseResponse::new)
-                .collect(Collectors.toList());
+        return respond("all", expenseRepository.findAll());
     }
 
     public List<ExpenseResponse> getExpensesByDateRange(LocalDateTime startDate, LocalDateTime endDate) {
-        return expenseRepository.findByDateBetween(startDate, endDate).stream()
-                .map(ExpenseResponse::new)
-                .collect(Collectors.toList());
+        return respond("date-range", expenseRepository.findByDateBetween(startDate, endDate));
     }
 
     public List<ExpenseResponse> getExpensesByMonth(int year, int month) {
-        return expenseRepository.findByMonth(year, month).stream()
-                .map(ExpenseResponse::new)
-                .collect(Collectors.toList());
+        return respond("month", expenseRepository.findByMonth(year, month));
+    }
+
+    public List<ExpenseResponse> getExpensesInCategory(String category) {
+        return respond("category", expenseRepository.findByCategory(category));
     }
 
     public List<ExpenseResponse> getRecentExpenses(int limit) {
-        return expenseRepository.findRecentExpenses(limit).stream()
-                .map(ExpenseResponse::new)
-                .collect(Collectors.toList());
+        return respond("recent", expenseRepository.findRecentExpenses(limit));
     }
 
     public List<ExpenseResponse> getExpensesSortedBy(String sortBy, boolean ascending) {
-        List<Expense> expenses = expenseRepository.findAll();
-        
-        Comparator<Expense> comparator;
-        switch (sortBy.toLowerCase()) {
-            case "amount":
-                comparator = Comparator.comparing(Expense::getAmount);
-                break;
-            case "category":
-                comparator = Comparator.comparing(Expense::getCategory);
-                break;
-            case "date":
-            default:
-                comparator = Comparator.comparing(Expense::getDate);
-                break;
-        }
-
-        if (!ascending) {
-            comparator = comparator.reversed();
-        }
-
-        return expenses.stream()
-                .sorted(comparator)
+        return queryCache.get("sorted", List.of(sortBy.toLowerCase(), ascending), () -> {
+            try (Stream<ExpenseResponse> sorted = streamExpensesSortedBy(sortBy, ascending)) {
+                return Collections.unmodifiableList(sorted.collect(Collectors.toList()));
+            }
+        });
+    }
+
+    public ExpensePage getExpensesPage(String cursor, int size) {
+        ExpenseCursor after = cursor != null ? ExpenseCursor.decode(cursor) : null;
+        return page("all", expenseRepository.streamByDate(true, afterDate(after), afterId(after)), 0, size, DATE_KEY);
+    }
+
+    public ExpensePage getExpensesByDateRangePage(LocalDateTime startDate, LocalDateTime endDate,
+                                                  String cursor, int size) {
+        ExpenseCursor after = cursor != null ? ExpenseCursor.decode(cursor) : null;
+        return page("date-range", expenseRepository.streamByDateBetween(startDate, endDate, afterDate(after), afterId(after)),
+                0, size, DATE_KEY);
+    }
+
+    public ExpensePage getExpensesByMonthPage(int year, int month, String cursor, int size) {
+        ExpenseCursor after = cursor != null ? ExpenseCursor.decode(cursor) : null;
+        return page("month", expenseRepository.streamByMonth(year, month, afterDate(after), afterId(after)), 0, size, DATE_KEY);
+    }
+
+    public ExpensePage getExpensesInCategoryPage(String category, String cursor, int size) {
+        ExpenseCursor after = cursor != null ? ExpenseCursor.decode(cursor) : null;
+        return page("category", expenseRepository.streamByCategory(category, afterId(after)), 0, size, Expense::getCategory);
+    }
+
+    public ExpensePage getExpensesSortedByPage(String sortBy, boolean ascending, String cursor, int size) {
+        ExpenseCursor after = cursor != null ? ExpenseCursor.decode(cursor) : null;
+        String key = sortBy.toLowerCase();
+        Function<Expense, String> keyOf = DATE_KEY;
+        if (key.equals("amount")) {
+            keyOf = expense -> expense.getAmount().toPlainString();
+        } else if (key.equals("category")) {
+            keyOf = Expense::getCategory;
+        }
+        return page("sorted", sorted(key, ascending, after), 0, size, keyOf);
+    }
+
+    public Stream<ExpenseResponse> streamAllExpenses() {
+        return respond("all", expenseRepository.streamByDate(true, null, null), 0);
+    }
+
+    public Stream<ExpenseResponse> streamExpensesByDateRange(LocalDateTime startDate, LocalDateTime endDate) {
+        return respond("date-range", expenseRepository.streamByDateBetween(startDate, endDate, null, null), 0);
+    }
+
+    public Stream<ExpenseResponse> streamExpensesForExport(LocalDateTime from, LocalDateTime to) {
+        return respond("export", expenseRepository.streamByDateRange(from, to), 0);
+    }
+
+    public Stream<ExpenseResponse> streamExpensesByMonth(int year, int month) {
+        return respond("month", expenseRepository.streamByMonth(year, month, null, null), 0);
+    }
+
+    public Stream<ExpenseResponse> streamExpensesInCategory(String category) {
+        return respond("category", expenseRepository.streamByCategory(category, null), 0);
+    }
+
+    public Stream<ExpenseResponse> streamExpensesSortedBy(String sortBy, boolean ascending) {
+        return respond("sorted", sorted(sortBy.toLowerCase(), ascending, null), 0);
+    }
+
+    /**
+     * Walks the repository's view ordered by amount, category or, for any other key, date. Ties are
+     * broken by id so that keyset cursors identify a unique position, and descending order walks the
+     * same view backwards, so nothing is sorted per request.
+     */
+    private Stream<Expense> sorted(String key, boolean ascending, ExpenseCursor after) {
+        if (key.equals("amount")) {
+            return expenseRepository.streamByAmount(ascending,
+                    after != null ? new BigDecimal(after.getKey()) : null, afterId(after));
+        }
+        if (key.equals("category")) {
+            return expenseRepository.streamByCategoryName(ascending, after != null ? after.getKey() : null, afterId(after));
+        }
+        return expenseRepository.streamByDate(ascending, afterDate(after), afterId(after));
+    }
+
+    private List<ExpenseResponse> respond(String query, List<Expense> rows) {
+        queryListener.queried(query, rows.size(), rows.size());
+        return rows.stream().map(ExpenseResponse::new).collect(Collectors.toList());
+    }
+
+    /**
+     * Maps a lazy listing, reported to the query listener when the stream is closed. {@code scanned}
+     * counts rows read before the stream, e.g. to sort them; otherwise each row handed out was read once.
+     */
+    private Stream<ExpenseResponse> respond(String query, Stream<Expense> rows, long scanned) {
+        long[] returned = new long[1];
+        return rows.peek(row -> returned[0]++)
                 .map(ExpenseResponse::new)
-                .collect(Collectors.toList());
+                .onClose(() -> queryListener.queried(query, Math.max(scanned, returned[0]), returned[0]));
+    }
+
+    private ExpensePage page(String query, Stream<Expense> ordered, long scanned, int size,
+                             Function<Expense, String> keyOf) {
+        List<Expense> rows;
+        long[] pulled = new long[1];
+        try (ordered) {
+            rows = ordered.peek(row -> pulled[0]++).limit(size + 1L).collect(Collectors.toList());
+        }
+        queryListener.queried(query, Math.max(scanned, pulled[0]), Math.min(rows.size(), size));
+        String nextCursor = null;
+        if (rows.size() > size) {
+            rows = rows.subList(0, size);
+            Expense last = rows.get(size - 1);
+            nextCursor = new ExpenseCursor(keyOf.apply(last), last.getId()).encode();
+        }
+        return new ExpensePage(rows.stream().map(ExpenseResponse::new).collect(Collectors.toList()), nextCursor);
+    }
+
+    private static LocalDateTime afterDate(ExpenseCursor after) {
+        try {
+            return after != null ? LocalDateTime.parse(after.getKey()) : null;
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Cursor does not belong to a date-ordered listing", e);
+        }
+    }
+
+    private static Long afterId(ExpenseCursor after) {
+        return after != null ? after.getId() : null;
     }
 
     public ExpenseSummary getExpenseSummary() {
-    List<Expense> allExpenses = expenseRepository.findAll();
-    
-    BigDecimal totalExpenses = allExpenses.stream()
-            .map(Expense::getAmount)
-            .reduce(BigDecimal.ZERO, BigDecimal::add);
-
-    LocalDateTime now = LocalDateTime.now();
-    BigDecimal monthlyExpenses = expenseRepository.findByMonth(now.getYear(), now.getMonthValue())
-            .stream()
-            .map(Expense::getAmount)
-            .reduce(BigDecimal.ZERO, BigDecimal::add);
-
-    BigDecimal yearlyExpenses = expenseRepository.findByYear(now.getYear())
-            .stream()
-            .map(Expense::getAmount)
-            .reduce(BigDecimal.ZERO, BigDecimal::add);
-
-    Map<String, BigDecimal> expensesByCategory = allExpenses.stream()
-            .collect(Collectors.groupingBy(
-                    Expense::getCategory,
-                    Collectors.reducing(BigDecimal.ZERO, Expense::getAmount, BigDecimal::add)
-            ));
-
-    // Find highest and lowest with amounts
-    Map.Entry<String, BigDecimal> highestEntry = expensesByCategory.entrySet().stream()
-            .max(Map.Entry.comparingByValue())
-            .orElse(null);
-
-    Map.Entry<String, BigDecimal> lowestEntry = expensesByCategory.entrySet().stream()
-            .min(Map.Entry.comparingByValue())
-            .orElse(null);
-
-    String highestSpendCategory = highestEntry != null ? highestEntry.getKey() : "None";
-    String lowestSpendCategory = lowestEntry != null ? lowestEntry.getKey() : "None";
-    BigDecimal highestSpendAmount = highestEntry != null ? highestEntry.getValue() : BigDecimal.ZERO;
-    BigDecimal lowestSpendAmount = lowestEntry != null ? lowestEntry.getValue() : BigDecimal.ZERO;
-
-    return new ExpenseSummary(totalExpenses, monthlyExpenses, yearlyExpenses, 
-                            expensesByCategory, highestSpendCategory, lowestSpendCategory,
-                            highestSpendAmount, lowestSpendAmount);
-}
+        YearMonth now = YearMonth.now();
+        return queryCache.get("summary", now, () -> summarize(now));
+    }
+
+    private ExpenseSummary summarize(YearMonth now) {
+        ExpenseTotals aggregates = expenseRepository.getAggregates();
 
+        BigDecimal totalExpenses = aggregates.getTotal();
+
+        BigDecimal monthlyExpenses = aggregates.getMonthTotal(now.getYear(), now.getMonthValue());
+        BigDecimal yearlyExpenses = aggregates.getYearTotal(now.getYear());
+
+        Map<String, BigDecimal> expensesByCategory = Collections.unmodifiableMap(aggregates.getCategoryTotals());
+
+        // Find highest and lowest with amounts
+        Map.Entry<String, BigDecimal> highestEntry = expensesByCategory.entrySet().stream()
+                .max(Map.Entry.comparingByValue())
+                .orElse(null);
+
+        Map.Entry<String, BigDecimal> lowestEntry = expensesByCategory.entrySet().stream()
+                .min(Map.Entry.comparingByValue())
+                .orElse(null);
+
+        String highestSpendCategory = highestEntry != null ? highestEntry.getKey() : "None";
+        String lowestSpendCategory = lowestEntry != null ? lowestEntry.getKey() : "None";
+        BigDecimal highestSpendAmount = highestEntry != null ? highestEntry.getValue() : BigDecimal.ZERO;
+        BigDecimal lowestSpendAmount = lowestEntry != null ? lowestEntry.getValue() : BigDecimal.ZERO;
+
+        return new ExpenseSummary(totalExpenses, monthlyExpenses, yearlyExpenses,
+                                expensesByCategory, highestSpendCategory, lowestSpendCategory,
+                                highestSpendAmount, lowestSpendAmount);
+    }
 
     public Map<String, BigDecimal> getExpensesByCategory() {
-        return expenseRepository.findAll().stream()
-                .collect(Collectors.groupingBy(
-                        Expense::getCategory,
-                        Collectors.reducing(BigDecimal.ZERO, Expense::getAmount, BigDecimal::add)
-                ));
+        return queryCache.get("by-category", null,
+                () -> Collections.unmodifiableMap(expenseRepository.getAggregates().getCategoryTotals()));
     }
 
     public Map<String, BigDecimal> getMonthlyTrend(int year) {
-    List<Expense> yearlyExpenses = expenseRepository.findByYear(year);
-    
-    // Create ordered map for months
-    Map<String, BigDecimal> monthlyTrend = new LinkedHashMap<>();
-    
-    // Initialize all months with zero
-    String[] months = {"January", "February", "March", "April", "May", "June",
-                      "July", "August", "September", "October", "November", "December"};
-    
-    for (String month : months) {
-        monthlyTrend.put(month, BigDecimal.ZERO);
-    }
-    
-    // Populate with actual data
-    for (Expense expense : yearlyExpenses) {
-        int monthValue = expense.getDate().getMonthValue();
-        String monthName = months[monthValue - 1]; // Convert to proper month name
-        
-        monthlyTrend.merge(monthName, expense.getAmount(), BigDecimal::add);
-    }
-    
-    return monthlyTrend;
-}
+        return queryCache.getForYear("trend", year, () -> monthlyTrend(year));
+    }
+
+    /** Version of the data behind every read; it moves on each change. */
+    public long getDataVersion() {
+        return expenseRepository.getVersion();
+    }
+
+    public long getYearVersion(int year) {
+        return expenseRepository.getYearVersion(year);
+    }
 
+    public long getMonthVersion(int year, int month) {
+        return expenseRepository.getMonthVersion(year, month);
+    }
+
+    public long getCategoryVersion(String category) {
+        return expenseRepository.getCategoryVersion(category);
+    }
+
+    public CacheStats getCacheStats() {
+        return queryCache.getStats();
+    }
+
+    private Map<String, BigDecimal> monthlyTrend(int year) {
+        ExpenseTotals aggregates = expenseRepository.getAggregates();
+
+        // Create ordered map for months, read from the month rollups
+        Map<String, BigDecimal> monthlyTrend = new LinkedHashMap<>();
+        String[] months = {"January", "February", "March", "April", "May", "June",
+                          "July", "August", "September", "October", "November", "December"};
 
+        for (int month = 1; month <= months.length; month++) {
+            monthlyTrend.put(months[month - 1], aggregates.getMonthTotal(year, month));
+        }
+
+        return Collections.unmodifiableMap(monthlyTrend);
+    }
+
+    /**
+     * Totals per period between two dates, answered from the rollups without touching any row.
+     * Both bounds are inclusive and widened to whole periods.
+     */
+    public List<PeriodAggregate> getPeriodAggregates(Granularity granularity, LocalDate from, LocalDate to,
+                                                     String category) {
+        return expenseRepository.getAggregates().getPeriodTotals(granularity, from, to, category).stream()
+                .map(total -> new PeriodAggregate(total.period(), total.count(), total.total()))
+                .collect(Collectors.toList());
+    }
 }
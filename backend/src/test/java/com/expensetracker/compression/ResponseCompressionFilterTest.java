@@ -0,0 +1,402 @@
+package com.expensetracker.compression;
+
+import jakarta.servlet.DispatcherType;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpServletResponseWrapper;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.context.request.async.AsyncRequestTimeoutException;
+import org.springframework.web.context.request.async.WebAsyncManager;
+import org.springframework.web.context.request.async.WebAsyncUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.Inflater;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ResponseCompressionFilterTest {
+
+    private static final int MIN_SIZE = 1024;
+
+    private final ResponseCompressionFilter filter = new ResponseCompressionFilter(
+            6, CompressionStrategy.DEFAULT, MIN_SIZE, 256, 2, List.of("application/json", "application/x-ndjson"));
+
+    @Test
+    @DisplayName("Should gzip a large compressible body while it is written")
+    void testCompressesLargeBody() throws Exception {
+        byte[] body = rows(500);
+        MockHttpServletResponse response = run(request("gzip, deflate"), (request, servletResponse) -> {
+            servletResponse.setContentType("application/json");
+            ((HttpServletResponse) servletResponse).setHeader("ETag", "\"1-2\"");
+            ServletOutputStream out = servletResponse.getOutputStream();
+            for (int offset = 0; offset < body.length; offset += 100) {
+                out.write(body, offset, Math.min(100, body.length - offset));
+            }
+        });
+
+        assertEquals("gzip", response.getHeader("Content-Encoding"));
+        assertEquals("Accept-Encoding", response.getHeader("Vary"));
+        assertEquals("W/\"1-2\"", response.getHeader("ETag"));
+        assertNull(response.getHeader("Content-Length"));
+        assertTrue(response.getContentAsByteArray().length < body.length / 4);
+        assertArrayEquals(body, gunzip(response.getContentAsByteArray()));
+        assertEquals(1, filter.getPool().idleCount());
+    }
+
+    @Test
+    @DisplayName("Should send a body smaller than the minimum size as is, with its length")
+    void testSmallBodyStaysPlain() throws Exception {
+        byte[] body = rows(3);
+        MockHttpServletResponse response = run(request("gzip"), (request, servletResponse) -> {
+            servletResponse.setContentType("application/json");
+            servletResponse.getOutputStream().write(body);
+            servletResponse.flushBuffer();
+        });
+
+        assertNull(response.getHeader("Content-Encoding"));
+        assertEquals("Accept-Encoding", response.getHeader("Vary"));
+        assertEquals(body.length, response.getContentLength());
+        assertArrayEquals(body, response.getContentAsByteArray());
+        assertEquals(1, filter.getPool().idleCount());
+    }
+
+    @Test
+    @DisplayName("Should decide from a declared length without holding the body back")
+    void testDeclaredLength() throws Exception {
+        byte[] large = rows(500);
+        MockHttpServletResponse compressed = run(request("gzip"), (request, servletResponse) -> {
+            servletResponse.setContentType("application/json");
+            ((HttpServletResponse) servletResponse).setHeader("Content-Length", Integer.toString(large.length));
+            servletResponse.getOutputStream().write(large, 0, 10);
+            servletResponse.getOutputStream().flush();
+            assertTrue(servletResponse.isCommitted());
+            servletResponse.getOutputStream().write(large, 10, large.length - 10);
+        });
+        assertEquals("gzip", compressed.getHeader("Content-Encoding"));
+        assertNull(compressed.getHeader("Content-Length"));
+        assertArrayEquals(large, gunzip(compressed.getContentAsByteArray()));
+
+        byte[] small = rows(3);
+        MockHttpServletResponse plain = run(request("gzip"), (request, servletResponse) -> {
+            servletResponse.setContentType("application/json");
+            servletResponse.setContentLength(small.length);
+            servletResponse.getOutputStream().write(small);
+        });
+        assertNull(plain.getHeader("Content-Encoding"));
+        assertEquals(small.length, plain.getContentLength());
+        assertArrayEquals(small, plain.getContentAsByteArray());
+    }
+
+    @Test
+    @DisplayName("Should leave the body alone when the client or the content type rules out gzip")
+    void testNotCompressed() throws Exception {
+        byte[] body = rows(500);
+        for (String acceptEncoding : new String[] {null, "identity", "gzip;q=0", "br, *;q=0", "gzip;q=0, *"}) {
+            MockHttpServletResponse response = run(request(acceptEncoding), (request, servletResponse) -> {
+                servletResponse.setContentType("application/json");
+                servletResponse.getOutputStream().write(body);
+            });
+            assertNull(response.getHeader("Content-Encoding"), acceptEncoding);
+            // The body would have been compressed for another client, so caches must tell them apart
+            assertEquals("Accept-Encoding", response.getHeader("Vary"), acceptEncoding);
+            assertArrayEquals(body, response.getContentAsByteArray());
+        }
+
+        MockHttpServletResponse gzipped = run(request("gzip"), (request, servletResponse) -> {
+            servletResponse.setContentType("application/gzip");
+            servletResponse.getOutputStream().write(body);
+        });
+        assertNull(gzipped.getHeader("Content-Encoding"));
+        assertNull(gzipped.getHeader("Vary"));
+        assertArrayEquals(body, gzipped.getContentAsByteArray());
+    }
+
+    @Test
+    @DisplayName("Should make everything written so far decodable on flush")
+    void testFlushWhileStreaming() throws Exception {
+        byte[] first = rows(100);
+        byte[][] flushed = new byte[1][];
+        MockHttpServletResponse response = run(request("gzip"), (request, servletResponse) -> {
+            servletResponse.setContentType("application/x-ndjson");
+            ServletOutputStream out = servletResponse.getOutputStream();
+            out.write(first);
+            out.flush();
+            flushed[0] = ((MockHttpServletResponse) ((CompressingResponse) servletResponse).getResponse())
+                    .getContentAsByteArray();
+            out.write(first);
+            out.close();
+        });
+
+        assertArrayEquals(first, inflateRaw(Arrays.copyOfRange(flushed[0], 10, flushed[0].length)));
+        byte[] both = Arrays.copyOf(first, first.length * 2);
+        System.arraycopy(first, 0, both, first.length, first.length);
+        assertArrayEquals(both, gunzip(response.getContentAsByteArray()));
+    }
+
+    @Test
+    @DisplayName("Should reuse pooled encoders across responses")
+    void testEncodersArePooled() throws Exception {
+        byte[] body = rows(500);
+        for (int i = 0; i < 5; i++) {
+            MockHttpServletResponse response = run(request("gzip"), (request, servletResponse) -> {
+                servletResponse.setContentType("application/json");
+                servletResponse.getWriter().write(new String(body, StandardCharsets.UTF_8));
+            });
+            assertArrayEquals(body, gunzip(response.getContentAsByteArray()));
+            assertEquals(1, filter.getPool().idleCount());
+        }
+
+        MockHttpServletResponse failed = new MockHttpServletResponse();
+        assertThrows(IllegalStateException.class, () -> filter.doFilter(request("gzip"), failed, (request, servletResponse) -> {
+            servletResponse.setContentType("application/json");
+            servletResponse.getOutputStream().write(body, 0, 100);
+            throw new IllegalStateException("Failed half way");
+        }));
+        assertEquals(1, filter.getPool().idleCount());
+    }
+
+    @Test
+    @DisplayName("Should end a streamed body on the async dispatch after it")
+    void testStreamEndsOnAsyncDispatch() throws Exception {
+        byte[] body = rows(500);
+        MockHttpServletRequest request = request("gzip");
+        request.setAsyncSupported(true);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        Thread[] streaming = new Thread[1];
+        filter.doFilter(request, response, (servletRequest, servletResponse) -> {
+            servletRequest.startAsync();
+            servletResponse.setContentType("application/x-ndjson");
+            streaming[0] = new Thread(() -> {
+                try {
+                    servletResponse.getOutputStream().write(body);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            streaming[0].start();
+        });
+        streaming[0].join();
+        assertEquals(0, filter.getPool().idleCount());
+
+        asyncDispatch(request, null);
+        filter.doFilter(request, response, (servletRequest, servletResponse) -> { });
+
+        assertArrayEquals(body, gunzip(response.getContentAsByteArray()));
+        assertEquals(1, filter.getPool().idleCount());
+    }
+
+    @Test
+    @DisplayName("Should leave the encoder to a streaming thread still writing when the request times out")
+    void testAsyncTimeoutWhileWriting() throws Exception {
+        MockHttpServletRequest request = request("gzip");
+        request.setAsyncSupported(true);
+        StallingResponse response = new StallingResponse();
+        IOException[] failure = new IOException[1];
+        Thread[] streaming = new Thread[1];
+        filter.doFilter(request, response, (servletRequest, servletResponse) -> {
+            servletRequest.startAsync();
+            servletResponse.setContentType("application/x-ndjson");
+            streaming[0] = new Thread(() -> {
+                // Random bytes do not compress, so the encoder soon has to write to the container
+                byte[] chunk = new byte[4096];
+                Random random = new Random(42);
+                try {
+                    ServletOutputStream out = servletResponse.getOutputStream();
+                    for (int i = 0; i < 10; i++) {
+                        random.nextBytes(chunk);
+                        out.write(chunk);
+                    }
+                } catch (IOException e) {
+                    failure[0] = e;
+                }
+            });
+            streaming[0].start();
+        });
+        // The streaming thread is now inside a write that the client does not read
+        assertTrue(response.stalled.await(10, TimeUnit.SECONDS));
+
+        asyncDispatch(request, new AsyncRequestTimeoutException());
+        filter.doFilter(request, response, (servletRequest, servletResponse) -> { });
+        assertEquals(0, filter.getPool().idleCount(), "Encoder given back while still in use");
+
+        response.resume.countDown();
+        streaming[0].join();
+        assertNotNull(failure[0]);
+        assertEquals(1, filter.getPool().idleCount());
+        // The body was cut short, so it must not be ended as if it were whole
+        assertThrows(EOFException.class, () -> gunzip(response.getContent()));
+    }
+
+    @Test
+    @DisplayName("Should pass non-blocking writes to the container before the body starts")
+    void testWriteListener() throws Exception {
+        WriteListener listener = new WriteListener() {
+            @Override
+            public void onWritePossible() {
+            }
+
+            @Override
+            public void onError(Throwable t) {
+            }
+        };
+        StallingResponse plain = new StallingResponse();
+        filter.doFilter(request("gzip"), plain, (request, servletResponse) -> {
+            servletResponse.setContentType("application/json");
+            servletResponse.getOutputStream().setWriteListener(listener);
+            servletResponse.getOutputStream().write(rows(500));
+        });
+        assertSame(listener, plain.listener);
+        assertNull(plain.getHeader("Content-Encoding"));
+        assertArrayEquals(rows(500), plain.getContent());
+
+        assertThrows(IllegalStateException.class, () -> filter.doFilter(request("gzip"), new StallingResponse(),
+                (request, servletResponse) -> {
+                    servletResponse.setContentType("application/json");
+                    servletResponse.getOutputStream().write(rows(500));
+                    servletResponse.getOutputStream().setWriteListener(listener);
+                }));
+        assertEquals(1, filter.getPool().idleCount());
+    }
+
+    @Test
+    @DisplayName("Should read Accept-Encoding qualities")
+    void testAcceptsGzip() {
+        assertTrue(accepts("gzip"));
+        assertTrue(accepts("deflate, gzip;q=0.5"));
+        assertTrue(accepts("GZIP"));
+        assertTrue(accepts("x-gzip"));
+        assertTrue(accepts("*"));
+        assertTrue(accepts("br", "gzip"));
+        assertFalse(accepts());
+        assertFalse(accepts("identity"));
+        assertFalse(accepts("gzip;q=0"));
+        assertFalse(accepts("gzip;q=0.0, *"));
+        assertFalse(accepts("*;q=0"));
+    }
+
+    private MockHttpServletResponse run(MockHttpServletRequest request, FilterChain chain) throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, chain);
+        return response;
+    }
+
+    /** Turns the request into the async dispatch that reports how the async processing ended. */
+    private static void asyncDispatch(MockHttpServletRequest request, Object result) {
+        request.setAsyncStarted(false);
+        request.setDispatcherType(DispatcherType.ASYNC);
+        WebAsyncManager asyncManager = mock(WebAsyncManager.class);
+        when(asyncManager.getConcurrentResult()).thenReturn(result);
+        request.setAttribute(WebAsyncUtils.WEB_ASYNC_MANAGER_ATTRIBUTE, asyncManager);
+    }
+
+    private static MockHttpServletRequest request(String acceptEncoding) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/expenses");
+        if (acceptEncoding != null) {
+            request.addHeader("Accept-Encoding", acceptEncoding);
+        }
+        return request;
+    }
+
+    private static boolean accepts(String... values) {
+        return ResponseCompressionFilter.acceptsGzip(Collections.enumeration(List.of(values)));
+    }
+
+    private static byte[] rows(int count) {
+        StringBuilder rows = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            rows.append("{\"id\":").append(i).append(",\"description\":\"Lunch\",\"amount\":12.50,")
+                    .append("\"category\":\"Food\",\"date\":\"2024-03-01T12:00:00\"}\n");
+        }
+        return rows.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static byte[] gunzip(byte[] bytes) throws IOException {
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(bytes))) {
+            return in.readAllBytes();
+        }
+    }
+
+    private static byte[] inflateRaw(byte[] bytes) throws Exception {
+        Inflater inflater = new Inflater(true);
+        inflater.setInput(bytes);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[1024];
+        int length;
+        while ((length = inflater.inflate(buffer)) > 0) {
+            out.write(buffer, 0, length);
+        }
+        inflater.end();
+        return out.toByteArray();
+    }
+
+    /**
+     * Container response whose stream can be made to block, like a socket the client stopped reading,
+     * and which keeps the listener of non-blocking writes.
+     */
+    private static final class StallingResponse extends HttpServletResponseWrapper {
+        final CountDownLatch stalled = new CountDownLatch(1);
+        final CountDownLatch resume = new CountDownLatch(1);
+        final ByteArrayOutputStream content = new ByteArrayOutputStream();
+        WriteListener listener;
+
+        StallingResponse() {
+            super(new MockHttpServletResponse());
+        }
+
+        byte[] getContent() {
+            return content.toByteArray();
+        }
+
+        @Override
+        public ServletOutputStream getOutputStream() {
+            return new ServletOutputStream() {
+                @Override
+                public void write(int b) {
+                    write(new byte[] {(byte) b}, 0, 1);
+                }
+
+                @Override
+                public void write(byte[] bytes, int offset, int length) {
+                    if (content.size() > 0 && resume.getCount() > 0) {
+                        stalled.countDown();
+                        try {
+                            resume.await();
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                        }
+                    }
+                    content.write(bytes, offset, length);
+                }
+
+                @Override
+                public boolean isReady() {
+                    return true;
+                }
+
+                @Override
+                public void setWriteListener(WriteListener writeListener) {
+                    listener = writeListener;
+                }
+            };
+        }
+    }
+}
@@ -1,30 +1,55 @@
 package com.expensetracker.controller;
 
+import com.expensetracker.dto.ExpenseBatchResult;
+import com.expensetracker.dto.ExpensePage;
 import com.expensetracker.dto.ExpenseRequest;
 import com.expensetracker.dto.ExpenseResponse;
+import com.expensetracker.dto.ExpenseSummary;
+import com.expensetracker.dto.PeriodAggregate;
+import com.expensetracker.export.ExpenseExporter;
+import com.expensetracker.repository.ExpenseVersionConflictException;
+import com.expensetracker.repository.Granularity;
 import com.expensetracker.service.ExpenseService;
+import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import com.fasterxml.jackson.dataformat.smile.databind.SmileMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.DisplayName;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 
 import java.math.BigDecimal;
+import java.time.DateTimeException;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.Arrays;
 import java.util.List;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
 @WebMvcTest(ExpenseController.class)
+@Import(ExpenseExporter.class)
 class ExpenseControllerTest {
 
     @Autowired
@@ -66,6 +91,51 @@ class ExpenseControllerTest {
                 .andExpect(jsonPath("$.category").value("Food"));
     }
 
+    @Test
+    @DisplayName("Should create a batch of expenses")
+    void testCreateExpenses() throws Exception {
+        when(expenseService.createExpenses(any()))
+                .thenReturn(List.of(ExpenseBatchResult.of(0, ExpenseBatchResult.Status.CREATED, expenseResponse)));
+
+        mockMvc.perform(post("/api/expenses/batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(List.of(expenseRequest))))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].status").value("CREATED"))
+                .andExpect(jsonPath("$[0].expense.id").value(1));
+    }
+
+    @Test
+    @DisplayName("Should reject a batch with an invalid item and apply nothing")
+    void testCreateExpensesRejectsInvalidItem() throws Exception {
+        ExpenseRequest invalidRequest = new ExpenseRequest("", new BigDecimal("5.00"), "Food", LocalDateTime.now());
+
+        mockMvc.perform(post("/api/expenses/batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(List.of(expenseRequest, invalidRequest))))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.length()").value(1))
+                .andExpect(jsonPath("$[0].index").value(1))
+                .andExpect(jsonPath("$[0].status").value("INVALID"))
+                .andExpect(jsonPath("$[0].errors[0]").value("Description is required"));
+
+        verify(expenseService, never()).createExpenses(any());
+    }
+
+    @Test
+    @DisplayName("Should refuse a batch over the size limit as a whole")
+    void testDeleteExpensesRejectsOversizedBatch() throws Exception {
+        List<Long> ids = LongStream.rangeClosed(1, 10_001).boxed().toList();
+
+        mockMvc.perform(delete("/api/expenses/batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(ids)))
+                .andExpect(status().isPayloadTooLarge())
+                .andExpect(content().string(""));
+
+        verify(expenseService, never()).deleteExpenses(any());
+    }
+
     @Test
     @DisplayName("Should update expense successfully")
     void testUpdateExpense() throws Exception {
@@ -79,6 +149,86 @@ class ExpenseControllerTest {
                 .andExpect(jsonPath("$.description").value("Test expense"));
     }
 
+    @Test
+    @DisplayName("Should update only while If-Match holds the expense's current version")
+    void testConditionalUpdate() throws Exception {
+        expenseResponse.setVersion(4);
+        when(expenseService.getExpenseById(1L)).thenReturn(expenseResponse);
+        String etag = mockMvc.perform(get("/api/expenses/1"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader("ETag");
+
+        ExpenseResponse updated = new ExpenseResponse();
+        updated.setId(1L);
+        updated.setVersion(5);
+        when(expenseService.updateExpense(eq(1L), any(ExpenseRequest.class), eq(4L))).thenReturn(updated);
+
+        String updatedEtag = mockMvc.perform(put("/api/expenses/1").header("If-Match", etag)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(expenseRequest)))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader("ETag");
+
+        when(expenseService.updateExpense(eq(1L), any(ExpenseRequest.class), eq(4L)))
+                .thenThrow(new ExpenseVersionConflictException(1L, 4L));
+        when(expenseService.updateExpense(eq(1L), any(ExpenseRequest.class), eq(-1L)))
+                .thenThrow(new ExpenseVersionConflictException(1L, -1L));
+
+        mockMvc.perform(put("/api/expenses/1").header("If-Match", etag)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(expenseRequest)))
+                .andExpect(status().isConflict());
+        mockMvc.perform(put("/api/expenses/1").header("If-Match", "\"from-another-process-4\"")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(expenseRequest)))
+                .andExpect(status().isConflict());
+        assertEquals(etag.replace("-4\"", "-5\""), updatedEtag);
+    }
+
+    @Test
+    @DisplayName("Should answer in CBOR or Smile when asked and in JSON by default, with a tag per format")
+    void testBinaryFormats() throws Exception {
+        expenseResponse.setVersion(3);
+        when(expenseService.getExpenseById(1L)).thenReturn(expenseResponse);
+        when(expenseService.getAllExpenses()).thenReturn(List.of(expenseResponse));
+        String json = objectMapper.writeValueAsString(expenseResponse);
+
+        MvcResult defaultResult = mockMvc.perform(get("/api/expenses/1").accept("*/*"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_JSON))
+                .andReturn();
+        MvcResult cbor = mockMvc.perform(get("/api/expenses/1").accept("application/cbor"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/cbor"))
+                .andReturn();
+        MvcResult smile = mockMvc.perform(get("/api/expenses").accept("application/json;q=0.5, application/x-jackson-smile"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/x-jackson-smile"))
+                .andReturn();
+
+        // Same document in every format: the application's date strings and field order
+        CBORMapper cborMapper = CBORMapper.builder().addModule(new JavaTimeModule()).build();
+        SmileMapper smileMapper = SmileMapper.builder().addModule(new JavaTimeModule()).build();
+        ObjectMapper decimals = objectMapper.copy().enable(DeserializationFeature.USE_BIG_DECIMAL_FOR_FLOATS);
+        assertEquals(decimals.readTree(json), cborMapper.readTree(cbor.getResponse().getContentAsByteArray()));
+        assertEquals(decimals.readTree("[" + json + "]"), smileMapper.readTree(smile.getResponse().getContentAsByteArray()));
+
+        String cborEtag = cbor.getResponse().getHeader("ETag");
+        assertNotEquals(defaultResult.getResponse().getHeader("ETag"), cborEtag);
+        mockMvc.perform(get("/api/expenses/1").accept("application/cbor").header("If-None-Match", cborEtag))
+                .andExpect(status().isNotModified());
+        mockMvc.perform(get("/api/expenses/1").header("If-None-Match", cborEtag))
+                .andExpect(status().isOk());
+
+        ExpenseResponse updated = new ExpenseResponse();
+        updated.setVersion(4);
+        when(expenseService.updateExpense(eq(1L), any(ExpenseRequest.class), eq(3L))).thenReturn(updated);
+        mockMvc.perform(put("/api/expenses/1").header("If-Match", cborEtag)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(expenseRequest)))
+                .andExpect(status().isOk());
+    }
+
     @Test
     @DisplayName("Should delete expense successfully")
     void testDeleteExpense() throws Exception {
@@ -121,4 +271,122 @@ class ExpenseControllerTest {
                 .content(objectMapper.writeValueAsString(invalidRequest)))
                 .andExpect(status().isBadRequest());
     }
+
+    @Test
+    @DisplayName("Should return a page with a next cursor header")
+    void testGetExpensesPage() throws Exception {
+        when(expenseService.getExpensesPage(null, 1))
+                .thenReturn(new ExpensePage(List.of(expenseResponse), "next-token"));
+
+        mockMvc.perform(get("/api/expenses").param("size", "1")
+                .accept("application/json, text/plain, */*"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(ExpenseController.NEXT_CURSOR_HEADER, "next-token"))
+                .andExpect(jsonPath("$[0].id").value(1));
+
+        mockMvc.perform(get("/api/expenses").param("size", "0"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @DisplayName("Should get expenses of one category")
+    void testGetExpensesInCategory() throws Exception {
+        when(expenseService.getExpensesInCategory("Food")).thenReturn(List.of(expenseResponse));
+
+        mockMvc.perform(get("/api/expenses/category/Food"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].id").value(1));
+    }
+
+    @Test
+    @DisplayName("Should answer 304 without computing the summary when the data version is unchanged")
+    void testConditionalGetSummary() throws Exception {
+        when(expenseService.getDataVersion()).thenReturn(7L);
+        when(expenseService.getExpenseSummary()).thenReturn(new ExpenseSummary());
+
+        String etag = mockMvc.perform(get("/api/expenses/summary"))
+                .andExpect(status().isOk())
+                .andExpect(header().exists("ETag"))
+                .andReturn().getResponse().getHeader("ETag");
+
+        mockMvc.perform(get("/api/expenses/summary").header("If-None-Match", etag))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+        verify(expenseService, times(1)).getExpenseSummary();
+
+        when(expenseService.getDataVersion()).thenReturn(8L);
+
+        mockMvc.perform(get("/api/expenses/summary").header("If-None-Match", etag))
+                .andExpect(status().isOk());
+        verify(expenseService, times(2)).getExpenseSummary();
+    }
+
+    @Test
+    @DisplayName("Should tag a month with its own version")
+    void testConditionalGetMonth() throws Exception {
+        when(expenseService.getMonthVersion(2024, 1)).thenReturn(3L);
+        when(expenseService.getExpensesByMonth(2024, 1)).thenReturn(List.of(expenseResponse));
+
+        String etag = mockMvc.perform(get("/api/expenses/month/2024/1"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader("ETag");
+        when(expenseService.getDataVersion()).thenReturn(99L);
+
+        mockMvc.perform(get("/api/expenses/month/2024/1").header("If-None-Match", etag))
+                .andExpect(status().isNotModified());
+        verify(expenseService, times(1)).getExpensesByMonth(2024, 1);
+    }
+
+    @Test
+    @DisplayName("Should reject an invalid month with 400")
+    void testInvalidMonth() throws Exception {
+        // As the repository does, through YearMonth.of
+        when(expenseService.getMonthVersion(2024, 13)).thenThrow(new DateTimeException("Invalid month 13"));
+
+        mockMvc.perform(get("/api/expenses/month/2024/13"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/api/expenses/month/2024/13").accept("application/x-ndjson"))
+                .andExpect(status().isBadRequest());
+        verify(expenseService, never()).getExpensesByMonth(anyInt(), anyInt());
+    }
+
+    @Test
+    @DisplayName("Should get period aggregates and reject an unknown granularity")
+    void testGetPeriodAggregates() throws Exception {
+        when(expenseService.getPeriodAggregates(Granularity.WEEK, LocalDate.of(2024, 1, 1), LocalDate.of(2024, 1, 31), "Food"))
+                .thenReturn(List.of(new PeriodAggregate(LocalDate.of(2024, 1, 8), 2, new BigDecimal("5.00"))));
+
+        mockMvc.perform(get("/api/expenses/aggregate").param("granularity", "week")
+                .param("from", "2024-01-01").param("to", "2024-01-31").param("category", "Food"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].period").value("2024-01-08"))
+                .andExpect(jsonPath("$[0].count").value(2))
+                .andExpect(jsonPath("$[0].total").value(5.00));
+
+        mockMvc.perform(get("/api/expenses/aggregate").param("granularity", "hour")
+                .param("from", "2024-01-01").param("to", "2024-01-31"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @DisplayName("Should stream expenses as NDJSON when requested")
+    void testStreamAllExpenses() throws Exception {
+        ExpenseResponse second = new ExpenseResponse();
+        second.setId(2L);
+        when(expenseService.streamAllExpenses()).thenReturn(Stream.of(expenseResponse, second));
+
+        MvcResult result = mockMvc.perform(get("/api/expenses").accept("application/x-ndjson"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        // A long stream must not be cut off by the container's default async timeout
+        assertEquals(-1, result.getRequest().getAsyncContext().getTimeout());
+
+        String body = mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/x-ndjson"))
+                .andReturn().getResponse().getContentAsString();
+        // One object per line, with nothing before or between them
+        assertEquals(objectMapper.writeValueAsString(expenseResponse) + "\n"
+                + objectMapper.writeValueAsString(second) + "\n", body);
+    }
 }
@@ -0,0 +1,60 @@
+package com.expensetracker.controller;
+
+import com.expensetracker.export.ExpenseExporter;
+import com.expensetracker.service.ExpenseService;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.stream.Stream;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@WebMvcTest(ExpenseExportController.class)
+@Import(ExpenseExporter.class)
+class ExpenseExportControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockBean
+    private ExpenseService expenseService;
+
+    @Test
+    @DisplayName("Should export through the end of a date-only to bound")
+    void testDateOnlyBoundsCoverWholeDays() throws Exception {
+        when(expenseService.streamExpensesForExport(any(), any())).thenReturn(Stream.empty());
+
+        MvcResult result = mockMvc.perform(get("/api/expenses/export?from=2024-03-01&to=2024-03-31"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().string("id,description,amount,category,date,createdAt,updatedAt\n"));
+
+        verify(expenseService).streamExpensesForExport(LocalDateTime.of(2024, 3, 1, 0, 0),
+                                                       LocalDateTime.of(2024, 3, 31, 0, 0).with(LocalTime.MAX));
+    }
+
+    @Test
+    @DisplayName("Should reject an unknown format before reading any rows")
+    void testUnknownFormat() throws Exception {
+        mockMvc.perform(get("/api/expenses/export?format=xml"))
+                .andExpect(status().isBadRequest());
+
+        verify(expenseService, never()).streamExpensesForExport(any(), any());
+    }
+}
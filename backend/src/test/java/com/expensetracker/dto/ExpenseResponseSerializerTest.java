@@ -0,0 +1,104 @@
+package com.expensetracker.dto;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ExpenseResponseSerializerTest {
+
+    private static final LocalDateTime[] EDGE_DATES = {
+            LocalDateTime.of(2024, 1, 2, 0, 0),
+            LocalDateTime.of(2024, 12, 31, 23, 59, 59, 999_999_999),
+            LocalDateTime.of(2024, 6, 1, 8, 30, 0, 100_000_000),
+            LocalDateTime.of(2024, 6, 1, 8, 30, 0, 120_000),
+            LocalDateTime.of(2024, 6, 1, 8, 30, 0, 1),
+            LocalDateTime.of(0, 1, 1, 0, 0),
+            LocalDateTime.of(9999, 12, 31, 23, 59, 59),
+            LocalDateTime.of(10000, 1, 1, 0, 0),
+            LocalDateTime.of(-5, 3, 4, 5, 6, 7),
+            null
+    };
+
+    @Test
+    @DisplayName("Should write the same bytes as the bean serializer")
+    void testByteIdenticalToBeanSerializer() throws Exception {
+        List<ExpenseResponse> responses = responses(new Random(13), 2_000);
+
+        for (boolean timestamps : new boolean[] {false, true}) {
+            ObjectWriter reflective = writer(mapper(timestamps));
+            ObjectWriter custom = writer(mapper(timestamps)
+                    .registerModule(new SimpleModule().addSerializer(ExpenseResponse.class, new ExpenseResponseSerializer())));
+
+            assertEquals(reflective.writeValueAsString(responses), custom.writeValueAsString(responses));
+            assertArrayEquals(reflective.writeValueAsBytes(responses), custom.writeValueAsBytes(responses));
+        }
+    }
+
+    @Test
+    @DisplayName("Should format dates like ISO_LOCAL_DATE_TIME")
+    void testIsoLocalDateTime() {
+        Random random = new Random(17);
+        for (int i = 0; i < 10_000; i++) {
+            LocalDateTime date = randomDate(random);
+            assertEquals(DateTimeFormatter.ISO_LOCAL_DATE_TIME.format(date),
+                         new String(ExpenseResponseSerializer.isoLocalDateTime(date)));
+        }
+        for (LocalDateTime date : EDGE_DATES) {
+            if (date != null) {
+                assertEquals(DateTimeFormatter.ISO_LOCAL_DATE_TIME.format(date),
+                             new String(ExpenseResponseSerializer.isoLocalDateTime(date)));
+            }
+        }
+    }
+
+    private static ObjectMapper mapper(boolean timestamps) {
+        return new ObjectMapper()
+                .registerModule(new JavaTimeModule())
+                .configure(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS, timestamps);
+    }
+
+    private static ObjectWriter writer(ObjectMapper mapper) {
+        return mapper.writerFor(mapper.getTypeFactory().constructCollectionType(List.class, ExpenseResponse.class));
+    }
+
+    private static List<ExpenseResponse> responses(Random random, int count) {
+        String[] texts = {"Lunch", "Café \"Central\"", "Line\nbreak\ttab", "€ and 😀", "", null};
+        BigDecimal[] amounts = {new BigDecimal("12.50"), new BigDecimal("1E+3"), new BigDecimal("0.000001"),
+                                BigDecimal.ZERO, new BigDecimal("-3"), null};
+        List<ExpenseResponse> responses = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            ExpenseResponse response = new ExpenseResponse();
+            response.setId(random.nextInt(10) == 0 ? null : random.nextLong());
+            response.setDescription(texts[random.nextInt(texts.length)]);
+            response.setAmount(random.nextBoolean() ? amounts[random.nextInt(amounts.length)]
+                                                    : BigDecimal.valueOf(random.nextInt(1_000_000), random.nextInt(4)));
+            response.setCategory(texts[random.nextInt(texts.length)]);
+            response.setDate(random.nextInt(4) == 0 ? EDGE_DATES[random.nextInt(EDGE_DATES.length)] : randomDate(random));
+            response.setCreatedAt(randomDate(random));
+            // Often equal to the creation time, as for rows never updated
+            response.setUpdatedAt(random.nextBoolean() ? response.getCreatedAt() : EDGE_DATES[random.nextInt(EDGE_DATES.length)]);
+            response.setVersion(random.nextInt(100));
+            responses.add(response);
+        }
+        return responses;
+    }
+
+    private static LocalDateTime randomDate(Random random) {
+        int[] nanos = {0, 0, random.nextInt(1_000_000_000), random.nextInt(1000) * 1_000_000, random.nextInt(1_000_000) * 1_000};
+        return LocalDateTime.of(1900 + random.nextInt(200), 1 + random.nextInt(12), 1 + random.nextInt(28),
+                random.nextInt(24), random.nextInt(60), random.nextInt(60), nanos[random.nextInt(nanos.length)]);
+    }
+}
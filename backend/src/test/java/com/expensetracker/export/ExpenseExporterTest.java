@@ -0,0 +1,67 @@
+package com.expensetracker.export;
+
+import com.expensetracker.dto.ExpenseResponse;
+import com.expensetracker.model.Expense;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ExpenseExporterTest {
+
+    private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+    private final ExpenseExporter exporter = new ExpenseExporter(objectMapper);
+
+    @Test
+    @DisplayName("Should write CSV with quoting and ISO dates")
+    void testExportCsv() throws IOException {
+        ExpenseResponse lunch = response(1L, "Lunch, with \"friends\"", "25.50", LocalDateTime.of(2024, 1, 5, 12, 30));
+        ExpenseResponse bus = response(2L, "Bus", "2.75", LocalDateTime.of(2024, 1, 6, 8, 0, 15));
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        exporter.export(Stream.of(lunch, bus), ExportFormat.CSV, false, output);
+
+        String[] lines = output.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals("id,description,amount,category,date,createdAt,updatedAt", lines[0]);
+        assertTrue(lines[1].startsWith("1,\"Lunch, with \"\"friends\"\"\",25.50,Food,2024-01-05T12:30:00,"));
+        assertTrue(lines[2].startsWith("2,Bus,2.75,Food,2024-01-06T08:00:15,"));
+        assertEquals(3, lines.length);
+    }
+
+    @Test
+    @DisplayName("Should gzip NDJSON on the fly")
+    void testExportGzippedNdjson() throws IOException {
+        ExpenseResponse lunch = response(1L, "Lunch", "25.50", LocalDateTime.of(2024, 1, 5, 12, 30));
+        ExpenseResponse bus = response(2L, "Bus", "2.75", LocalDateTime.of(2024, 1, 6, 8, 0, 15));
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        exporter.export(Stream.of(lunch, bus), ExportFormat.NDJSON, true, output);
+
+        String body;
+        try (GZIPInputStream input = new GZIPInputStream(new ByteArrayInputStream(output.toByteArray()))) {
+            body = new String(input.readAllBytes(), StandardCharsets.UTF_8);
+        }
+        // One object per line, with nothing before or between them
+        assertEquals(objectMapper.writeValueAsString(lunch) + "\n" + objectMapper.writeValueAsString(bus) + "\n", body);
+        ExpenseResponse read = objectMapper.readValue(body.substring(0, body.indexOf('\n')), ExpenseResponse.class);
+        assertEquals("Lunch", read.getDescription());
+        assertEquals(new BigDecimal("25.50"), read.getAmount());
+    }
+
+    private static ExpenseResponse response(long id, String description, String amount, LocalDateTime date) {
+        Expense expense = new Expense(description, new BigDecimal(amount), "Food", date);
+        expense.setId(id);
+        return new ExpenseResponse(expense);
+    }
+}
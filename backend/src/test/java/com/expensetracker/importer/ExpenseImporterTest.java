@@ -0,0 +1,125 @@
+package com.expensetracker.importer;
+
+import com.expensetracker.dto.ImportReport;
+import com.expensetracker.model.Expense;
+import com.expensetracker.repository.ExpenseRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.validation.Validation;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ExpenseImporterTest {
+
+    @TempDir
+    Path directory;
+
+    private ExpenseRepository repository;
+    private ObjectMapper objectMapper;
+
+    @BeforeEach
+    void setUp() {
+        repository = new ExpenseRepository();
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+    }
+
+    @Test
+    @DisplayName("Should import valid CSV rows and write the rest to the reject file")
+    void testImportCsv() throws IOException {
+        String csv = """
+                Date,Description,Category,Amount
+                2024-01-05T12:30:00,"Lunch, with ""friends\""",Food,25.50
+                2024-01-06,Bus,Transport,2.75
+                2024-01-07,Refund,Food,-3.00
+                not-a-date,Broken,Food,1.00
+                2024-01-08,,Food,4.00
+                """;
+        Path rejects = directory.resolve("rejects.csv");
+
+        ImportReport report = importer(2, 1).importFrom(stream(csv), ImportFormat.CSV, rejects);
+
+        assertEquals(5, report.getRowsRead());
+        assertEquals(2, report.getImported());
+        assertEquals(3, report.getRejected());
+        assertEquals(rejects.toString(), report.getRejectFile());
+
+        List<Expense> imported = repository.findAll().stream().sorted(Comparator.comparing(Expense::getDate)).toList();
+        assertEquals("Lunch, with \"friends\"", imported.get(0).getDescription());
+        assertEquals(new BigDecimal("25.50"), imported.get(0).getAmount());
+        assertEquals(LocalDateTime.of(2024, 1, 6, 0, 0), imported.get(1).getDate());
+
+        List<String> rejectLines = Files.readAllLines(rejects);
+        assertEquals("line,reason,record", rejectLines.get(0));
+        assertEquals(4, rejectLines.size());
+        assertTrue(rejectLines.stream().anyMatch(line -> line.startsWith("4,\"Amount must be positive\"")));
+        assertTrue(rejectLines.stream().anyMatch(line -> line.startsWith("5,")));
+        assertTrue(rejectLines.stream().anyMatch(line -> line.startsWith("6,\"Description is required\"")));
+    }
+
+    @Test
+    @DisplayName("Should import NDJSON without creating a reject file when every row is valid")
+    void testImportNdjson() throws IOException {
+        String ndjson = """
+                {"description":"Coffee","amount":3.20,"category":"Food","date":"2024-02-01T08:00:00"}
+                {"description":"Train","amount":12,"category":"Transport","date":"2024-02-02T09:00:00"}
+                """;
+        Path rejects = directory.resolve("rejects.csv");
+
+        ImportReport report = importer(2, 1).importFrom(stream(ndjson), ImportFormat.NDJSON, rejects);
+
+        assertEquals(2, report.getImported());
+        assertNull(report.getRejectFile());
+        assertFalse(Files.exists(rejects));
+        assertEquals(new BigDecimal("15.20"), repository.getAggregates().getTotal());
+    }
+
+    @Test
+    @DisplayName("Should push every row through small chunks and queues")
+    void testImportManyRowsThroughSmallQueues() throws IOException {
+        StringBuilder csv = new StringBuilder("description,amount,category,date\n");
+        for (int i = 0; i < 20_000; i++) {
+            csv.append("Expense ").append(i).append(',').append(i % 10 == 0 ? "0" : "1.00")
+               .append(",Food,2024-03-01T10:00:00\n");
+        }
+
+        ImportReport report = importer(7, 1).importFrom(stream(csv.toString()), ImportFormat.CSV,
+                                                         directory.resolve("rejects.csv"));
+
+        assertEquals(20_000, report.getRowsRead());
+        assertEquals(18_000, report.getImported());
+        assertEquals(18_000, repository.findAll().size());
+        assertEquals(new BigDecimal("18000.00"), repository.getAggregates().getTotal());
+    }
+
+    @Test
+    @DisplayName("Should refuse a CSV header without the required columns")
+    void testRejectsIncompleteHeader() {
+        assertThrows(IllegalArgumentException.class, () -> importer(10, 2)
+                .importFrom(stream("description,amount\nLunch,5\n"), ImportFormat.CSV, null));
+    }
+
+    private ExpenseImporter importer(int chunkSize, int queueCapacity) {
+        return new ExpenseImporter(repository, objectMapper, Validation.buildDefaultValidatorFactory().getValidator(),
+                                   chunkSize, 3, 2, queueCapacity, Duration.ofSeconds(5));
+    }
+
+    private static InputStream stream(String content) {
+        return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+    }
+}
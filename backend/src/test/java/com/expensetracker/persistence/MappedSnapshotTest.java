@@ -0,0 +1,116 @@
+package com.expensetracker.persistence;
+
+import com.expensetracker.model.Expense;
+import com.expensetracker.repository.ExpenseRepository;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MappedSnapshotTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    @DisplayName("Should read back every column from the mapped file")
+    void testRoundTrip() throws IOException {
+        Expense plain = expense(7L, "Café ☕ with 𝄞", "4.50", "Food");
+        Expense huge = expense(3L, null, "123456789012345678901234567890.123", "Taxes");
+        huge.setUpdatedAt(null);
+        Path file = directory.resolve("snapshot.dat");
+
+        MappedSnapshot.write(file, 5, 8, List.of(plain, huge));
+        MappedSnapshot snapshot = MappedSnapshot.open(file);
+
+        assertEquals(5, snapshot.replayFrom());
+        assertEquals(8, snapshot.nextId());
+        assertEquals(2, snapshot.size());
+        assertEquals(0, snapshot.find(3L));
+        assertEquals(1, snapshot.find(7L));
+        assertTrue(snapshot.find(5L) < 0);
+        assertSameExpense(huge, snapshot.materialize(0));
+        assertSameExpense(plain, snapshot.materialize(1));
+    }
+
+    @Test
+    @DisplayName("Should tell a missing category from an empty one")
+    void testNullCategory() throws IOException {
+        Expense uncategorized = expense(1L, "No category", "1.00", null);
+        Expense empty = expense(2L, "Empty category", "2.00", "");
+        Path file = directory.resolve("snapshot.dat");
+
+        MappedSnapshot.write(file, 0, 3, List.of(uncategorized, empty));
+        MappedSnapshot snapshot = MappedSnapshot.open(file);
+
+        assertNull(snapshot.category(0));
+        assertEquals("", snapshot.category(1));
+        assertSameExpense(uncategorized, snapshot.materialize(0));
+        assertSameExpense(empty, snapshot.materialize(1));
+    }
+
+    @Test
+    @DisplayName("Should serve snapshot rows and apply later changes on top of them")
+    void testRepositoryOverMappedSnapshot() throws IOException {
+        try (WalExpensePersistence persistence = open()) {
+            ExpenseRepository repository = new ExpenseRepository(persistence);
+            for (int i = 1; i <= 5; i++) {
+                repository.save(expense(null, "Expense " + i, i + ".00", i % 2 == 0 ? "Even" : "Odd"));
+            }
+            persistence.snapshot();
+        }
+
+        try (WalExpensePersistence persistence = open()) {
+            ExpenseRepository repository = new ExpenseRepository(persistence);
+            assertEquals(5, repository.findAll().size());
+            assertEquals(new BigDecimal("15.00"), repository.getAggregates().getTotal());
+
+            Expense updated = repository.findById(2L).orElseThrow();
+            updated.setAmount(new BigDecimal("20.00"));
+            repository.save(updated);
+            repository.deleteById(3L);
+            repository.save(expense(null, "Expense 6", "6.00", "Even"));
+
+            assertEquals(List.of(1L, 2L, 4L, 5L, 6L),
+                         repository.findAll().stream().map(Expense::getId).sorted().toList());
+            assertEquals(new BigDecimal("20.00"), repository.findById(2L).orElseThrow().getAmount());
+            assertTrue(repository.findById(3L).isEmpty());
+            assertEquals(new BigDecimal("36.00"), repository.getAggregates().getTotal());
+        }
+
+        try (WalExpensePersistence persistence = open()) {
+            ExpenseRepository repository = new ExpenseRepository(persistence);
+            assertEquals(5, repository.findAll().size());
+            assertEquals(new BigDecimal("36.00"), repository.getAggregates().getTotal());
+        }
+    }
+
+    private WalExpensePersistence open() {
+        return new WalExpensePersistence(directory, DurabilityMode.GROUP_COMMIT, Duration.ZERO, Duration.ofMillis(10));
+    }
+
+    private static void assertSameExpense(Expense expected, Expense actual) {
+        assertEquals(expected.getId(), actual.getId());
+        assertEquals(expected.getDescription(), actual.getDescription());
+        assertEquals(expected.getAmount(), actual.getAmount());
+        assertEquals(expected.getCategory(), actual.getCategory());
+        assertEquals(expected.getDate(), actual.getDate());
+        assertEquals(expected.getCreatedAt(), actual.getCreatedAt());
+        assertEquals(expected.getUpdatedAt(), actual.getUpdatedAt());
+    }
+
+    private static Expense expense(Long id, String description, String amount, String category) {
+        Expense expense = new Expense(description, new BigDecimal(amount), category,
+                                      LocalDateTime.of(2024, 2, 29, 23, 59, 59, 123_456_789));
+        expense.setId(id);
+        return expense;
+    }
+}
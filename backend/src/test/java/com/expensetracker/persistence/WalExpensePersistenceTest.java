@@ -0,0 +1,157 @@
+package com.expensetracker.persistence;
+
+import com.expensetracker.model.Expense;
+import com.expensetracker.repository.ExpenseRepository;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WalExpensePersistenceTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    @DisplayName("Should restore saves, updates and deletes from the log after a restart")
+    void testRecoverFromLog() {
+        Expense kept;
+        Expense removed;
+        try (WalExpensePersistence persistence = open(DurabilityMode.GROUP_COMMIT)) {
+            ExpenseRepository repository = new ExpenseRepository(persistence);
+            kept = repository.save(expense("Lunch", "12.50"));
+            removed = repository.save(expense("Taxi", "30.00"));
+            kept.setAmount(new BigDecimal("13.75"));
+            repository.save(kept);
+            repository.deleteById(removed.getId());
+        }
+
+        try (WalExpensePersistence persistence = open(DurabilityMode.GROUP_COMMIT)) {
+            ExpenseRepository repository = new ExpenseRepository(persistence);
+
+            List<Expense> expenses = repository.findAll();
+            assertEquals(1, expenses.size());
+            assertEquals(new BigDecimal("13.75"), expenses.get(0).getAmount());
+            assertEquals(kept.getDate(), expenses.get(0).getDate());
+            assertEquals(new BigDecimal("13.75"), repository.getAggregates().getTotal());
+            // Ids keep increasing past the deleted one
+            assertEquals(removed.getId() + 1, repository.save(expense("Coffee", "3.00")).getId());
+        }
+    }
+
+    @Test
+    @DisplayName("Should restore from a snapshot plus the log written after it")
+    void testRecoverFromSnapshotAndLog() throws IOException {
+        try (WalExpensePersistence persistence = open(DurabilityMode.FSYNC)) {
+            ExpenseRepository repository = new ExpenseRepository(persistence);
+            repository.save(expense("Rent", "900.00"));
+            repository.save(expense("Gym", "40.00"));
+            persistence.snapshot();
+            repository.save(expense("Books", "25.00"));
+            repository.deleteById(1L);
+        }
+
+        assertEquals(1, WriteAheadLog.segments(directory).size());
+        try (WalExpensePersistence persistence = open(DurabilityMode.FSYNC)) {
+            ExpenseRepository repository = new ExpenseRepository(persistence);
+
+            assertEquals(List.of(2L, 3L), repository.findAll().stream().map(Expense::getId).sorted().toList());
+            assertEquals(4L, repository.save(expense("Snacks", "5.00")).getId());
+        }
+    }
+
+    @Test
+    @DisplayName("Should keep a write that a snapshot races between logging and applying it")
+    void testSnapshotRacingWrite() throws Exception {
+        Expense raced;
+        ExecutorService snapshots = Executors.newSingleThreadExecutor();
+        AtomicBoolean race = new AtomicBoolean();
+        List<Future<?>> started = new ArrayList<>();
+        try (WalExpensePersistence persistence = new WalExpensePersistence(directory, DurabilityMode.GROUP_COMMIT,
+                Duration.ZERO, Duration.ofMillis(10)) {
+            @Override
+            public long logSave(Expense expense) {
+                long position = super.logSave(expense);
+                if (race.getAndSet(false)) {
+                    // The frame is in the current segment but the row is not visible yet: snapshot now
+                    Future<?> snapshot = snapshots.submit(() -> {
+                        snapshot();
+                        return null;
+                    });
+                    started.add(snapshot);
+                    try {
+                        snapshot.get(200, TimeUnit.MILLISECONDS);
+                    } catch (TimeoutException e) {
+                        // Blocked until this write is visible, as it should be
+                    } catch (InterruptedException | ExecutionException e) {
+                        throw new IllegalStateException(e);
+                    }
+                }
+                return position;
+            }
+        }) {
+            ExpenseRepository repository = new ExpenseRepository(persistence);
+            repository.save(expense("Rent", "900.00"));
+            race.set(true);
+            raced = repository.save(expense("Gym", "40.00"));
+            started.get(0).get();
+        } finally {
+            snapshots.shutdown();
+        }
+
+        try (WalExpensePersistence persistence = open(DurabilityMode.GROUP_COMMIT)) {
+            ExpenseRepository repository = new ExpenseRepository(persistence);
+
+            assertEquals(2, repository.count());
+            assertEquals(new BigDecimal("40.00"), repository.findById(raced.getId()).orElseThrow().getAmount());
+        }
+    }
+
+    @Test
+    @DisplayName("Should ignore a torn record at the end of the log")
+    void testTornTailIsTruncated() throws IOException {
+        try (WalExpensePersistence persistence = open(DurabilityMode.ASYNC)) {
+            ExpenseRepository repository = new ExpenseRepository(persistence);
+            repository.save(expense("Lunch", "12.50"));
+            repository.save(expense("Dinner", "22.00"));
+        }
+        Path segment = WriteAheadLog.segmentPath(directory, WriteAheadLog.segments(directory).get(0));
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+            channel.truncate(Files.size(segment) - 3);
+        }
+
+        try (WalExpensePersistence persistence = open(DurabilityMode.ASYNC)) {
+            ExpenseRepository repository = new ExpenseRepository(persistence);
+
+            assertEquals(1, repository.findAll().size());
+            assertEquals("Lunch", repository.findById(1L).orElseThrow().getDescription());
+        }
+    }
+
+    private WalExpensePersistence open(DurabilityMode durability) {
+        return new WalExpensePersistence(directory, durability, Duration.ZERO, Duration.ofMillis(10));
+    }
+
+    private static Expense expense(String description, String amount) {
+        return new Expense(description, new BigDecimal(amount), "Misc", LocalDateTime.of(2024, 6, 1, 12, 0));
+    }
+}
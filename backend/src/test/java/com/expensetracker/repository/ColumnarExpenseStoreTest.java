@@ -0,0 +1,134 @@
+package com.expensetracker.repository;
+
+import com.expensetracker.model.Expense;
+import com.expensetracker.persistence.NoOpExpensePersistence;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.openjdk.jol.info.GraphLayout;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ColumnarExpenseStoreTest {
+
+    private static final String[] CATEGORIES = {"Food", "Transport", "Rent", "Health", "Fun"};
+
+    @Test
+    @DisplayName("Should decode exactly what was stored")
+    void testRoundTrip() {
+        ColumnarExpenseStore store = new ColumnarExpenseStore();
+        Expense plain = expense(1L, "4.50", LocalDateTime.of(2024, 2, 29, 23, 59, 59, 123_456_789));
+        Expense huge = expense(2L, "123456789012345678901234567890.123", LocalDateTime.of(1969, 12, 31, 0, 0));
+        huge.setDescription(null);
+        huge.setCategory(null);
+        huge.setUpdatedAt(null);
+        Expense negativeScale = expense(3L, "1E+3", LocalDateTime.of(2024, 1, 1, 0, 0));
+
+        for (Expense expense : new Expense[]{plain, huge, negativeScale}) {
+            store.compute(expense.getId(), (id, previous) -> expense);
+        }
+
+        assertEquals(3, store.size());
+        for (Expense expense : new Expense[]{plain, huge, negativeScale}) {
+            Expense stored = store.get(expense.getId());
+            assertNotSame(expense, stored);
+            assertEquals(expense.getDescription(), stored.getDescription());
+            assertEquals(expense.getAmount(), stored.getAmount());
+            assertEquals(expense.getAmount().scale(), stored.getAmount().scale());
+            assertEquals(expense.getCategory(), stored.getCategory());
+            assertEquals(expense.getDate(), stored.getDate());
+            assertEquals(expense.getCreatedAt(), stored.getCreatedAt());
+            assertEquals(expense.getUpdatedAt(), stored.getUpdatedAt());
+        }
+    }
+
+    @Test
+    @DisplayName("Should match a map under random puts and removes")
+    void testMatchesMapUnderChurn() {
+        ColumnarExpenseStore store = new ColumnarExpenseStore(16);
+        Map<Long, BigDecimal> expected = new HashMap<>();
+        Random random = new Random(7);
+        for (int i = 0; i < 50_000; i++) {
+            long id = 1 + random.nextInt(5_000);
+            if (random.nextInt(3) == 0) {
+                store.compute(id, (key, previous) -> null);
+                expected.remove(id);
+            } else {
+                BigDecimal amount = BigDecimal.valueOf(random.nextInt(100_000), 2);
+                Expense expense = expense(id, amount.toPlainString(), LocalDateTime.of(2024, 1, 1, 0, 0));
+                store.compute(id, (key, previous) -> expense);
+                expected.put(id, amount);
+            }
+        }
+
+        assertEquals(expected.size(), store.size());
+        assertEquals(expected.size(), store.values().size());
+        for (Expense expense : store.values()) {
+            assertEquals(expected.get(expense.getId()), expense.getAmount());
+        }
+        for (long id = 1; id <= 5_000; id++) {
+            Expense stored = store.get(id);
+            assertEquals(expected.get(id), stored != null ? stored.getAmount() : null);
+        }
+    }
+
+    @Test
+    @DisplayName("Should keep aggregates right when a fetched copy is changed and saved")
+    void testRepositoryUpdateThroughCopy() {
+        ExpenseRepository repository = new ExpenseRepository(new NoOpExpensePersistence(), ExpenseStorageEngine.COLUMNAR);
+        Expense saved = repository.save(new Expense("Lunch", new BigDecimal("12.50"), "Food",
+                                                    LocalDateTime.of(2024, 1, 10, 12, 0)));
+
+        Expense fetched = repository.findById(saved.getId()).orElseThrow();
+        fetched.setCategory("Transport");
+        fetched.setAmount(new BigDecimal("3.00"));
+        fetched.setDate(LocalDateTime.of(2024, 2, 1, 8, 0));
+        assertEquals("Food", repository.findById(saved.getId()).orElseThrow().getCategory());
+        repository.save(fetched);
+
+        assertEquals(Map.of("Transport", new BigDecimal("3.00")), repository.getAggregates().getCategoryTotals());
+        assertEquals(BigDecimal.ZERO, repository.getAggregates().getMonthTotal(2024, 1));
+        assertEquals(1, repository.findByMonth(2024, 2).size());
+        assertTrue(repository.findByMonth(2024, 1).isEmpty());
+
+        repository.deleteById(saved.getId());
+        assertTrue(repository.findAll().isEmpty());
+        assertEquals(BigDecimal.ZERO, repository.getAggregates().getTotal());
+    }
+
+    @Test
+    @DisplayName("Should use far less heap per row than one object graph per expense")
+    void testBytesPerRow() {
+        int rows = 20_000;
+        HeapExpenseStore heap = new HeapExpenseStore();
+        ColumnarExpenseStore columnar = new ColumnarExpenseStore(rows);
+        Random random = new Random(42);
+        for (long id = 1; id <= rows; id++) {
+            Expense expense = expense(id, BigDecimal.valueOf(random.nextInt(100_000), 2).toPlainString(),
+                                      LocalDateTime.of(2024, 1, 1, 0, 0).plusMinutes(random.nextInt(500_000)));
+            expense.setDescription("Expense " + id);
+            expense.setCategory(CATEGORIES[random.nextInt(CATEGORIES.length)]);
+            heap.compute(id, (key, previous) -> expense);
+            Expense copy = expense(id, expense.getAmount().toPlainString(), expense.getDate());
+            copy.setDescription(expense.getDescription());
+            copy.setCategory(expense.getCategory());
+            columnar.compute(id, (key, previous) -> copy);
+        }
+
+        long heapBytes = GraphLayout.parseInstance(heap).totalSize() / rows;
+        long columnarBytes = GraphLayout.parseInstance(columnar).totalSize() / rows;
+        assertTrue(columnarBytes * 2 < heapBytes,
+                "Bytes per expense: heap " + heapBytes + ", columnar " + columnarBytes);
+    }
+
+    private static Expense expense(long id, String amount, LocalDateTime date) {
+        Expense expense = new Expense("Expense", new BigDecimal(amount), "Food", date);
+        expense.setId(id);
+        return expense;
+    }
+}
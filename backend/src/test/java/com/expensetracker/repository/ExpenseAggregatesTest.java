@@ -0,0 +1,278 @@
+package com.expensetracker.repository;
+
+import com.expensetracker.model.Expense;
+import com.expensetracker.persistence.NoOpExpensePersistence;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ExpenseAggregatesTest {
+
+    private static final String[] CATEGORIES = {"Food", "Transport", "Rent", "Health", "Fun"};
+    private static final String[] AMOUNTS = {"10", "12.5", "0.99", "100.00", "7.125", "42.10"};
+
+    private ExpenseRepository expenseRepository;
+
+    @BeforeEach
+    void setUp() {
+        expenseRepository = new ExpenseRepository();
+    }
+
+    @Test
+    @DisplayName("Should keep scale of a fresh sum after removals")
+    void testScaleAfterRemoval() {
+        Expense coarse = expenseRepository.save(expense("Food", "100.00", 2024, 1));
+        Expense fine = expenseRepository.save(expense("Food", "1.555", 2024, 1));
+
+        expenseRepository.deleteById(fine.getId());
+
+        assertEquals(new BigDecimal("100.00"), expenseRepository.getAggregates().getTotal());
+        assertEquals(Map.of("Food", new BigDecimal("100.00")),
+                     expenseRepository.getAggregates().getCategoryTotals());
+
+        expenseRepository.deleteById(coarse.getId());
+
+        assertEquals(BigDecimal.ZERO, expenseRepository.getAggregates().getTotal());
+        assertTrue(expenseRepository.getAggregates().getCategoryTotals().isEmpty());
+        assertEquals(BigDecimal.ZERO, expenseRepository.getAggregates().getMonthTotal(2024, 1));
+    }
+
+    @Test
+    @DisplayName("Should match a full recompute after concurrent creates, updates and deletes")
+    void testConsistentWithRecomputeUnderConcurrentWrites() throws Exception {
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            ids.add(expenseRepository.save(expense(CATEGORIES[i % CATEGORIES.length],
+                                                   AMOUNTS[i % AMOUNTS.length], 2023 + i % 3, 1 + i % 12)).getId());
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            long seed = t;
+            futures.add(executor.submit(() -> {
+                Random random = new Random(seed);
+                for (int i = 0; i < 5_000; i++) {
+                    long id = ids.get(random.nextInt(ids.size()));
+                    switch (random.nextInt(3)) {
+                        case 0 -> expenseRepository.save(randomExpense(random));
+                        case 1 -> {
+                            Expense update = randomExpense(random);
+                            update.setId(id);
+                            expenseRepository.save(update);
+                        }
+                        default -> expenseRepository.deleteById(id);
+                    }
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+
+        List<Expense> all = expenseRepository.findAll();
+        ExpenseTotals aggregates = expenseRepository.getAggregates();
+
+        assertEquals(sum(all), aggregates.getTotal());
+        assertEquals(all.stream().collect(Collectors.groupingBy(Expense::getCategory,
+                             Collectors.reducing(BigDecimal.ZERO, Expense::getAmount, BigDecimal::add))),
+                     aggregates.getCategoryTotals());
+        for (int year = 2023; year <= 2025; year++) {
+            int y = year;
+            assertEquals(sum(all.stream().filter(e -> e.getDate().getYear() == y).toList()),
+                         aggregates.getYearTotal(year));
+            for (int month = 1; month <= 12; month++) {
+                int m = month;
+                assertEquals(sum(all.stream().filter(e -> e.getDate().getYear() == y
+                                                          && e.getDate().getMonthValue() == m).toList()),
+                             aggregates.getMonthTotal(year, month));
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Should answer period totals per granularity and category like a recompute")
+    void testPeriodTotalsMatchRecompute() {
+        Random random = new Random(42);
+        List<Expense> saved = new ArrayList<>();
+        for (int i = 0; i < 2_000; i++) {
+            Expense expense = randomExpense(random);
+            expense.setDate(LocalDateTime.of(2023, 1, 1, 8, 0).plusDays(random.nextInt(3 * 365)));
+            saved.add(expenseRepository.save(expense));
+        }
+        for (int i = 0; i < 500; i++) {
+            expenseRepository.deleteById(saved.get(i).getId());
+        }
+
+        List<Expense> all = expenseRepository.findAll();
+        LocalDate from = LocalDate.of(2023, 3, 15);
+        LocalDate to = LocalDate.of(2025, 2, 20);
+        for (Granularity granularity : Granularity.values()) {
+            for (String category : new String[] {null, "Food"}) {
+                Map<LocalDate, List<Expense>> expected = all.stream()
+                        .filter(e -> category == null || category.equals(e.getCategory()))
+                        .filter(e -> !granularity.start(e.getDate().toLocalDate()).isBefore(granularity.start(from))
+                                     && !granularity.start(e.getDate().toLocalDate()).isAfter(granularity.start(to)))
+                        .collect(Collectors.groupingBy(e -> granularity.start(e.getDate().toLocalDate()),
+                                                       TreeMap::new, Collectors.toList()));
+
+                List<ExpenseAggregates.PeriodTotal> totals =
+                        expenseRepository.getAggregates().getPeriodTotals(granularity, from, to, category);
+
+                assertEquals(List.copyOf(expected.keySet()),
+                             totals.stream().map(ExpenseAggregates.PeriodTotal::period).toList(), granularity.name());
+                for (ExpenseAggregates.PeriodTotal total : totals) {
+                    assertEquals(expected.get(total.period()).size(), total.count());
+                    assertEquals(sum(expected.get(total.period())), total.total());
+                }
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Should merge totals and versions of every shard on read")
+    void testShardedTotalsMatchSingleShard() {
+        ExpenseRepository sharded = new ExpenseRepository(new NoOpExpensePersistence(), ExpenseStorageEngine.HEAP,
+                ExpenseAggregator.SEQUENTIAL, new ExpenseSharding(4));
+        Random random = new Random(5);
+        for (long id = 1; id <= 2_000; id++) {
+            Expense expense = randomExpense(random);
+            expense.setAmount(randomAmount(random));
+            expense.setDate(LocalDateTime.of(2023, 1, 1, 8, 0).plusDays(random.nextInt(3 * 365)));
+            expense.setId(id);
+            expenseRepository.save(new Expense(expense));
+            sharded.save(expense);
+        }
+        for (long id = 1; id <= 500; id++) {
+            expenseRepository.deleteById(id);
+            sharded.deleteById(id);
+        }
+
+        ExpenseTotals expected = expenseRepository.getAggregates();
+        ExpenseTotals merged = sharded.getAggregates();
+        assertEquals(expected.getTotal(), merged.getTotal());
+        assertEquals(expected.getCategoryTotals(), merged.getCategoryTotals());
+        assertEquals(expected.getYearTotal(2024), merged.getYearTotal(2024));
+        assertEquals(expected.getMonthTotal(2024, 6), merged.getMonthTotal(2024, 6));
+        for (Granularity granularity : Granularity.values()) {
+            for (String category : new String[] {null, "Food"}) {
+                assertEquals(expected.getPeriodTotals(granularity, LocalDate.of(2023, 3, 15), LocalDate.of(2025, 2, 20), category),
+                             merged.getPeriodTotals(granularity, LocalDate.of(2023, 3, 15), LocalDate.of(2025, 2, 20), category),
+                             granularity.name());
+            }
+        }
+
+        // Ids 2001 and 2002 fall in different shards, and each change moves the merged versions on
+        long month = sharded.getMonthVersion(2026, 1);
+        long version = sharded.getVersion();
+        for (long id = 2_001; id <= 2_002; id++) {
+            Expense expense = expense("Food", "1", 2026, 1);
+            expense.setId(id);
+            sharded.save(expense);
+            assertTrue(sharded.getMonthVersion(2026, 1) > month);
+            assertTrue(sharded.getVersion() > version);
+            month = sharded.getMonthVersion(2026, 1);
+            version = sharded.getVersion();
+        }
+        assertEquals(0, sharded.getMonthVersion(2026, 2));
+    }
+
+    @Test
+    @DisplayName("Should widen period bounds to whole weeks starting on Monday")
+    void testWeekPeriods() {
+        // 2024-01-07 is a Sunday, 2024-01-08 a Monday
+        expenseRepository.save(new Expense("Sunday", new BigDecimal("1.50"), "Food", LocalDateTime.of(2024, 1, 7, 23, 0)));
+        expenseRepository.save(new Expense("Monday", new BigDecimal("2"), "Food", LocalDateTime.of(2024, 1, 8, 0, 0)));
+        expenseRepository.save(new Expense("Friday", new BigDecimal("3"), "Rent", LocalDateTime.of(2024, 1, 12, 0, 0)));
+
+        List<ExpenseAggregates.PeriodTotal> weeks = expenseRepository.getAggregates()
+                .getPeriodTotals(Granularity.WEEK, LocalDate.of(2024, 1, 7), LocalDate.of(2024, 1, 8), null);
+
+        assertEquals(List.of(new ExpenseAggregates.PeriodTotal(LocalDate.of(2024, 1, 1), 1, new BigDecimal("1.50")),
+                             new ExpenseAggregates.PeriodTotal(LocalDate.of(2024, 1, 8), 2, new BigDecimal("5"))),
+                     weeks);
+        assertTrue(expenseRepository.getAggregates()
+                .getPeriodTotals(Granularity.DAY, LocalDate.of(2024, 1, 9), LocalDate.of(2024, 1, 8), null).isEmpty());
+    }
+
+    @Test
+    @DisplayName("Should sum exactly like BigDecimal across mixed scales, overflow and removals")
+    void testFixedPointSumsMatchBigDecimal() {
+        for (long seed = 0; seed < 200; seed++) {
+            Random random = new Random(seed);
+            ExpenseAggregates aggregates = new ExpenseAggregates();
+            List<Expense> live = new ArrayList<>();
+            for (int i = 0; i < 200; i++) {
+                if (!live.isEmpty() && random.nextInt(3) == 0) {
+                    Expense removed = live.remove(random.nextInt(live.size()));
+                    aggregates.remove(removed.getCategory(), removed.getDate(), removed.getAmount());
+                } else {
+                    Expense added = new Expense("Expense", randomAmount(random), CATEGORIES[random.nextInt(2)],
+                                                LocalDateTime.of(2024, 1 + random.nextInt(2), 1 + random.nextInt(28), 12, 0));
+                    live.add(added);
+                    aggregates.add(added.getCategory(), added.getDate(), added.getAmount());
+                }
+            }
+
+            String message = "seed " + seed;
+            assertEquals(sum(live), aggregates.getTotal(), message);
+            assertEquals(live.stream().collect(Collectors.groupingBy(Expense::getCategory,
+                                 Collectors.reducing(BigDecimal.ZERO, Expense::getAmount, BigDecimal::add))),
+                         aggregates.getCategoryTotals(), message);
+            assertEquals(sum(live.stream().filter(e -> e.getDate().getMonthValue() == 1).toList()),
+                         aggregates.getMonthTotal(2024, 1), message);
+            for (Granularity granularity : Granularity.values()) {
+                for (ExpenseAggregates.PeriodTotal total : aggregates.getPeriodTotals(
+                        granularity, LocalDate.of(2024, 1, 1), LocalDate.of(2024, 2, 29), CATEGORIES[0])) {
+                    assertEquals(sum(live.stream()
+                                         .filter(e -> e.getCategory().equals(CATEGORIES[0]))
+                                         .filter(e -> granularity.start(e.getDate().toLocalDate()).equals(total.period()))
+                                         .toList()),
+                                 total.total(), message + " " + granularity);
+                }
+            }
+        }
+    }
+
+    private static BigDecimal sum(List<Expense> expenses) {
+        return expenses.stream().map(Expense::getAmount).reduce(BigDecimal.ZERO, BigDecimal::add);
+    }
+
+    /** Mostly cents, with some long-overflowing, over-precise and negative-scale amounts. */
+    private static BigDecimal randomAmount(Random random) {
+        return switch (random.nextInt(10)) {
+            case 0 -> new BigDecimal(Long.MAX_VALUE).add(BigDecimal.valueOf(random.nextInt(1_000), 2));
+            case 1 -> BigDecimal.valueOf(random.nextLong() & Long.MAX_VALUE, 19 + random.nextInt(3));
+            case 2 -> BigDecimal.valueOf(1 + random.nextInt(99), -random.nextInt(4));
+            case 3 -> BigDecimal.valueOf(random.nextInt(1_000_000), random.nextInt(7));
+            default -> BigDecimal.valueOf(random.nextInt(100_000), 2);
+        };
+    }
+
+    private static Expense randomExpense(Random random) {
+        return expense(CATEGORIES[random.nextInt(CATEGORIES.length)], AMOUNTS[random.nextInt(AMOUNTS.length)],
+                       2023 + random.nextInt(3), 1 + random.nextInt(12));
+    }
+
+    private static Expense expense(String category, String amount, int year, int month) {
+        return new Expense("Expense", new BigDecimal(amount), category, LocalDateTime.of(year, month, 10, 12, 0));
+    }
+}
@@ -0,0 +1,128 @@
+package com.expensetracker.repository;
+
+import com.expensetracker.model.Expense;
+import com.expensetracker.persistence.NoOpExpensePersistence;
+import com.expensetracker.persistence.RecoveredState;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeSet;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ExpenseAggregatorTest {
+
+    private static final String[] CATEGORIES = {"Food", "Transport", "Rent", "Health", "Fun"};
+
+    @Test
+    @DisplayName("Should give the same totals in parallel as summed on one thread")
+    void testParallelMatchesSequential() {
+        Random random = new Random(7);
+        ColumnarExpenseStore store = new ColumnarExpenseStore();
+        for (long id = 1; id <= 50_000; id++) {
+            Expense expense = new Expense("Expense", BigDecimal.valueOf(random.nextInt(1_000_000), random.nextInt(4)),
+                    CATEGORIES[random.nextInt(CATEGORIES.length)], LocalDateTime.of(2022, 1, 1, 9, 0).plusDays(random.nextInt(3 * 365)));
+            expense.setId(id);
+            store.compute(id, (key, previous) -> expense);
+        }
+
+        ExpenseAggregates sequential = ExpenseAggregator.SEQUENTIAL.aggregate(store.size(), parts(store, 1));
+        try (ExpenseAggregator aggregator = new ExpenseAggregator(4, 0)) {
+            assertTrue(aggregator.segments(store.size()) > 1);
+            for (int run = 0; run < 3; run++) {
+                ExpenseAggregates parallel = aggregator.aggregate(store.size(), parts(store, aggregator.segments(store.size())));
+
+                assertEquals(sequential.getTotal(), parallel.getTotal());
+                assertEquals(sequential.getCategoryTotals(), parallel.getCategoryTotals());
+                for (Granularity granularity : Granularity.values()) {
+                    for (String category : new String[] {null, "Food"}) {
+                        assertEquals(sequential.getPeriodTotals(granularity, LocalDate.of(2022, 1, 1), LocalDate.of(2024, 12, 31), category),
+                                     parallel.getPeriodTotals(granularity, LocalDate.of(2022, 1, 1), LocalDate.of(2024, 12, 31), category),
+                                     granularity.name());
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Should visit every row of a store exactly once across its segments")
+    void testSegmentsCoverStore() {
+        for (ExpenseStore store : new ExpenseStore[] {new HeapExpenseStore(), new ColumnarExpenseStore(16)}) {
+            for (long id = 1; id <= 10_000; id++) {
+                Expense expense = new Expense("Expense", BigDecimal.ONE, "Food", LocalDateTime.of(2024, 1, 1, 12, 0));
+                expense.setId(id);
+                store.compute(id, (key, previous) -> expense);
+            }
+            for (long id = 1; id <= 10_000; id += 3) {
+                store.compute(id, (key, previous) -> null);
+            }
+
+            List<Long> expected = new ArrayList<>();
+            store.forEachIndexed((id, date, category, amount) -> expected.add(id));
+            for (int count : new int[] {1, 3, 8}) {
+                List<ExpenseStore.Segment> segments = store.segments(count);
+                assertTrue(segments.size() <= count);
+                List<Long> visited = new ArrayList<>();
+                for (ExpenseStore.Segment segment : segments) {
+                    segment.forEachIndexed((id, date, category, amount) -> visited.add(id));
+                }
+                assertEquals(new TreeSet<>(expected), new TreeSet<>(visited), store.getClass().getSimpleName());
+                assertEquals(expected.size(), visited.size(), store.getClass().getSimpleName());
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Should rebuild totals of recovered rows with a parallel aggregator, splitting even a single shard")
+    void testRepositoryRebuildsWithAggregator() {
+        ExpenseRepository source = new ExpenseRepository();
+        Random random = new Random(11);
+        for (int i = 0; i < 10_000; i++) {
+            source.save(new Expense("Expense", BigDecimal.valueOf(random.nextInt(10_000), 2),
+                    CATEGORIES[random.nextInt(CATEGORIES.length)], LocalDateTime.of(2024, 1 + random.nextInt(12), 1, 12, 0)));
+        }
+        Map<Long, Expense> changes = new LinkedHashMap<>();
+        source.findAll().forEach(expense -> changes.put(expense.getId(), expense));
+
+        for (int shards : new int[] {1, 4}) {
+            for (ExpenseStorageEngine engine : new ExpenseStorageEngine[] {ExpenseStorageEngine.HEAP, ExpenseStorageEngine.COLUMNAR}) {
+                try (ExpenseAggregator aggregator = new ExpenseAggregator(2, 1_000)) {
+                    ExpenseRepository recovered = new ExpenseRepository(new NoOpExpensePersistence() {
+                        @Override
+                        public RecoveredState recover() {
+                            return new RecoveredState(null, changes, changes.size() + 1);
+                        }
+                    }, engine, aggregator, new ExpenseSharding(shards));
+
+                    assertEquals(source.getAggregates().getTotal(), recovered.getAggregates().getTotal());
+                    assertEquals(source.getAggregates().getCategoryTotals(), recovered.getAggregates().getCategoryTotals());
+                    assertEquals(source.getAggregates().getMonthTotal(2024, 6), recovered.getAggregates().getMonthTotal(2024, 6));
+                    assertEquals(source.findByMonth(2024, 6).size(), recovered.findByMonth(2024, 6).size());
+                    assertEquals(source.findByCategory("Food").size(), recovered.findByCategory("Food").size());
+                }
+            }
+        }
+    }
+
+    private static List<Supplier<ExpenseAggregates>> parts(ExpenseStore store, int count) {
+        List<Supplier<ExpenseAggregates>> parts = new ArrayList<>();
+        for (ExpenseStore.Segment segment : store.segments(count)) {
+            parts.add(() -> {
+                ExpenseAggregates totals = new ExpenseAggregates();
+                segment.forEachIndexed((id, date, category, amount) -> totals.add(category, date, amount));
+                return totals;
+            });
+        }
+        return parts;
+    }
+}
@@ -1,14 +1,21 @@
 package com.expensetracker.repository;
 
 import com.expensetracker.model.Expense;
+import com.expensetracker.persistence.NoOpExpensePersistence;
+import com.expensetracker.persistence.RecoveredState;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.DisplayName;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Random;
+import java.util.stream.Collectors;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -122,5 +129,301 @@ class ExpenseRepositoryTest {
         List<Expense> recentExpenses = expenseRepository.findRecentExpenses(5);
         
         assertEquals(5, recentExpenses.size());
+        assertEquals(List.of("Expense 0", "Expense 1", "Expense 2", "Expense 3", "Expense 4"),
+                     recentExpenses.stream().map(Expense::getDescription).toList());
+    }
+
+    @Test
+    @DisplayName("Should find expenses by month in date order")
+    void testFindByMonthOrdered() {
+        Expense late = expenseRepository.save(new Expense("Late", new BigDecimal("10.00"),
+                                                         "Food", LocalDateTime.of(2024, 3, 31, 23, 59)));
+        Expense early = expenseRepository.save(new Expense("Early", new BigDecimal("20.00"),
+                                                          "Food", LocalDateTime.of(2024, 3, 1, 0, 0)));
+        expenseRepository.save(new Expense("Next month", new BigDecimal("30.00"),
+                                           "Food", LocalDateTime.of(2024, 4, 1, 0, 0)));
+
+        List<Expense> expenses = expenseRepository.findByMonth(2024, 3);
+
+        assertEquals(List.of(early.getId(), late.getId()),
+                     expenses.stream().map(Expense::getId).toList());
+        assertEquals(3, expenseRepository.findByYear(2024).size());
+    }
+
+    @Test
+    @DisplayName("Should move expense in date index when its date is updated")
+    void testDateIndexFollowsUpdates() {
+        Expense expense = expenseRepository.save(new Expense("Moving", new BigDecimal("10.00"),
+                                                            "Food", LocalDateTime.of(2024, 1, 15, 12, 0)));
+
+        expense.setDate(LocalDateTime.of(2024, 2, 15, 12, 0));
+        expenseRepository.save(expense);
+
+        assertTrue(expenseRepository.findByMonth(2024, 1).isEmpty());
+        assertEquals(1, expenseRepository.findByMonth(2024, 2).size());
+
+        expenseRepository.deleteById(expense.getId());
+
+        assertTrue(expenseRepository.findByMonth(2024, 2).isEmpty());
+        assertTrue(expenseRepository.findByYear(2024).isEmpty());
+    }
+
+    @Test
+    @DisplayName("Should resume a date-ordered walk after a keyset position")
+    void testStreamByDateResumesAfterPosition() {
+        LocalDateTime date = LocalDateTime.of(2024, 5, 1, 9, 0);
+        Expense first = expenseRepository.save(new Expense("First", new BigDecimal("1.00"), "Food", date));
+        Expense second = expenseRepository.save(new Expense("Second", new BigDecimal("2.00"), "Food", date));
+        Expense third = expenseRepository.save(new Expense("Third", new BigDecimal("3.00"), "Food", date.plusDays(1)));
+
+        assertEquals(List.of(second.getId(), third.getId()),
+                     expenseRepository.streamByDate(true, date, first.getId()).map(Expense::getId).toList());
+        assertEquals(List.of(first.getId()),
+                     expenseRepository.streamByDate(false, date, second.getId()).map(Expense::getId).toList());
+        assertEquals(List.of(third.getId()),
+                     expenseRepository.streamByMonth(2024, 5, date, second.getId()).map(Expense::getId).toList());
+    }
+
+    @Test
+    @DisplayName("Should move expense between category postings when its category is updated")
+    void testCategoryIndexFollowsUpdates() {
+        LocalDateTime date = LocalDateTime.of(2024, 3, 1, 12, 0);
+        Expense lunch = expenseRepository.save(new Expense("Lunch", new BigDecimal("12.00"), "Food", date));
+        Expense bus = expenseRepository.save(new Expense("Bus", new BigDecimal("2.50"), "Transport", date));
+        Expense dinner = expenseRepository.save(new Expense("Dinner", new BigDecimal("30.00"), "Food", date));
+
+        assertEquals(List.of(lunch.getId(), dinner.getId()),
+                     expenseRepository.findByCategory("Food").stream().map(Expense::getId).toList());
+
+        lunch.setCategory("Transport");
+        expenseRepository.save(lunch);
+        expenseRepository.deleteById(dinner.getId());
+
+        assertTrue(expenseRepository.findByCategory("Food").isEmpty());
+        assertEquals(List.of(lunch.getId(), bus.getId()),
+                     expenseRepository.findByCategory("Transport").stream().map(Expense::getId).toList());
+        assertEquals(List.of(bus.getId()),
+                     expenseRepository.streamByCategory("Transport", lunch.getId()).map(Expense::getId).toList());
+        assertTrue(expenseRepository.findByCategory("Unknown").isEmpty());
+    }
+
+    @Test
+    @DisplayName("Should save and delete a batch with consecutive ids")
+    void testSaveAllAndDeleteAllById() {
+        LocalDateTime date = LocalDateTime.of(2024, 4, 1, 12, 0);
+        Expense existing = expenseRepository.save(new Expense("Existing", new BigDecimal("5.00"), "Food", date));
+        existing.setAmount(new BigDecimal("6.00"));
+
+        List<Expense> saved = expenseRepository.saveAll(List.of(
+                new Expense("First", new BigDecimal("1.00"), "Food", date),
+                existing,
+                new Expense("Second", new BigDecimal("2.00"), "Transport", date)));
+
+        assertEquals(existing.getId() + 1, saved.get(0).getId());
+        assertEquals(existing.getId() + 2, saved.get(2).getId());
+        assertEquals(3, expenseRepository.findByMonth(2024, 4).size());
+        assertEquals(new BigDecimal("9.00"), expenseRepository.getAggregates().getTotal());
+
+        assertEquals(List.of(true, false, true),
+                     expenseRepository.deleteAllById(List.of(saved.get(0).getId(), 999L, existing.getId())));
+        assertEquals(List.of(saved.get(2).getId()),
+                     expenseRepository.findAll().stream().map(Expense::getId).toList());
+        assertEquals(new BigDecimal("2.00"), expenseRepository.getAggregates().getTotal());
+    }
+
+    @Test
+    @DisplayName("Should save a batch of edits only where the rows are unchanged")
+    void testSaveAllIfUnchanged() {
+        LocalDateTime date = LocalDateTime.of(2024, 4, 1, 12, 0);
+        Expense kept = expenseRepository.save(new Expense("Kept", new BigDecimal("1.00"), "Food", date));
+        Expense changed = expenseRepository.save(new Expense("Changed", new BigDecimal("2.00"), "Food", date));
+        Expense deleted = expenseRepository.save(new Expense("Deleted", new BigDecimal("3.00"), "Food", date));
+        List<Expense> edits = List.of(new Expense(kept), new Expense(changed), new Expense(deleted));
+        edits.forEach(edit -> edit.setAmount(new BigDecimal("10.00")));
+        expenseRepository.save(new Expense(changed));
+        expenseRepository.deleteById(deleted.getId());
+
+        assertEquals(List.of(true, false, false), expenseRepository.saveAllIfUnchanged(edits));
+        assertEquals(2, expenseRepository.findById(kept.getId()).orElseThrow().getVersion());
+        assertEquals(new BigDecimal("2.00"), expenseRepository.findById(changed.getId()).orElseThrow().getAmount());
+        assertTrue(expenseRepository.findById(deleted.getId()).isEmpty());
+        assertEquals(new BigDecimal("12.00"), expenseRepository.getAggregates().getTotal());
+    }
+
+    @Test
+    @DisplayName("Should walk an inclusive date range with optional bounds")
+    void testStreamByDateRange() {
+        for (int day = 1; day <= 5; day++) {
+            expenseRepository.save(new Expense("Day " + day, BigDecimal.ONE, "Food", LocalDateTime.of(2024, 1, day, 0, 0)));
+        }
+
+        assertEquals(List.of("Day 2", "Day 3", "Day 4", "Day 5"),
+                     expenseRepository.streamByDateRange(LocalDateTime.of(2024, 1, 2, 0, 0), LocalDateTime.of(2024, 1, 5, 0, 0))
+                             .map(Expense::getDescription).toList());
+        assertEquals(List.of("Day 2", "Day 3", "Day 4"),
+                     expenseRepository.streamByDateRange(LocalDateTime.of(2024, 1, 2, 0, 0), LocalDateTime.of(2024, 1, 4, 23, 59))
+                             .map(Expense::getDescription).toList());
+        assertEquals(4, expenseRepository.streamByDateRange(LocalDateTime.of(2024, 1, 2, 0, 0), null).count());
+        assertEquals(5, expenseRepository.streamByDateRange(null, null).count());
+    }
+
+    @Test
+    @DisplayName("Should move the versions of the partitions a write touches")
+    void testVersions() {
+        Expense expense = expenseRepository.save(new Expense("Lunch", new BigDecimal("12.00"), "Food",
+                                                             LocalDateTime.of(2024, 3, 1, 12, 0)));
+        long created = expenseRepository.getVersion();
+
+        assertEquals(1, created);
+        assertEquals(created, expenseRepository.getMonthVersion(2024, 3));
+        assertEquals(created, expenseRepository.getYearVersion(2024));
+        assertEquals(created, expenseRepository.getCategoryVersion("Food"));
+
+        expense.setDate(LocalDateTime.of(2024, 4, 1, 12, 0));
+        expense.setCategory("Treats");
+        expenseRepository.save(expense);
+
+        long moved = expenseRepository.getVersion();
+        assertTrue(moved > created);
+        assertEquals(moved, expenseRepository.getMonthVersion(2024, 3));
+        assertEquals(moved, expenseRepository.getMonthVersion(2024, 4));
+        assertEquals(moved, expenseRepository.getCategoryVersion("Food"));
+        assertEquals(0, expenseRepository.getMonthVersion(2024, 5));
+
+        expenseRepository.deleteById(999L);
+        assertEquals(moved, expenseRepository.getVersion());
+
+        expenseRepository.deleteById(expense.getId());
+        assertTrue(expenseRepository.getMonthVersion(2024, 4) > moved);
+        assertEquals(moved, expenseRepository.getMonthVersion(2024, 3));
+    }
+
+    @Test
+    @DisplayName("Should apply only one of two conditional saves based on the same version")
+    void testConditionalSave() {
+        Expense saved = expenseRepository.save(new Expense("Lunch", new BigDecimal("12.00"), "Food",
+                                                           LocalDateTime.of(2024, 3, 1, 12, 0)));
+        assertEquals(1, saved.getVersion());
+
+        Expense first = new Expense(saved);
+        first.setAmount(new BigDecimal("13.00"));
+        Expense second = new Expense(saved);
+        second.setAmount(new BigDecimal("14.00"));
+
+        assertEquals(2, expenseRepository.save(first, 1).getVersion());
+        assertThrows(ExpenseVersionConflictException.class, () -> expenseRepository.save(second, 1));
+        assertEquals(new BigDecimal("13.00"), expenseRepository.findById(saved.getId()).orElseThrow().getAmount());
+        assertEquals(new BigDecimal("13.00"), expenseRepository.getAggregates().getTotal());
+
+        expenseRepository.deleteById(saved.getId());
+        assertThrows(ExpenseVersionConflictException.class, () -> expenseRepository.save(first, 2));
+        assertTrue(expenseRepository.findById(saved.getId()).isEmpty());
+    }
+
+    @Test
+    @DisplayName("Should route rows to shards by id and merge queries across shards in order")
+    void testShardedRepository() {
+        Random random = new Random(3);
+        Map<Long, Expense> changes = new LinkedHashMap<>();
+        for (long id = 1; id <= 200; id++) {
+            Expense expense = new Expense("Expense " + id, BigDecimal.valueOf(random.nextInt(10_000), 2),
+                    random.nextBoolean() ? "Food" : "Rent", LocalDateTime.of(2024, 1, 1, 0, 0).plusHours(random.nextInt(24 * 90)));
+            expense.setId(id);
+            changes.put(id, expense);
+        }
+        ExpenseRepository sharded = new ExpenseRepository(new NoOpExpensePersistence() {
+            @Override
+            public RecoveredState recover() {
+                return new RecoveredState(null, changes, 201);
+            }
+        }, ExpenseStorageEngine.HEAP, ExpenseAggregator.SEQUENTIAL, new ExpenseSharding(4));
+
+        Expense added = sharded.save(new Expense("Added", new BigDecimal("1.00"), "Food", LocalDateTime.of(2024, 2, 1, 0, 0)));
+        assertTrue(added.getId() >= 201);
+        sharded.deleteById(7L);
+        List<Expense> all = changes.values().stream().filter(e -> e.getId() != 7L).collect(Collectors.toList());
+        all.add(added);
+
+        Comparator<Expense> byDate = Comparator.comparing(Expense::getDate).thenComparing(Expense::getId);
+        assertEquals(all.size(), sharded.findAll().size());
+        assertEquals(added, sharded.findById(added.getId()).orElseThrow());
+        assertEquals(all.stream().sorted(byDate).map(Expense::getId).toList(),
+                     sharded.streamByDate(true, null, null).map(Expense::getId).toList());
+        assertEquals(all.stream().sorted(byDate.reversed()).limit(10).map(Expense::getId).toList(),
+                     sharded.findRecentExpenses(10).stream().map(Expense::getId).toList());
+        assertEquals(all.stream().filter(e -> e.getDate().getMonthValue() == 2).sorted(byDate).map(Expense::getId).toList(),
+                     sharded.findByMonth(2024, 2).stream().map(Expense::getId).toList());
+        assertEquals(all.stream().filter(e -> e.getCategory().equals("Food") && e.getId() > 50)
+                             .map(Expense::getId).sorted().toList(),
+                     sharded.streamByCategory("Food", 50L).map(Expense::getId).toList());
+        assertEquals(all.stream().map(Expense::getAmount).reduce(BigDecimal.ZERO, BigDecimal::add),
+                     sharded.getAggregates().getTotal());
+    }
+
+    @Test
+    @DisplayName("Should keep amount and category views in order through updates and deletes")
+    void testSortedViews() {
+        for (int shards : new int[] {1, 4}) {
+            ExpenseRepository repository = new ExpenseRepository(new NoOpExpensePersistence(), ExpenseStorageEngine.HEAP,
+                    ExpenseAggregator.SEQUENTIAL, new ExpenseSharding(shards));
+            Random random = new Random(5);
+            String[] categories = {"Rent", "Food", "Travel", "Books"};
+            for (int i = 0; i < 300; i++) {
+                repository.save(new Expense("Expense " + i, BigDecimal.valueOf(random.nextInt(500), 1),
+                        categories[random.nextInt(categories.length)], LocalDateTime.of(2024, 1, 1, 0, 0).plusHours(i)));
+            }
+            List<Long> ids = repository.findAll().stream().map(Expense::getId).sorted().toList();
+            for (int i = 0; i < ids.size(); i += 7) {
+                long id = ids.get(i);
+                Expense edited = new Expense(repository.findById(id).orElseThrow());
+                // Same value at another scale for some rows, so the amount key must not be duplicated
+                edited.setAmount(id % 2 == 0 ? edited.getAmount().setScale(2) : BigDecimal.valueOf(random.nextInt(500), 1));
+                edited.setCategory(categories[random.nextInt(categories.length)]);
+                repository.save(edited);
+            }
+            for (int i = 3; i < ids.size(); i += 11) {
+                repository.deleteById(ids.get(i));
+            }
+
+            List<Expense> all = repository.findAll();
+            Comparator<Expense> byAmount = Comparator.comparing(Expense::getAmount).thenComparing(Expense::getId);
+            Comparator<Expense> byCategory = Comparator.comparing(Expense::getCategory).thenComparing(Expense::getId);
+            assertEquals(all.stream().sorted(byAmount).map(Expense::getId).toList(),
+                         repository.streamByAmount(true, null, null).map(Expense::getId).toList());
+            assertEquals(all.stream().sorted(byAmount.reversed()).map(Expense::getId).toList(),
+                         repository.streamByAmount(false, null, null).map(Expense::getId).toList());
+            assertEquals(all.stream().sorted(byCategory).map(Expense::getId).toList(),
+                         repository.streamByCategoryName(true, null, null).map(Expense::getId).toList());
+            assertEquals(all.stream().sorted(byCategory.reversed()).map(Expense::getId).toList(),
+                         repository.streamByCategoryName(false, null, null).map(Expense::getId).toList());
+
+            Expense cursor = all.stream().sorted(byAmount).skip(100).findFirst().orElseThrow();
+            assertEquals(all.stream().sorted(byAmount).skip(101).limit(20).map(Expense::getId).toList(),
+                         repository.streamByAmount(true, cursor.getAmount(), cursor.getId()).limit(20).map(Expense::getId).toList());
+            assertEquals(all.stream().sorted(byAmount.reversed()).dropWhile(e -> e != cursor).skip(1).limit(20).map(Expense::getId).toList(),
+                         repository.streamByAmount(false, cursor.getAmount(), cursor.getId()).limit(20).map(Expense::getId).toList());
+            Expense inCategory = all.stream().sorted(byCategory).skip(150).findFirst().orElseThrow();
+            assertEquals(all.stream().sorted(byCategory).skip(151).map(Expense::getId).toList(),
+                         repository.streamByCategoryName(true, inCategory.getCategory(), inCategory.getId()).map(Expense::getId).toList());
+            assertEquals(all.stream().sorted(byCategory.reversed()).dropWhile(e -> e != inCategory).skip(1).map(Expense::getId).toList(),
+                         repository.streamByCategoryName(false, inCategory.getCategory(), inCategory.getId()).map(Expense::getId).toList());
+        }
+    }
+
+    @Test
+    @DisplayName("Should hand out ids per shard that never repeat those recovered")
+    void testShardIds() {
+        ExpenseSharding sharding = new ExpenseSharding(4);
+
+        assertEquals(List.of(1L, 5L, 9L), List.of(sharding.id(0, 0), sharding.id(0, 1), sharding.id(0, 2)));
+        assertEquals(List.of(0, 3, 0), List.of(sharding.shardOf(1), sharding.shardOf(4), sharding.shardOf(5)));
+        for (int shard = 0; shard < 4; shard++) {
+            long first = sharding.id(shard, sharding.firstSequence(shard, 10));
+            assertTrue(first >= 10 && first < 14);
+            assertEquals(shard, sharding.shardOf(first));
+        }
+        assertEquals(13, sharding.nextId(new long[] {3, 3, 3, 3}));
+        assertEquals(10, sharding.nextId(new long[] {3, 2, 0, 0}));
+        assertThrows(IllegalArgumentException.class, () -> new ExpenseSharding(0));
     }
 }
@@ -0,0 +1,50 @@
+package com.expensetracker.service;
+
+import com.expensetracker.dto.ExpenseRequest;
+import com.expensetracker.repository.ExpenseRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ExpenseMetricsTest {
+
+    @Test
+    @DisplayName("Should publish row and index sizes, cache statistics and scanned rows")
+    void testMetrics() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        ExpenseRepository repository = new ExpenseRepository();
+        ExpenseQueryCache cache = new ExpenseQueryCache(16, Duration.ofMinutes(1));
+        ExpenseService service = new ExpenseService(repository, cache, new ExpenseMetrics(registry, repository, cache));
+
+        LocalDateTime date = LocalDateTime.of(2024, 3, 1, 12, 0);
+        long id = service.createExpense(new ExpenseRequest("Lunch", new BigDecimal("12.50"), "Food", date)).getId();
+        service.createExpense(new ExpenseRequest("Bus", new BigDecimal("2.40"), "Transport", date.plusDays(1)));
+        service.createExpense(new ExpenseRequest("Rent", new BigDecimal("900.00"), "Rent", date.plusDays(2)));
+        service.updateExpense(id, new ExpenseRequest("Dinner", new BigDecimal("30.00"), "Fun", date.plusMonths(1)));
+        service.deleteExpense(id);
+
+        assertEquals(2, registry.get("expense.rows").gauge().value());
+        assertEquals(2, registry.get("expense.index.entries").tag("index", "date").gauge().value());
+        assertEquals(2, registry.get("expense.index.entries").tag("index", "category").gauge().value());
+
+        service.getExpensesByCategory();
+        service.getExpensesByCategory();
+        assertEquals(1, registry.get("expense.cache.requests").tag("result", "hit").functionCounter().count());
+        assertEquals(1, registry.get("expense.cache.requests").tag("result", "miss").functionCounter().count());
+        assertEquals(1, registry.get("expense.cache.size").gauge().value());
+
+        service.getExpensesSortedByPage("amount", false, null, 1);
+        service.getExpensesByMonthPage(2024, 3, null, 1);
+        assertEquals(2, registry.get("expense.query.rows.scanned").tag("query", "sorted").counter().count());
+        assertEquals(1, registry.get("expense.query.rows.returned").tag("query", "sorted").counter().count());
+        // A page of one reads one row more to know whether there is a next page
+        assertEquals(2, registry.get("expense.query.rows.scanned").tag("query", "month").counter().count());
+        assertEquals(1, registry.get("expense.query.rows.returned").tag("query", "month").counter().count());
+    }
+}
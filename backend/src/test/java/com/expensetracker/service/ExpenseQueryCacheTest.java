@@ -0,0 +1,138 @@
+package com.expensetracker.service;
+
+import com.expensetracker.dto.CacheStats;
+import com.expensetracker.model.Expense;
+import com.expensetracker.repository.ExpenseRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ExpenseQueryCacheTest {
+
+    private ExpenseRepository expenseRepository;
+    private ExpenseQueryCache queryCache;
+    private ExpenseService expenseService;
+
+    @BeforeEach
+    void setUp() {
+        expenseRepository = new ExpenseRepository();
+        queryCache = new ExpenseQueryCache(16, Duration.ofMinutes(1));
+        expenseService = new ExpenseService(expenseRepository, queryCache);
+    }
+
+    @Test
+    @DisplayName("Should keep the trend of other years cached across a write")
+    void testWriteOnlyInvalidatesItsYear() {
+        expenseRepository.save(expense("10.00", LocalDateTime.of(2024, 3, 1, 12, 0)));
+        expenseService.getMonthlyTrend(2024);
+        expenseService.getMonthlyTrend(2025);
+
+        expenseRepository.save(expense("5.00", LocalDateTime.of(2025, 6, 1, 12, 0)));
+
+        assertEquals(new BigDecimal("10.00"), expenseService.getMonthlyTrend(2024).get("March"));
+        assertEquals(new BigDecimal("5.00"), expenseService.getMonthlyTrend(2025).get("June"));
+        CacheStats stats = queryCache.getStats();
+        assertEquals(1, stats.getHits());
+        assertEquals(3, stats.getMisses());
+        assertEquals(1, stats.getInvalidations());
+    }
+
+    @Test
+    @DisplayName("Should invalidate both years when an expense moves between them")
+    void testMoveInvalidatesBothYears() {
+        Expense expense = expenseRepository.save(expense("10.00", LocalDateTime.of(2024, 3, 1, 12, 0)));
+        expenseService.getMonthlyTrend(2024);
+        expenseService.getMonthlyTrend(2025);
+
+        expense.setDate(LocalDateTime.of(2025, 3, 1, 12, 0));
+        expenseRepository.save(expense);
+
+        assertEquals(BigDecimal.ZERO, expenseService.getMonthlyTrend(2024).get("March"));
+        assertEquals(new BigDecimal("10.00"), expenseService.getMonthlyTrend(2025).get("March"));
+
+        expenseRepository.deleteById(expense.getId());
+
+        assertEquals(BigDecimal.ZERO, expenseService.getMonthlyTrend(2025).get("March"));
+        assertEquals(0, queryCache.getStats().getHits());
+    }
+
+    @Test
+    @DisplayName("Should evict the least recently used entry when full")
+    void testLeastRecentlyUsedEviction() {
+        queryCache = new ExpenseQueryCache(2, Duration.ofMinutes(1));
+        expenseService = new ExpenseService(expenseRepository, queryCache);
+
+        expenseService.getMonthlyTrend(2023);
+        expenseService.getMonthlyTrend(2024);
+        expenseService.getMonthlyTrend(2023);
+        expenseService.getMonthlyTrend(2025);
+        expenseService.getMonthlyTrend(2023);
+
+        CacheStats stats = queryCache.getStats();
+        assertEquals(2, stats.getSize());
+        assertEquals(2, stats.getHits());
+        assertEquals(1, stats.getEvictions());
+    }
+
+    @Test
+    @DisplayName("Should expire entries after their time to live")
+    void testTimeToLive() {
+        queryCache = new ExpenseQueryCache(16, Duration.ZERO);
+        expenseService = new ExpenseService(expenseRepository, queryCache);
+
+        expenseService.getExpensesByCategory();
+        expenseService.getExpensesByCategory();
+
+        assertEquals(0, queryCache.getStats().getHits());
+        assertEquals(1, queryCache.getStats().getEvictions());
+    }
+
+    @Test
+    @DisplayName("Should never serve a read older than a returned write under concurrent readers")
+    void testNoStaleReadAfterWrite() throws Exception {
+        AtomicBoolean writing = new AtomicBoolean(true);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        List<Future<?>> readers = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            readers.add(executor.submit(() -> {
+                while (writing.get()) {
+                    expenseService.getExpenseSummary();
+                    expenseService.getExpensesSortedBy("amount", true);
+                }
+            }));
+        }
+
+        try {
+            for (int i = 1; i <= 2_000; i++) {
+                expenseRepository.save(expense("1", LocalDateTime.now()));
+                assertEquals(BigDecimal.valueOf(i), expenseService.getExpenseSummary().getTotalExpenses());
+                assertEquals(i, expenseService.getExpensesSortedBy("amount", true).size());
+            }
+        } finally {
+            writing.set(false);
+            for (Future<?> reader : readers) {
+                reader.get();
+            }
+            executor.shutdown();
+            assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+        }
+        assertTrue(queryCache.getStats().getHits() > 0);
+    }
+
+    private static Expense expense(String amount, LocalDateTime date) {
+        return new Expense("Expense", new BigDecimal(amount), "Food", date);
+    }
+}
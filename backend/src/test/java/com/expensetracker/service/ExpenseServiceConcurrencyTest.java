@@ -0,0 +1,191 @@
+package com.expensetracker.service;
+
+import com.expensetracker.dto.ExpenseBatchResult;
+import com.expensetracker.dto.ExpenseRequest;
+import com.expensetracker.dto.ExpenseResponse;
+import com.expensetracker.dto.ExpenseUpdateRequest;
+import com.expensetracker.model.Expense;
+import com.expensetracker.repository.ExpenseRepository;
+import com.expensetracker.repository.ExpenseVersionConflictException;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ExpenseServiceConcurrencyTest {
+
+    private static final int WRITERS = 4;
+    private static final int INCREMENTS = 500;
+
+    @Test
+    @DisplayName("Should lose no conditional update and never expose a half-updated expense")
+    void testConcurrentConditionalUpdates() throws Exception {
+        ExpenseRepository repository = new ExpenseRepository();
+        ExpenseService service = new ExpenseService(repository);
+        LocalDateTime date = LocalDateTime.of(2024, 1, 1, 12, 0);
+        long id = service.createExpense(new ExpenseRequest("0", BigDecimal.ZERO, "Food", date)).getId();
+
+        ExecutorService executor = Executors.newFixedThreadPool(WRITERS + 2);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicBoolean writing = new AtomicBoolean(true);
+        AtomicLong conflicts = new AtomicLong();
+        List<Future<?>> writers = new ArrayList<>();
+        for (int t = 0; t < WRITERS; t++) {
+            writers.add(executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < INCREMENTS; i++) {
+                    while (true) {
+                        // Every field is derived from the counter, so a torn read shows up as a mismatch
+                        ExpenseResponse current = service.getExpenseById(id);
+                        long next = current.getAmount().longValueExact() + 1;
+                        try {
+                            service.updateExpense(id, new ExpenseRequest(Long.toString(next), BigDecimal.valueOf(next),
+                                    next % 2 == 0 ? "Food" : "Rent", date.plusMinutes(next)), current.getVersion());
+                            break;
+                        } catch (ExpenseVersionConflictException e) {
+                            conflicts.incrementAndGet();
+                        }
+                    }
+                }
+                return null;
+            }));
+        }
+        List<Future<?>> readers = new ArrayList<>();
+        for (int t = 0; t < 2; t++) {
+            readers.add(executor.submit(() -> {
+                start.await();
+                while (writing.get()) {
+                    Expense row = repository.findById(id).orElseThrow();
+                    long counter = row.getAmount().longValueExact();
+                    assertEquals(Long.toString(counter), row.getDescription());
+                    assertEquals(date.plusMinutes(counter), row.getDate());
+                    assertEquals(counter % 2 == 0 ? "Food" : "Rent", row.getCategory());
+                }
+                return null;
+            }));
+        }
+
+        start.countDown();
+        for (Future<?> writer : writers) {
+            writer.get();
+        }
+        writing.set(false);
+        for (Future<?> reader : readers) {
+            reader.get();
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+
+        ExpenseResponse result = service.getExpenseById(id);
+        assertEquals(BigDecimal.valueOf(WRITERS * INCREMENTS), result.getAmount());
+        assertEquals(1 + WRITERS * INCREMENTS, result.getVersion());
+        assertEquals(result.getAmount(), repository.getAggregates().getTotal());
+    }
+
+    @Test
+    @DisplayName("Should never bring back an expense deleted while it was being updated")
+    void testDeleteRacingUpdate() throws Exception {
+        ExpenseRepository repository = new ExpenseRepository();
+        ExpenseService service = new ExpenseService(repository);
+        LocalDateTime date = LocalDateTime.of(2024, 1, 1, 12, 0);
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < INCREMENTS; i++) {
+            ids.add(service.createExpense(new ExpenseRequest("Row", BigDecimal.ONE, "Food", date)).getId());
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(WRITERS + 1);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> updaters = new ArrayList<>();
+        for (int t = 0; t < WRITERS; t++) {
+            boolean batch = t % 2 == 0;
+            updaters.add(executor.submit(() -> {
+                start.await();
+                for (long id : ids) {
+                    if (batch) {
+                        service.updateExpenses(List.of(
+                                new ExpenseUpdateRequest(id, "Batch", BigDecimal.TEN, "Rent", date)));
+                    } else {
+                        try {
+                            service.updateExpense(id, new ExpenseRequest("Single", BigDecimal.TEN, "Rent", date));
+                        } catch (ExpenseVersionConflictException e) {
+                            fail("An update without a version should not conflict");
+                        } catch (RuntimeException e) {
+                            // Deleted before this update read it, or while it was saving
+                        }
+                    }
+                }
+                return null;
+            }));
+        }
+        Future<?> deleter = executor.submit(() -> {
+            start.await();
+            for (long id : ids) {
+                repository.deleteById(id);
+            }
+            return null;
+        });
+
+        start.countDown();
+        for (Future<?> updater : updaters) {
+            updater.get();
+        }
+        deleter.get();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+
+        for (long id : ids) {
+            assertTrue(repository.findById(id).isEmpty(), "Expense " + id + " came back after its delete");
+        }
+        assertEquals(0, repository.count());
+        assertEquals(0, BigDecimal.ZERO.compareTo(repository.getAggregates().getTotal()));
+    }
+
+    @Test
+    @DisplayName("Should answer not found for an expense deleted between the read and the save")
+    void testDeletedBetweenReadAndSave() {
+        AtomicBoolean deleteAfterRead = new AtomicBoolean();
+        ExpenseRepository repository = new ExpenseRepository() {
+            @Override
+            public Optional<Expense> findById(Long id) {
+                Optional<Expense> found = super.findById(id);
+                if (deleteAfterRead.getAndSet(false)) {
+                    deleteById(id);
+                }
+                return found;
+            }
+        };
+        ExpenseService service = new ExpenseService(repository);
+        ExpenseRequest request = new ExpenseRequest("Row", BigDecimal.ONE, "Food", LocalDateTime.of(2024, 1, 1, 12, 0));
+
+        long single = service.createExpense(request).getId();
+        deleteAfterRead.set(true);
+        RuntimeException notFound = assertThrows(RuntimeException.class, () -> service.updateExpense(single, request));
+        assertFalse(notFound instanceof ExpenseVersionConflictException);
+
+        long conditional = service.createExpense(request).getId();
+        deleteAfterRead.set(true);
+        notFound = assertThrows(RuntimeException.class, () -> service.updateExpense(conditional, request, 1));
+        assertFalse(notFound instanceof ExpenseVersionConflictException);
+
+        long batch = service.createExpense(request).getId();
+        deleteAfterRead.set(true);
+        List<ExpenseBatchResult> results = service.updateExpenses(List.of(new ExpenseUpdateRequest(
+                batch, "Row", BigDecimal.ONE, "Food", request.getDate())));
+        assertEquals(ExpenseBatchResult.Status.NOT_FOUND, results.get(0).getStatus());
+
+        assertEquals(0, repository.count());
+    }
+}
@@ -1,9 +1,12 @@
 package com.expensetracker.service;
 
+import com.expensetracker.dto.ExpenseBatchResult;
 import com.expensetracker.dto.ExpenseRequest;
 import com.expensetracker.dto.ExpenseResponse;
 import com.expensetracker.dto.ExpenseSummary;
+import com.expensetracker.dto.ExpenseUpdateRequest;
 import com.expensetracker.model.Expense;
+import com.expensetracker.repository.ExpenseAggregates;
 import com.expensetracker.repository.ExpenseRepository;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -11,16 +14,22 @@ import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 
 import java.math.BigDecimal;
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.Mockito.*;
 
@@ -30,6 +39,12 @@ class ExpenseServiceTest {
     @Mock
     private ExpenseRepository expenseRepository;
 
+    @Spy
+    private ExpenseQueryCache queryCache = new ExpenseQueryCache(16, Duration.ofMinutes(1));
+
+    @Mock
+    private ExpenseQueryListener queryListener;
+
     @InjectMocks
     private ExpenseService expenseService;
 
@@ -63,14 +78,35 @@ class ExpenseServiceTest {
     @DisplayName("Should update expense successfully")
     void testUpdateExpense() {
         when(expenseRepository.findById(1L)).thenReturn(Optional.of(expense));
-        when(expenseRepository.save(any(Expense.class))).thenReturn(expense);
+        when(expenseRepository.save(any(Expense.class), eq(expense.getVersion()))).thenReturn(expense);
         
         ExpenseResponse response = expenseService.updateExpense(1L, expenseRequest);
         
         assertNotNull(response);
         assertEquals("Test expense", response.getDescription());
         verify(expenseRepository, times(1)).findById(1L);
-        verify(expenseRepository, times(1)).save(any(Expense.class));
+        verify(expenseRepository, times(1)).save(any(Expense.class), eq(expense.getVersion()));
+        verify(expenseRepository, never()).save(any(Expense.class));
+    }
+
+    @Test
+    @DisplayName("Should update a batch and report missing expenses")
+    void testUpdateExpenses() {
+        when(expenseRepository.findById(1L)).thenReturn(Optional.of(expense));
+        when(expenseRepository.findById(2L)).thenReturn(Optional.empty());
+        when(expenseRepository.saveAllIfUnchanged(anyList())).thenReturn(List.of(true));
+
+        List<ExpenseBatchResult> results = expenseService.updateExpenses(List.of(
+                new ExpenseUpdateRequest(1L, "Renamed", new BigDecimal("5.00"), "Food", LocalDateTime.now()),
+                new ExpenseUpdateRequest(2L, "Missing", new BigDecimal("5.00"), "Food", LocalDateTime.now())));
+
+        assertEquals(ExpenseBatchResult.Status.UPDATED, results.get(0).getStatus());
+        assertEquals("Renamed", results.get(0).getExpense().getDescription());
+        assertEquals(ExpenseBatchResult.Status.NOT_FOUND, results.get(1).getStatus());
+        assertEquals(2L, results.get(1).getId());
+        verify(expenseRepository, times(1)).saveAllIfUnchanged(List.of(expense));
+        verify(expenseRepository, never()).saveAll(anyList());
+        verify(expenseRepository, never()).save(any(Expense.class));
     }
 
     @Test
@@ -131,13 +167,32 @@ class ExpenseServiceTest {
         verify(expenseRepository, times(1)).findAll();
     }
 
+    @Test
+    @DisplayName("Should report rows scanned and returned per listing")
+    void testQueryListenerCountsRows() {
+        Expense other = new Expense("Other", new BigDecimal("5.00"), "Rent", LocalDateTime.now());
+        other.setId(2L);
+        Expense third = new Expense("Third", new BigDecimal("50.00"), "Food", LocalDateTime.now());
+        third.setId(3L);
+        when(expenseRepository.streamByAmount(true, null, null)).thenReturn(Stream.of(other, third, expense));
+        when(expenseRepository.streamByMonth(2024, 1, null, null)).thenReturn(Stream.of(expense, other));
+
+        // A page of one reads one row more to know whether there is a next page
+        assertEquals(1, expenseService.getExpensesSortedByPage("amount", true, null, 1).getItems().size());
+        verify(queryListener).queried("sorted", 2, 1);
+
+        try (Stream<ExpenseResponse> rows = expenseService.streamExpensesByMonth(2024, 1)) {
+            assertEquals(2, rows.collect(Collectors.toList()).size());
+        }
+        verify(queryListener).queried("month", 2, 2);
+    }
+
     @Test
     @DisplayName("Should get expense summary")
     void testGetExpenseSummary() {
-        List<Expense> expenses = Arrays.asList(expense);
-        when(expenseRepository.findAll()).thenReturn(expenses);
-        when(expenseRepository.findByMonth(anyInt(), anyInt())).thenReturn(expenses);
-        when(expenseRepository.findByYear(anyInt())).thenReturn(expenses);
+        ExpenseAggregates aggregates = new ExpenseAggregates();
+        aggregates.add(expense.getCategory(), expense.getDate(), expense.getAmount());
+        when(expenseRepository.getAggregates()).thenReturn(aggregates);
         
         ExpenseSummary summary = expenseService.getExpenseSummary();
         
@@ -146,6 +201,25 @@ class ExpenseServiceTest {
         assertEquals(new BigDecimal("100.00"), summary.getMonthlyExpenses());
         assertEquals(new BigDecimal("100.00"), summary.getYearlyExpenses());
         assertNotNull(summary.getExpensesByCategory());
-        verify(expenseRepository, times(1)).findAll();
+        assertEquals("Food", summary.getHighestSpendCategory());
+        verify(expenseRepository, never()).findAll();
+    }
+
+    @Test
+    @DisplayName("Should get monthly trend from the month rollups")
+    void testGetMonthlyTrend() {
+        ExpenseAggregates aggregates = new ExpenseAggregates();
+        aggregates.add("Food", LocalDateTime.of(2024, 2, 10, 12, 0), new BigDecimal("10.00"));
+        aggregates.add("Rent", LocalDateTime.of(2024, 2, 29, 23, 59), new BigDecimal("5.5"));
+        aggregates.add("Food", LocalDateTime.of(2025, 2, 1, 0, 0), new BigDecimal("99.00"));
+        when(expenseRepository.getAggregates()).thenReturn(aggregates);
+
+        Map<String, BigDecimal> trend = expenseService.getMonthlyTrend(2024);
+
+        assertEquals(12, trend.size());
+        assertEquals("January", trend.keySet().iterator().next());
+        assertEquals(BigDecimal.ZERO, trend.get("January"));
+        assertEquals(new BigDecimal("15.50"), trend.get("February"));
+        verify(expenseRepository, never()).findByYear(anyInt());
     }
 }